@@ -0,0 +1,102 @@
+package com.marsk.docassist.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration for asynchronous batch jobs
+ */
+@Configuration
+public class BatchJobConfig {
+
+    /** Number of batch jobs that run at the same time. */
+    @Value("${docassist.jobs.concurrency:2}")
+    private int concurrency;
+
+    /** Submitted jobs that may wait for a free worker before submissions are rejected. */
+    @Value("${docassist.jobs.queue-capacity:50}")
+    private int queueCapacity;
+
+    /** How long finished jobs, their results and Excel files stay available. */
+    @Value("${docassist.jobs.retention-minutes:1440}")
+    private long retentionMinutes;
+
+    @Value("${docassist.jobs.output-directory:output}")
+    private String outputDirectory;
+
+    /** Files recognised at the same time across all batches (0 = OCR engine pool size). */
+    @Value("${docassist.pipeline.ocr-workers:0}")
+    private int pipelineOcrWorkers;
+
+    /** Extraction requests sent to Ollama at the same time across all batches. */
+    @Value("${docassist.pipeline.llm-workers:2}")
+    private int pipelineLlmWorkers;
+
+    /** Recognised documents of one batch that may wait for extraction before its next files are held back. */
+    @Value("${docassist.pipeline.queue-capacity:4}")
+    private int pipelineQueueCapacity;
+
+    public long getRetentionMinutes() {
+        return retentionMinutes;
+    }
+
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public int getPipelineOcrWorkers() {
+        return pipelineOcrWorkers;
+    }
+
+    public int getPipelineLlmWorkers() {
+        return pipelineLlmWorkers;
+    }
+
+    public int getPipelineQueueCapacity() {
+        return pipelineQueueCapacity;
+    }
+
+    /**
+     * Threads that recognise batch files, shared by all running batches.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pipelineOcrExecutor(OcrConfig ocrConfig) {
+        int threads = pipelineOcrWorkers > 0 ? pipelineOcrWorkers : ocrConfig.getPoolSize();
+        return Executors.newFixedThreadPool(threads, namedThreads("pipeline-ocr-"));
+    }
+
+    /**
+     * Threads that extract recognised batch files, shared by all running batches.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pipelineLlmExecutor() {
+        return Executors.newFixedThreadPool(Math.max(1, pipelineLlmWorkers), namedThreads("pipeline-llm-"));
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor batchJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("batch-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
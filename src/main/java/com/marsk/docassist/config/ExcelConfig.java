@@ -0,0 +1,27 @@
+package com.marsk.docassist.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the Excel export
+ */
+@Configuration
+public class ExcelConfig {
+
+    /** Exports with more invoices than this are written with the streaming workbook. */
+    @Value("${excel.streaming.row-threshold:1000}")
+    private int streamingRowThreshold;
+
+    /** Rows kept in memory by the streaming workbook before older rows are flushed to disk. */
+    @Value("${excel.streaming.window-size:100}")
+    private int streamingWindowSize;
+
+    public int getStreamingRowThreshold() {
+        return streamingRowThreshold;
+    }
+
+    public int getStreamingWindowSize() {
+        return streamingWindowSize;
+    }
+}
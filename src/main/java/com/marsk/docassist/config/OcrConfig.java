@@ -0,0 +1,258 @@
+package com.marsk.docassist.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the Tesseract OCR engines
+ */
+@Configuration
+public class OcrConfig {
+
+    @Value("${tesseract.data-path:./tessdata}")
+    private String tessDataPath;
+
+    /** Number of engines that may recognise concurrently; 0 means one per available core. */
+    @Value("${ocr.pool.size:0}")
+    private int poolSize;
+
+    @Value("${ocr.pool.borrow-timeout-seconds:120}")
+    private long borrowTimeoutSeconds;
+
+    /** Pages of one PDF that may be in flight (rendered but not yet recognised); 0 means the pool size. */
+    @Value("${ocr.pdf.page-parallelism:0}")
+    private int pageParallelism;
+
+    /** How PDFBox buffers a loaded PDF: mixed (memory up to the cap, then a scratch file), temp-file or main-memory. */
+    @Value("${ocr.pdf.memory-mode:mixed}")
+    private String pdfMemoryMode;
+
+    /** Main memory one PDF may use for its buffers before spilling to the scratch file (mixed mode). */
+    @Value("${ocr.pdf.max-main-memory-mb:32}")
+    private long pdfMaxMainMemoryMb;
+
+    /** Pick the render resolution per page from the measured text height instead of a fixed value. */
+    @Value("${ocr.pdf.dpi.adaptive:true}")
+    private boolean adaptiveDpi;
+
+    /** Render resolution when adaptive DPI is disabled. */
+    @Value("${ocr.pdf.dpi.fixed:400}")
+    private int fixedDpi;
+
+    /** First render resolution in adaptive mode. */
+    @Value("${ocr.pdf.dpi.initial:200}")
+    private int initialDpi;
+
+    /** Highest resolution a page is re-rendered at in adaptive mode. */
+    @Value("${ocr.pdf.dpi.max:400}")
+    private int maxDpi;
+
+    /** Text line height in pixels below which a page is re-rendered at a higher resolution. */
+    @Value("${ocr.pdf.dpi.min-text-height-px:30}")
+    private int minTextHeightPx;
+
+    /** Comma-separated preprocessing stages applied to rendered pages, in order; "none" disables preprocessing. */
+    @Value("${ocr.preprocess.stages:grayscale,denoise,deskew}")
+    private String preprocessStages;
+
+    /** Scale factor of the upscale stage. */
+    @Value("${ocr.preprocess.upscale-factor:1.5}")
+    private double preprocessUpscaleFactor;
+
+    /** Largest skew in degrees the deskew stage corrects; larger angles are left alone. */
+    @Value("${ocr.preprocess.deskew-max-degrees:10}")
+    private double preprocessDeskewMaxDegrees;
+
+    /** Recognise only the header and totals blocks of rendered pages instead of the whole page. */
+    @Value("${ocr.roi.enabled:false}")
+    private boolean roiEnabled;
+
+    /** Fraction of the page height, from the top, treated as the invoice header band. */
+    @Value("${ocr.roi.header-fraction:0.35}")
+    private double roiHeaderFraction;
+
+    /** Largest fraction of the page the selected regions may cover; above it the whole page is recognised. */
+    @Value("${ocr.roi.max-coverage:0.6}")
+    private double roiMaxCoverage;
+
+    /** Region text with fewer visible characters than this is discarded and the whole page is recognised. */
+    @Value("${ocr.roi.min-chars:40}")
+    private int roiMinChars;
+
+    /** Recognise rendered pages with a fast pass first and escalate to the standard pass only when needed. */
+    @Value("${ocr.escalation.enabled:true}")
+    private boolean escalationEnabled;
+
+    /** Render resolution of the fast pass. */
+    @Value("${ocr.escalation.fast-dpi:200}")
+    private int escalationFastDpi;
+
+    /** Mean word confidence (0-100) below which a fast-pass page is recognised again with the standard pass. */
+    @Value("${ocr.escalation.min-page-confidence:75}")
+    private float escalationMinPageConfidence;
+
+    /** Extraction confidence (0-1) below which a document with fast-pass pages is recognised and extracted again. */
+    @Value("${ocr.escalation.min-extraction-confidence:0.5}")
+    private double escalationMinExtractionConfidence;
+
+    /** Colour model pages are rendered to before OCR: GRAY, BINARY or RGB. */
+    @Value("${ocr.pdf.render-image-type:GRAY}")
+    private String pdfRenderImageType;
+
+    @Value("${ocr.text-layer.enabled:true}")
+    private boolean textLayerEnabled;
+
+    /** Minimum visible characters a page's text layer needs before OCR is skipped. */
+    @Value("${ocr.text-layer.min-chars:50}")
+    private int textLayerMinChars;
+
+    /** Minimum share of letters, digits and common punctuation in a usable text layer. */
+    @Value("${ocr.text-layer.min-plausible-ratio:0.9}")
+    private double textLayerMinPlausibleRatio;
+
+    @Value("${ocr.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${ocr.cache.max-entries:500}")
+    private long cacheMaxEntries;
+
+    @Value("${ocr.cache.expire-after-access-minutes:60}")
+    private long cacheExpireAfterAccessMinutes;
+
+    public String getTessDataPath() {
+        return tessDataPath;
+    }
+
+    public int getPoolSize() {
+        return poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+    }
+
+    public long getBorrowTimeoutSeconds() {
+        return borrowTimeoutSeconds;
+    }
+
+    public int getPageParallelism() {
+        return pageParallelism > 0 ? pageParallelism : getPoolSize();
+    }
+
+    public String getPdfMemoryMode() {
+        return pdfMemoryMode;
+    }
+
+    public long getPdfMaxMainMemoryMb() {
+        return pdfMaxMainMemoryMb;
+    }
+
+    public boolean isAdaptiveDpi() {
+        return adaptiveDpi;
+    }
+
+    public int getFixedDpi() {
+        return fixedDpi;
+    }
+
+    public int getInitialDpi() {
+        return initialDpi;
+    }
+
+    public int getMaxDpi() {
+        return maxDpi;
+    }
+
+    public int getMinTextHeightPx() {
+        return minTextHeightPx;
+    }
+
+    public String getPreprocessStages() {
+        return preprocessStages;
+    }
+
+    public double getPreprocessUpscaleFactor() {
+        return preprocessUpscaleFactor;
+    }
+
+    public double getPreprocessDeskewMaxDegrees() {
+        return preprocessDeskewMaxDegrees;
+    }
+
+    public boolean isRoiEnabled() {
+        return roiEnabled;
+    }
+
+    public double getRoiHeaderFraction() {
+        return roiHeaderFraction;
+    }
+
+    public double getRoiMaxCoverage() {
+        return roiMaxCoverage;
+    }
+
+    public int getRoiMinChars() {
+        return roiMinChars;
+    }
+
+    public boolean isEscalationEnabled() {
+        return escalationEnabled;
+    }
+
+    public int getEscalationFastDpi() {
+        return escalationFastDpi;
+    }
+
+    public float getEscalationMinPageConfidence() {
+        return escalationMinPageConfidence;
+    }
+
+    public double getEscalationMinExtractionConfidence() {
+        return escalationMinExtractionConfidence;
+    }
+
+    public String getPdfRenderImageType() {
+        return pdfRenderImageType;
+    }
+
+    public boolean isTextLayerEnabled() {
+        return textLayerEnabled;
+    }
+
+    public int getTextLayerMinChars() {
+        return textLayerMinChars;
+    }
+
+    public double getTextLayerMinPlausibleRatio() {
+        return textLayerMinPlausibleRatio;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public long getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public long getCacheExpireAfterAccessMinutes() {
+        return cacheExpireAfterAccessMinutes;
+    }
+
+    /**
+     * Executor that preprocesses and recognises PDF pages.
+     * Sized like the engine pool, since every task holds an engine while it recognises.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ocrPageExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "ocr-page-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(getPoolSize(), threadFactory);
+    }
+}
@@ -15,6 +15,80 @@ public class OllamaConfig {
     @Value("${ollama.model-name:llama3.2}")
     private String ollamaModelName;
 
+    @Value("${ollama.extraction-cache.enabled:true}")
+    private boolean extractionCacheEnabled;
+
+    @Value("${ollama.extraction-cache.max-entries:1000}")
+    private long extractionCacheMaxEntries;
+
+    @Value("${ollama.extraction-cache.expire-after-write-minutes:1440}")
+    private long extractionCacheExpireAfterWriteMinutes;
+
+    /** Extraction requests sent to the model server at the same time before the limit has adapted. */
+    @Value("${ollama.max-concurrent-requests:2}")
+    private int maxConcurrentRequests;
+
+    /** How long a request waits for a free slot before it fails. */
+    @Value("${ollama.slot-timeout-seconds:300}")
+    private long slotTimeoutSeconds;
+
+    @Value("${ollama.limiter.min-limit:1}")
+    private int limiterMinLimit;
+
+    @Value("${ollama.limiter.max-limit:8}")
+    private int limiterMaxLimit;
+
+    /** Requests that may wait for a slot; further requests fail immediately. */
+    @Value("${ollama.limiter.max-queue:50}")
+    private int limiterMaxQueue;
+
+    /** Extractions slower than this are taken as a sign the model server is saturated. */
+    @Value("${ollama.limiter.latency-threshold-seconds:90}")
+    private long limiterLatencyThresholdSeconds;
+
+    @Value("${ollama.limiter.backoff-ratio:0.7}")
+    private double limiterBackoffRatio;
+
+    /** Consecutive connection failures or timeouts after which calls fail fast. */
+    @Value("${ollama.circuit-breaker.failure-threshold:3}")
+    private int circuitBreakerFailureThreshold;
+
+    @Value("${ollama.circuit-breaker.open-seconds:30}")
+    private long circuitBreakerOpenSeconds;
+
+    @Value("${ollama.condenser.enabled:true}")
+    private boolean condenserEnabled;
+
+    /** Estimated tokens of OCR text sent per document; above it only the lines most likely to hold fields are kept. */
+    @Value("${ollama.condenser.token-budget:1500}")
+    private int condenserTokenBudget;
+
+    @Value("${ollama.rules.enabled:true}")
+    private boolean rulesEnabled;
+
+    /** Confidence a pattern rule value needs before it is used. */
+    @Value("${ollama.rules.min-field-confidence:0.8}")
+    private double rulesMinFieldConfidence;
+
+    /** Extraction confidence score (share of fields found) at which the rules' result is used without the model. */
+    @Value("${ollama.rules.skip-model-confidence:0.8}")
+    private double rulesSkipModelConfidence;
+
+    /** Health probe results are served from memory for this long before a probe runs on demand. */
+    @Value("${ollama.health.cache-ttl-seconds:15}")
+    private long healthCacheTtlSeconds;
+
+    @Value("${ollama.health.timeout-seconds:3}")
+    private long healthTimeoutSeconds;
+
+    /** Upper bound on generated tokens per extraction, so a model that never closes its JSON stops. */
+    @Value("${ollama.num-predict:1024}")
+    private int numPredict;
+
+    /** Time a streamed response may take from its headers to the end of the body. */
+    @Value("${ollama.streaming.timeout-seconds:300}")
+    private long streamingTimeoutSeconds;
+
     public String getOllamaBaseUrl() {
         return ollamaBaseUrl;
     }
@@ -22,4 +96,88 @@ public class OllamaConfig {
     public String getOllamaModelName() {
         return ollamaModelName;
     }
+
+    public boolean isExtractionCacheEnabled() {
+        return extractionCacheEnabled;
+    }
+
+    public long getExtractionCacheMaxEntries() {
+        return extractionCacheMaxEntries;
+    }
+
+    public long getExtractionCacheExpireAfterWriteMinutes() {
+        return extractionCacheExpireAfterWriteMinutes;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests > 0 ? maxConcurrentRequests : 1;
+    }
+
+    public long getSlotTimeoutSeconds() {
+        return slotTimeoutSeconds;
+    }
+
+    public int getLimiterMinLimit() {
+        return limiterMinLimit;
+    }
+
+    public int getLimiterMaxLimit() {
+        return limiterMaxLimit;
+    }
+
+    public int getLimiterMaxQueue() {
+        return limiterMaxQueue;
+    }
+
+    public long getLimiterLatencyThresholdSeconds() {
+        return limiterLatencyThresholdSeconds;
+    }
+
+    public double getLimiterBackoffRatio() {
+        return limiterBackoffRatio > 0 && limiterBackoffRatio < 1 ? limiterBackoffRatio : 0.7;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenSeconds() {
+        return circuitBreakerOpenSeconds;
+    }
+
+    public long getHealthCacheTtlSeconds() {
+        return healthCacheTtlSeconds;
+    }
+
+    public long getHealthTimeoutSeconds() {
+        return healthTimeoutSeconds > 0 ? healthTimeoutSeconds : 3;
+    }
+
+    public int getNumPredict() {
+        return numPredict > 0 ? numPredict : 1024;
+    }
+
+    public long getStreamingTimeoutSeconds() {
+        return streamingTimeoutSeconds > 0 ? streamingTimeoutSeconds : 300;
+    }
+
+    public boolean isCondenserEnabled() {
+        return condenserEnabled;
+    }
+
+    public int getCondenserTokenBudget() {
+        return condenserTokenBudget > 0 ? condenserTokenBudget : 1500;
+    }
+
+    public boolean isRulesEnabled() {
+        return rulesEnabled;
+    }
+
+    public double getRulesMinFieldConfidence() {
+        return rulesMinFieldConfidence;
+    }
+
+    public double getRulesSkipModelConfidence() {
+        return rulesSkipModelConfidence;
+    }
 }
@@ -0,0 +1,59 @@
+package com.marsk.docassist.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for the blocking OCR and extraction endpoints.
+ * The endpoints hand their work to this executor and return immediately, so Tomcat's request
+ * threads are released while a document waits for OCR or for Ollama and cheap endpoints such
+ * as health checks stay responsive during upload bursts. Requests waiting for a worker only
+ * cost a queue entry; CPU-heavy OCR is still throttled by the engine pool and extraction by
+ * the Ollama request slots.
+ */
+@Configuration
+public class RequestExecutionConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestExecutionConfig.class);
+
+    /** Run each request on its own virtual thread (requires Java 21; falls back to the worker pool otherwise). */
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /** Platform threads processing documents when virtual threads are not in use. */
+    @Value("${docassist.web.request-threads:32}")
+    private int requestThreads;
+
+    /** Requests that may wait for a platform worker before new requests are answered with 503. */
+    @Value("${docassist.web.request-queue-capacity:500}")
+    private int requestQueueCapacity;
+
+    @Bean
+    public AsyncTaskExecutor requestExecutor() {
+        if (virtualThreads) {
+            try {
+                SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("request-");
+                executor.setVirtualThreads(true);
+                logger.info("Processing document requests on virtual threads");
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                logger.warn("Virtual threads are not available on Java {}, using a pool of {} request threads",
+                        Runtime.version().feature(), requestThreads);
+            }
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(requestThreads);
+        executor.setMaxPoolSize(requestThreads);
+        executor.setQueueCapacity(requestQueueCapacity);
+        executor.setThreadNamePrefix("request-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,34 @@
+package com.marsk.docassist.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for per-vendor extraction templates
+ */
+@Configuration
+public class VendorTemplateConfig {
+
+    @Value("${docassist.templates.enabled:true}")
+    private boolean enabled;
+
+    /** Extraction confidence a model result needs before a template is learned from it. */
+    @Value("${docassist.templates.learn-min-confidence:0.7}")
+    private double learnMinConfidence;
+
+    /** Fields that must be located in the text for a template to be stored. */
+    @Value("${docassist.templates.min-anchors:4}")
+    private int minAnchors;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getLearnMinConfidence() {
+        return learnMinConfidence;
+    }
+
+    public int getMinAnchors() {
+        return minAnchors;
+    }
+}
@@ -1,12 +1,27 @@
 package com.marsk.docassist.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final AsyncTaskExecutor requestExecutor;
+
+    public WebConfig(@Qualifier("requestExecutor") AsyncTaskExecutor requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Asynchronous handlers run on the document request executor instead of a thread per call
+        configurer.setTaskExecutor(requestExecutor);
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
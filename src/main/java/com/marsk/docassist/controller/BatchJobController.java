@@ -0,0 +1,212 @@
+package com.marsk.docassist.controller;
+
+import com.marsk.docassist.service.BatchJob;
+import com.marsk.docassist.service.BatchJobService;
+import com.marsk.docassist.service.OcrProgressInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST controller for asynchronous batch jobs.
+ * Submitting a batch returns a job ID at once; progress, results and the
+ * consolidated Excel file are then fetched by job ID.
+ */
+@RestController
+@RequestMapping("/api/invoice/jobs")
+public class BatchJobController {
+    private static final Logger logger = LoggerFactory.getLogger(BatchJobController.class);
+
+    private static final MediaType XLSX_MEDIA_TYPE =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private final BatchJobService batchJobService;
+
+    public BatchJobController(BatchJobService batchJobService) {
+        this.batchJobService = batchJobService;
+    }
+
+    /**
+     * Submits a batch of documents for background processing into a consolidated Excel file.
+     *
+     * @param files Array of uploaded document files
+     * @param language OCR language (optional, defaults to "eng")
+     * @param outputPath Path of the Excel file within the output directory (optional)
+     * @return JSON response with the job ID and status URL
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> submitJob(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam(value = "language", defaultValue = "eng") String language,
+            @RequestParam(value = "outputPath", required = false) String outputPath) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (files == null || files.length == 0) {
+                response.put("success", false);
+                response.put("error", "No files uploaded");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            BatchJob job = batchJobService.submit(files, language, outputPath);
+
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("totalFiles", files.length);
+            response.put("statusUrl", "/api/invoice/jobs/" + job.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (BatchJobService.BatchJobRejectedException e) {
+            logger.warn("Batch job rejected: {}", e.getMessage());
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            logger.error("Error submitting batch job: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Job submission failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Reports the progress of a batch job, including the stage of every file.
+     *
+     * @param jobId The job ID returned on submission
+     * @return JSON response with status, percent complete and ETA
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId) {
+        Optional<BatchJob> job = batchJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return jobNotFound(jobId);
+        }
+        return ResponseEntity.ok(buildJobStatus(job.get()));
+    }
+
+    /**
+     * Returns the invoices extracted by a batch job so far.
+     *
+     * @param jobId The job ID returned on submission
+     * @return JSON response with extracted invoice data and failed files
+     */
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<Map<String, Object>> getJobResults(@PathVariable String jobId) {
+        Optional<BatchJob> job = batchJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return jobNotFound(jobId);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        List<String> failedFiles = new ArrayList<>();
+        for (OcrProgressInfo file : job.get().getFiles()) {
+            if (file.getStage() == OcrProgressInfo.Stage.FAILED) {
+                failedFiles.add(file.getFilename() + " (" + file.getError() + ")");
+            }
+        }
+
+        response.put("success", true);
+        response.put("jobId", jobId);
+        response.put("status", job.get().getStatus());
+        response.put("invoices", job.get().getResults());
+        response.put("totalProcessed", job.get().getResults().size());
+        response.put("failedFiles", failedFiles);
+        response.put("excelFile", job.get().getStatus() == BatchJob.Status.COMPLETED
+                ? job.get().getExcelFileName()
+                : null);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Downloads the consolidated Excel file of a completed batch job.
+     *
+     * @param jobId The job ID returned on submission
+     * @return The XLSX file, or 409 while the job is still running
+     */
+    @GetMapping("/{jobId}/excel")
+    public ResponseEntity<?> downloadJobExcel(@PathVariable String jobId) {
+        Optional<BatchJob> job = batchJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return jobNotFound(jobId);
+        }
+
+        if (job.get().getStatus() != BatchJob.Status.COMPLETED) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("status", job.get().getStatus());
+            response.put("error", job.get().isFinished()
+                    ? "Job failed, no Excel file was produced"
+                    : "Job is still running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+
+        File excelFile = batchJobService.getExcelFile(job.get()).toFile();
+        if (!excelFile.isFile()) {
+            return jobNotFound(jobId);
+        }
+
+        Resource resource = new FileSystemResource(excelFile);
+        return ResponseEntity.ok()
+                .contentType(XLSX_MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + excelFile.getName() + "\"")
+                .body(resource);
+    }
+
+    private Map<String, Object> buildJobStatus(BatchJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus());
+        response.put("percentComplete", job.getPercentComplete());
+        response.put("etaSeconds", job.getEtaSeconds());
+        response.put("submittedAt", job.getSubmittedAt().toString());
+        response.put("startedAt", job.getStartedAt() != null ? job.getStartedAt().toString() : null);
+        response.put("finishedAt", job.getFinishedAt() != null ? job.getFinishedAt().toString() : null);
+        response.put("totalFiles", job.getFiles().size());
+        response.put("excelAvailable", job.getStatus() == BatchJob.Status.COMPLETED);
+        if (job.getError() != null) {
+            response.put("error", job.getError());
+        }
+
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (OcrProgressInfo file : job.getFiles()) {
+            Map<String, Object> fileStatus = new HashMap<>();
+            fileStatus.put("filename", file.getFilename());
+            fileStatus.put("stage", file.getStage());
+            fileStatus.put("elapsedMs", file.getElapsedMs());
+            fileStatus.put("confidence", file.getConfidence());
+            if (file.getError() != null) {
+                fileStatus.put("error", file.getError());
+            }
+            files.add(fileStatus);
+        }
+        response.put("files", files);
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> jobNotFound(String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "Job not found: " + jobId);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+}
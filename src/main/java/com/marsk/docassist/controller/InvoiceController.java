@@ -1,22 +1,39 @@
 package com.marsk.docassist.controller;
 
 import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.model.OcrResult;
 import com.marsk.docassist.service.ExcelService;
+import com.marsk.docassist.service.InvoicePipelineService;
+import com.marsk.docassist.service.OcrProgressInfo;
+import com.marsk.docassist.service.OcrResultCache;
 import com.marsk.docassist.service.OcrService;
+import com.marsk.docassist.service.OllamaHealthMonitor;
 import com.marsk.docassist.service.OllamaService;
+import com.marsk.docassist.service.StagedBatch;
+import com.marsk.docassist.service.TesseractEnginePool;
+import com.marsk.docassist.service.VendorTemplateService;
+import net.sourceforge.tess4j.TesseractException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -33,11 +50,44 @@ public class InvoiceController {
     private final OcrService ocrService;
     private final OllamaService ollamaService;
     private final ExcelService excelService;
-
-    public InvoiceController(OcrService ocrService, OllamaService ollamaService, ExcelService excelService) {
+    private final TesseractEnginePool enginePool;
+    private final OcrResultCache ocrResultCache;
+    private final InvoicePipelineService invoicePipelineService;
+    private final AsyncTaskExecutor requestExecutor;
+    private final OllamaHealthMonitor ollamaHealthMonitor;
+    private final VendorTemplateService vendorTemplateService;
+
+    public InvoiceController(OcrService ocrService, OllamaService ollamaService, ExcelService excelService,
+                             TesseractEnginePool enginePool, OcrResultCache ocrResultCache,
+                             InvoicePipelineService invoicePipelineService,
+                             @Qualifier("requestExecutor") AsyncTaskExecutor requestExecutor,
+                             OllamaHealthMonitor ollamaHealthMonitor,
+                             VendorTemplateService vendorTemplateService) {
         this.ocrService = ocrService;
         this.ollamaService = ollamaService;
         this.excelService = excelService;
+        this.enginePool = enginePool;
+        this.ocrResultCache = ocrResultCache;
+        this.invoicePipelineService = invoicePipelineService;
+        this.requestExecutor = requestExecutor;
+        this.ollamaHealthMonitor = ollamaHealthMonitor;
+        this.vendorTemplateService = vendorTemplateService;
+    }
+
+    /**
+     * Runs a blocking document request on the request executor, releasing the servlet thread
+     * until the response is ready. Requests beyond the executor's queue are answered with 503.
+     */
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> submit(Supplier<ResponseEntity<Map<String, Object>>> request) {
+        try {
+            return CompletableFuture.supplyAsync(request, requestExecutor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected document request, request queue is full");
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "Server is busy, please retry later");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response));
+        }
     }
 
     /**
@@ -48,9 +98,13 @@ public class InvoiceController {
      * @return JSON response with extracted invoice data
      */
     @PostMapping(value = "/process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> processInvoice(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processInvoice(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "language", defaultValue = "eng") String language) {
+        return submit(() -> processInvoiceBlocking(file, language));
+    }
+
+    private ResponseEntity<Map<String, Object>> processInvoiceBlocking(MultipartFile file, String language) {
         
         Map<String, Object> response = new HashMap<>();
         
@@ -66,7 +120,8 @@ public class InvoiceController {
 
             // Step 1: Perform OCR on the uploaded file
             logger.info("Starting OCR processing for file: {}", filename);
-            String ocrText = ocrService.performOcr(file, language);
+            OcrResult ocrResult = recognise(file, language);
+            String ocrText = ocrResult.getText();
             
             if (ocrText == null || ocrText.trim().isEmpty()) {
                 response.put("success", false);
@@ -76,14 +131,38 @@ public class InvoiceController {
 
             // Step 2: Extract invoice data using Ollama AI service
             logger.info("Starting invoice data extraction for file: {}", filename);
-            OllamaService.InvoiceExtractionResult result = ollamaService.processInvoice(ocrText, filename);
+            OllamaService.InvoiceExtractionResult result = vendorTemplateService.processInvoice(ocrText, filename);
+            
+            // Incomplete extraction from fast-pass text: recognise again with the standard pass.
+            // Failed extractions (model unavailable or overloaded) would not improve with better text
+            boolean escalated = false;
+            if (result.isSuccess() && ocrService.shouldEscalate(ocrResult, result.getConfidence())) {
+                logger.info("Extraction confidence {} for file {}, recognising it again with the standard pass",
+                           result.getConfidence(), filename);
+                OcrResult retriedOcr = ocrService.performOcrWithDetails(file, language, OcrResult.OcrPass.STANDARD);
+                if (retriedOcr.getText() != null && !retriedOcr.getText().trim().isEmpty()) {
+                    OllamaService.InvoiceExtractionResult retried = vendorTemplateService.processInvoice(retriedOcr.getText(), filename);
+                    if (retried.isSuccess() && retried.getConfidence() > result.getConfidence()) {
+                        ocrResult = retriedOcr;
+                        ocrText = retriedOcr.getText();
+                        result = retried;
+                        escalated = true;
+                    }
+                }
+            }
             
             // Build response
             response.put("success", result.isSuccess());
             response.put("filename", filename);
+            response.put("ocrEscalated", escalated);
             response.put("ocrTextLength", ocrText.length());
+            response.put("extractionMethod", ocrResult.getExtractionMethod());
+            response.put("ocrTiming", buildOcrTiming(ocrResult));
             response.put("confidence", result.getConfidence());
             response.put("invoiceData", result.getInvoiceData());
+            if (result.getPrompt() != null) {
+                response.put("promptTokens", result.getPrompt().toMap());
+            }
             
             if (!result.isSuccess() && result.getErrorMessage() != null) {
                 response.put("error", result.getErrorMessage());
@@ -102,6 +181,119 @@ public class InvoiceController {
         }
     }
 
+    /**
+     * Processes an uploaded document and streams the extraction as server-sent events:
+     * an {@code ocr} event once the text is recognised, a {@code field} event for every invoice field
+     * as soon as the model has generated it, and a final {@code complete} (or {@code error}) event
+     * with the same content as {@code /process}.
+     * 
+     * @param file The uploaded document file (PDF, image, etc.)
+     * @param language OCR language (optional, defaults to "eng")
+     * @return Event stream with the extraction progress
+     */
+    @PostMapping(value = "/process-stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter processInvoiceStreaming(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "language", defaultValue = "eng") String language) {
+        // Times out with spring.mvc.async.request-timeout, like the other document endpoints
+        SseEmitter emitter = new SseEmitter();
+        try {
+            requestExecutor.execute(() -> processInvoiceStreamingBlocking(file, language, emitter));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected streaming document request, request queue is full");
+            sendErrorEvent(emitter, "Server is busy, please retry later");
+        }
+        return emitter;
+    }
+
+    private void processInvoiceStreamingBlocking(MultipartFile file, String language, SseEmitter emitter) {
+        try {
+            if (file.isEmpty()) {
+                sendErrorEvent(emitter, "No file uploaded");
+                return;
+            }
+
+            String filename = file.getOriginalFilename();
+            logger.info("Processing invoice file with streaming extraction: {} (size: {} bytes)", filename, file.getSize());
+
+            OcrResult ocrResult = recognise(file, language);
+            String ocrText = ocrResult.getText();
+            if (ocrText == null || ocrText.trim().isEmpty()) {
+                sendErrorEvent(emitter, "No text could be extracted from the document");
+                return;
+            }
+
+            Map<String, Object> ocrEvent = new HashMap<>();
+            ocrEvent.put("filename", filename);
+            ocrEvent.put("ocrTextLength", ocrText.length());
+            ocrEvent.put("extractionMethod", ocrResult.getExtractionMethod());
+            ocrEvent.put("ocrTiming", buildOcrTiming(ocrResult));
+            emitter.send(SseEmitter.event().name("ocr").data(ocrEvent, MediaType.APPLICATION_JSON));
+
+            // A client that went away fails the send, which ends the generation as well
+            OllamaService.InvoiceExtractionResult result = vendorTemplateService.processInvoiceStreaming(ocrText, filename,
+                    (name, value) -> {
+                        Map<String, Object> fieldEvent = new HashMap<>();
+                        fieldEvent.put("name", name);
+                        fieldEvent.put("value", value);
+                        try {
+                            emitter.send(SseEmitter.event().name("field").data(fieldEvent, MediaType.APPLICATION_JSON));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", result.isSuccess());
+            response.put("filename", filename);
+            response.put("ocrTextLength", ocrText.length());
+            response.put("extractionMethod", ocrResult.getExtractionMethod());
+            response.put("confidence", result.getConfidence());
+            response.put("invoiceData", result.getInvoiceData());
+            if (result.getPrompt() != null) {
+                response.put("promptTokens", result.getPrompt().toMap());
+            }
+            if (!result.isSuccess() && result.getErrorMessage() != null) {
+                response.put("error", result.getErrorMessage());
+            }
+            emitter.send(SseEmitter.event().name("complete").data(response, MediaType.APPLICATION_JSON));
+            emitter.complete();
+
+            logger.info("Streamed invoice file: {} with confidence: {}", filename, result.getConfidence());
+
+        } catch (Exception e) {
+            logger.error("Error streaming invoice file: {}", e.getMessage(), e);
+            sendErrorEvent(emitter, "Processing failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recognises an upload, retrying with the standard pass when the fast pass found no text at all.
+     */
+    private OcrResult recognise(MultipartFile file, String language) throws IOException, TesseractException {
+        OcrResult ocrResult = ocrService.performOcrWithDetails(file, language);
+        if (ocrService.shouldEscalateEmptyText(ocrResult)) {
+            logger.info("No text found in file {} by the fast pass, recognising it again with the standard pass",
+                       file.getOriginalFilename());
+            ocrResult = ocrService.performOcrWithDetails(file, language, OcrResult.OcrPass.STANDARD);
+        }
+        return ocrResult;
+    }
+
+    private void sendErrorEvent(SseEmitter emitter, String error) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", error);
+        try {
+            emitter.send(SseEmitter.event().name("error").data(response, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client is gone or the emitter already completed
+            emitter.completeWithError(e);
+        }
+    }
+
     /**
      * Processes an uploaded document and generates an Excel file.
      * 
@@ -111,10 +303,14 @@ public class InvoiceController {
      * @return JSON response with processing result and Excel file path
      */
     @PostMapping(value = "/process-to-excel", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> processInvoiceToExcel(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processInvoiceToExcel(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "language", defaultValue = "eng") String language,
             @RequestParam(value = "outputPath", required = false) String outputPath) {
+        return submit(() -> processInvoiceToExcelBlocking(file, language, outputPath));
+    }
+
+    private ResponseEntity<Map<String, Object>> processInvoiceToExcelBlocking(MultipartFile file, String language, String outputPath) {
         
         Map<String, Object> response = new HashMap<>();
         
@@ -129,7 +325,7 @@ public class InvoiceController {
             logger.info("Processing invoice file to Excel: {}", filename);
 
             // Step 1: Perform OCR
-            String ocrText = ocrService.performOcr(file, language);
+            String ocrText = recognise(file, language).getText();
             
             if (ocrText == null || ocrText.trim().isEmpty()) {
                 response.put("success", false);
@@ -138,7 +334,7 @@ public class InvoiceController {
             }
 
             // Step 2: Extract invoice data
-            OllamaService.InvoiceExtractionResult result = ollamaService.processInvoice(ocrText, filename);
+            OllamaService.InvoiceExtractionResult result = vendorTemplateService.processInvoice(ocrText, filename);
             
             if (!result.isSuccess()) {
                 response.put("success", false);
@@ -165,6 +361,9 @@ public class InvoiceController {
             response.put("excelPath", excelPath);
             response.put("confidence", result.getConfidence());
             response.put("invoiceData", result.getInvoiceData());
+            if (result.getPrompt() != null) {
+                response.put("promptTokens", result.getPrompt().toMap());
+            }
 
             logger.info("Successfully processed invoice file to Excel: {} -> {}", filename, excelPath);
             
@@ -187,13 +386,16 @@ public class InvoiceController {
      * @return JSON response with processing result and Excel file path
      */
     @PostMapping(value = "/process-batch-to-excel", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> processBatchInvoicesToExcel(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processBatchInvoicesToExcel(
             @RequestParam("files") MultipartFile[] files,
             @RequestParam(value = "language", defaultValue = "eng") String language,
             @RequestParam(value = "outputPath", required = false) String outputPath) {
+        return submit(() -> processBatchInvoicesToExcelBlocking(files, language, outputPath));
+    }
+
+    private ResponseEntity<Map<String, Object>> processBatchInvoicesToExcelBlocking(MultipartFile[] files, String language, String outputPath) {
         
         Map<String, Object> response = new HashMap<>();
-        List<InvoiceData> allInvoiceData = new ArrayList<>();
         List<String> processedFiles = new ArrayList<>();
         List<String> failedFiles = new ArrayList<>();
         
@@ -206,41 +408,17 @@ public class InvoiceController {
 
             logger.info("Processing batch of {} files for consolidated Excel", files.length);
 
-            // Process each file
-            for (MultipartFile file : files) {
-                if (file.isEmpty()) {
-                    failedFiles.add(file.getOriginalFilename() + " (empty file)");
-                    continue;
-                }
-
-                try {
-                    String filename = file.getOriginalFilename();
-                    logger.info("Processing file {} in batch", filename);
-
-                    // Step 1: Perform OCR
-                    String ocrText = ocrService.performOcr(file, language);
-                    
-                    if (ocrText == null || ocrText.trim().isEmpty()) {
-                        failedFiles.add(filename + " (no text extracted)");
-                        continue;
-                    }
+            // Steps 1 and 2: OCR and invoice extraction, overlapping across files
+            List<InvoiceData> allInvoiceData;
+            try (StagedBatch batch = StagedBatch.stage(files)) {
+                allInvoiceData = invoicePipelineService.extractInvoices(batch, language, null);
 
-                    // Step 2: Extract invoice data
-                    OllamaService.InvoiceExtractionResult result = ollamaService.processInvoice(ocrText, filename);
-                    
-                    if (result.isSuccess() && result.getInvoiceData() != null) {
-                        // Ensure source filename is set
-                        result.getInvoiceData().setSourceFilename(filename);
-                        allInvoiceData.add(result.getInvoiceData());
-                        processedFiles.add(filename);
-                        logger.info("Successfully processed file: {}", filename);
+                for (OcrProgressInfo file : batch.getFiles()) {
+                    if (file.getStage() == OcrProgressInfo.Stage.FAILED) {
+                        failedFiles.add(file.getFilename() + " (" + file.getError() + ")");
                     } else {
-                        failedFiles.add(filename + " (extraction failed: " + result.getErrorMessage() + ")");
+                        processedFiles.add(file.getFilename());
                     }
-
-                } catch (Exception e) {
-                    logger.error("Error processing file {}: {}", file.getOriginalFilename(), e.getMessage());
-                    failedFiles.add(file.getOriginalFilename() + " (processing error: " + e.getMessage() + ")");
                 }
             }
 
@@ -297,7 +475,8 @@ public class InvoiceController {
     }
 
     /**
-     * Health check endpoint.
+     * Health check endpoint. Served from the last background probe of the Ollama server,
+     * so frequent load balancer checks cost no model capacity.
      * 
      * @return JSON response with service status
      */
@@ -306,17 +485,21 @@ public class InvoiceController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            boolean ollamaHealthy = ollamaService.isOllamaHealthy();
+            OllamaHealthMonitor.Status ollamaStatus = ollamaHealthMonitor.getStatus();
             
             response.put("status", "ok");
-            response.put("ollamaConnected", ollamaHealthy);
+            response.put("ollamaConnected", ollamaStatus.isReachable());
+            response.put("ollamaModelAvailable", ollamaStatus.isModelAvailable());
             response.put("ollamaUrl", ollamaService.getOllamaApiBaseUrl());
+            response.put("ollamaHealth", ollamaStatus.toMap());
             
-            if (ollamaHealthy) {
+            if (ollamaStatus.isHealthy()) {
                 return ResponseEntity.ok(response);
             } else {
                 response.put("status", "warning");
-                response.put("message", "Ollama service is not responding");
+                response.put("message", ollamaStatus.isReachable()
+                        ? "Ollama model is not installed"
+                        : "Ollama service is not responding");
                 return ResponseEntity.ok(response);
             }
             
@@ -328,6 +511,25 @@ public class InvoiceController {
         }
     }
 
+    /**
+     * Runtime statistics for the processing subsystems.
+     * 
+     * @return JSON response with OCR engine pool usage, wait times and cache hit rates
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("ocrEnginePool", enginePool.getStats());
+        response.put("ocrResultCache", ocrResultCache.getStats());
+        response.put("extractionCache", ollamaService.getExtractionCacheStats());
+        response.put("ollamaRequestSlots", ollamaService.getRequestSlotStats());
+        response.put("promptTokens", ollamaService.getPromptTokenStats());
+        response.put("ruleExtraction", ollamaService.getRuleExtractionStats());
+        response.put("vendorTemplates", vendorTemplateService.getStats());
+        response.put("timestamp", java.time.Instant.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Root endpoint that provides information about available endpoints.
      * 
@@ -343,10 +545,16 @@ public class InvoiceController {
         Map<String, String> endpoints = new HashMap<>();
         endpoints.put("GET /api/invoice", "This endpoint - API information");
         endpoints.put("GET /api/invoice/health", "Health check");
+        endpoints.put("GET /api/invoice/stats", "Processing statistics (OCR engine pool, OCR and extraction caches, vendor templates)");
         endpoints.put("POST /api/invoice/process", "Process invoice from uploaded file");
+        endpoints.put("POST /api/invoice/process-stream", "Process invoice, streaming extracted fields as server-sent events");
         endpoints.put("POST /api/invoice/process-to-excel", "Process invoice and generate Excel file");
         endpoints.put("POST /api/invoice/ocr-only", "Extract text using OCR only");
         endpoints.put("GET /api/invoice/history", "Get recent invoice processing history");
+        endpoints.put("POST /api/invoice/jobs", "Submit a batch of documents as an asynchronous job");
+        endpoints.put("GET /api/invoice/jobs/{jobId}", "Batch job progress with per-file stage and ETA");
+        endpoints.put("GET /api/invoice/jobs/{jobId}/results", "Invoices extracted by a batch job");
+        endpoints.put("GET /api/invoice/jobs/{jobId}/excel", "Download the Excel file of a completed batch job");
         
         response.put("endpoints", endpoints);
         response.put("timestamp", java.time.Instant.now().toString());
@@ -375,9 +583,13 @@ public class InvoiceController {
      * @return JSON response with extracted text
      */
     @PostMapping(value = "/ocr-only", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> extractTextOnly(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> extractTextOnly(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "language", defaultValue = "eng") String language) {
+        return submit(() -> extractTextOnlyBlocking(file, language));
+    }
+
+    private ResponseEntity<Map<String, Object>> extractTextOnlyBlocking(MultipartFile file, String language) {
         
         Map<String, Object> response = new HashMap<>();
         
@@ -391,12 +603,15 @@ public class InvoiceController {
             String filename = file.getOriginalFilename();
             logger.info("Performing OCR only for file: {}", filename);
 
-            String ocrText = ocrService.performOcr(file, language);
+            OcrResult ocrResult = ocrService.performOcrWithDetails(file, language);
+            String ocrText = ocrResult.getText();
             
             response.put("success", true);
             response.put("filename", filename);
             response.put("text", ocrText);
             response.put("textLength", ocrText != null ? ocrText.length() : 0);
+            response.put("extractionMethod", ocrResult.getExtractionMethod());
+            response.put("ocrTiming", buildOcrTiming(ocrResult));
 
             return ResponseEntity.ok(response);
 
@@ -408,6 +623,37 @@ public class InvoiceController {
         }
     }
 
+    /**
+     * Builds the whole-document and per-page OCR latency report for a response.
+     */
+    private Map<String, Object> buildOcrTiming(OcrResult ocrResult) {
+        Map<String, Object> timing = new HashMap<>();
+        timing.put("durationMs", ocrResult.getDurationMs());
+        timing.put("fromCache", ocrResult.isFromCache());
+        timing.put("pageCount", ocrResult.getPageCount());
+        timing.put("meanConfidence", ocrResult.getMeanConfidence());
+        
+        List<Map<String, Object>> pages = new ArrayList<>();
+        for (OcrResult.PageResult page : ocrResult.getPages()) {
+            Map<String, Object> pageTiming = new HashMap<>();
+            pageTiming.put("page", page.getPageNumber());
+            pageTiming.put("extractionMethod", page.getExtractionMethod());
+            pageTiming.put("dpi", page.getDpi());
+            pageTiming.put("renderMs", page.getRenderMs());
+            pageTiming.put("preprocessMs", page.getPreprocessMs());
+            pageTiming.put("preprocessStages", page.getPreprocessStageMs());
+            pageTiming.put("regions", page.getRegionCount());
+            pageTiming.put("confidence", page.getConfidence());
+            pageTiming.put("pass", page.getPass());
+            pageTiming.put("escalated", page.isEscalated());
+            pageTiming.put("recognitionMs", page.getRecognitionMs());
+            pageTiming.put("durationMs", page.getDurationMs());
+            pages.add(pageTiming);
+        }
+        timing.put("pages", pages);
+        return timing;
+    }
+
     /**
      * Calculates summary statistics for a list of invoice data.
      */
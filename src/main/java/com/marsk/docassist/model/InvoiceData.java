@@ -31,6 +31,23 @@ public class InvoiceData {
     public InvoiceData() {
     }
 
+    // Copy constructor
+    public InvoiceData(InvoiceData other) {
+        this.invoiceNumber = other.invoiceNumber;
+        this.invoiceDate = other.invoiceDate;
+        this.vendorName = other.vendorName;
+        this.vendorVatNumber = other.vendorVatNumber;
+        this.clientName = other.clientName;
+        this.clientVatNumber = other.clientVatNumber;
+        this.netAmount = other.netAmount;
+        this.vatAmount = other.vatAmount;
+        this.totalAmount = other.totalAmount;
+        this.currency = other.currency;
+        this.description = other.description;
+        this.sourceFilename = other.sourceFilename;
+        this.processingNotes = other.processingNotes;
+    }
+
     // Getters and setters
     public String getInvoiceNumber() {
         return invoiceNumber;
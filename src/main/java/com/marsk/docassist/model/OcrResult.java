@@ -0,0 +1,367 @@
+package com.marsk.docassist.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of an OCR run over a whole document, with the per-page results
+ * and the timings needed to see where the processing time went.
+ */
+public class OcrResult {
+
+    /**
+     * How the text of a page (or of the whole document) was obtained.
+     */
+    public enum ExtractionMethod {
+        /** Read from the PDF's embedded text layer, no OCR. */
+        TEXT_LAYER,
+        /** Rendered and recognised with Tesseract. */
+        OCR,
+        /** A mix of text-layer and OCR pages. */
+        HYBRID
+    }
+
+    /**
+     * Recognition settings a page was processed with.
+     */
+    public enum OcrPass {
+        /** Low fixed resolution, no preprocessing, single-block segmentation. */
+        FAST,
+        /** The configured resolution, preprocessing chain and automatic page segmentation. */
+        STANDARD
+    }
+
+    private String text;
+    private List<PageResult> pages = new ArrayList<>();
+    private long durationMs;
+    private boolean fromCache;
+
+    // Default constructor
+    public OcrResult() {
+    }
+
+    public OcrResult(String text, List<PageResult> pages, long durationMs) {
+        this.text = text;
+        this.pages = pages;
+        this.durationMs = durationMs;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public List<PageResult> getPages() {
+        return pages;
+    }
+
+    public void setPages(List<PageResult> pages) {
+        this.pages = pages;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    /**
+     * True when the text was served from the OCR result cache instead of being extracted again.
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public void setFromCache(boolean fromCache) {
+        this.fromCache = fromCache;
+    }
+
+    public int getPageCount() {
+        return pages != null ? pages.size() : 0;
+    }
+
+    /**
+     * True if any page kept the result of the fast pass, so a standard pass could still improve it.
+     */
+    public boolean isFastPassUsed() {
+        return pages != null && pages.stream().anyMatch(p -> p.getPass() == OcrPass.FAST);
+    }
+
+    /**
+     * Mean confidence (0-100) of all recognised words of the document, or -1 if no page
+     * carries word-level results (text-layer pages and results restored from the database).
+     */
+    public float getMeanConfidence() {
+        if (pages == null) {
+            return -1;
+        }
+        double sum = 0;
+        int count = 0;
+        for (PageResult page : pages) {
+            for (Word word : page.getWords()) {
+                sum += word.getConfidence();
+                count++;
+            }
+        }
+        return count > 0 ? (float) (sum / count) : -1;
+    }
+
+    /**
+     * Summarises the per-page extraction methods for the whole document.
+     */
+    public ExtractionMethod getExtractionMethod() {
+        if (pages == null || pages.isEmpty()) {
+            return ExtractionMethod.OCR;
+        }
+        boolean anyTextLayer = pages.stream().anyMatch(p -> p.getExtractionMethod() == ExtractionMethod.TEXT_LAYER);
+        boolean anyOcr = pages.stream().anyMatch(p -> p.getExtractionMethod() != ExtractionMethod.TEXT_LAYER);
+        if (anyTextLayer && anyOcr) {
+            return ExtractionMethod.HYBRID;
+        }
+        return anyTextLayer ? ExtractionMethod.TEXT_LAYER : ExtractionMethod.OCR;
+    }
+
+    /**
+     * A recognised word with its confidence (0-100) and bounding box in page pixels.
+     */
+    public static class Word {
+        private final String text;
+        private final float confidence;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        public Word(String text, float confidence, int x, int y, int width, int height) {
+            this.text = text;
+            this.confidence = confidence;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    /**
+     * OCR outcome and stage timings for a single page.
+     */
+    public static class PageResult {
+        private int pageNumber;
+        private String text;
+        private ExtractionMethod extractionMethod = ExtractionMethod.OCR;
+        private long renderMs;
+        private long preprocessMs;
+        private long recognitionMs;
+        private int dpi;
+        private Map<String, Long> preprocessStageMs = Collections.emptyMap();
+        private int regionCount;
+        private List<Word> words = Collections.emptyList();
+        private OcrPass pass;
+        private boolean escalated;
+        private float recordedConfidence = -1;
+
+        public PageResult() {
+        }
+
+        public PageResult(int pageNumber, String text) {
+            this.pageNumber = pageNumber;
+            this.text = text;
+        }
+
+        /**
+         * Copies a page result; the word list is shared, since words are immutable.
+         */
+        public PageResult(PageResult other) {
+            this.pageNumber = other.pageNumber;
+            this.text = other.text;
+            this.extractionMethod = other.extractionMethod;
+            this.renderMs = other.renderMs;
+            this.preprocessMs = other.preprocessMs;
+            this.recognitionMs = other.recognitionMs;
+            this.dpi = other.dpi;
+            this.preprocessStageMs = new LinkedHashMap<>(other.preprocessStageMs);
+            this.regionCount = other.regionCount;
+            this.words = other.words;
+            this.pass = other.pass;
+            this.escalated = other.escalated;
+            this.recordedConfidence = other.recordedConfidence;
+        }
+
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public void setPageNumber(int pageNumber) {
+            this.pageNumber = pageNumber;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public ExtractionMethod getExtractionMethod() {
+            return extractionMethod;
+        }
+
+        public void setExtractionMethod(ExtractionMethod extractionMethod) {
+            this.extractionMethod = extractionMethod;
+        }
+
+        public long getRenderMs() {
+            return renderMs;
+        }
+
+        public void setRenderMs(long renderMs) {
+            this.renderMs = renderMs;
+        }
+
+        public long getPreprocessMs() {
+            return preprocessMs;
+        }
+
+        public void setPreprocessMs(long preprocessMs) {
+            this.preprocessMs = preprocessMs;
+        }
+
+        /**
+         * Milliseconds spent in each preprocessing stage, in execution order; empty if the page was not preprocessed.
+         */
+        public Map<String, Long> getPreprocessStageMs() {
+            return preprocessStageMs;
+        }
+
+        public void setPreprocessStageMs(Map<String, Long> preprocessStageMs) {
+            this.preprocessStageMs = preprocessStageMs;
+        }
+
+        /**
+         * Recognised words in reading order; empty for text-layer pages.
+         */
+        public List<Word> getWords() {
+            return words;
+        }
+
+        public void setWords(List<Word> words) {
+            this.words = words;
+        }
+
+        /**
+         * Mean confidence (0-100) of the recognised words of this page; for pages without word-level
+         * results the recorded confidence, such as of a page restored from the database, or -1.
+         */
+        public float getConfidence() {
+            if (words.isEmpty()) {
+                return recordedConfidence;
+            }
+            double sum = 0;
+            for (Word word : words) {
+                sum += word.getConfidence();
+            }
+            return (float) (sum / words.size());
+        }
+
+        /**
+         * Records the confidence of a page whose words are not kept.
+         */
+        public void setConfidence(float confidence) {
+            this.recordedConfidence = confidence;
+        }
+
+        /**
+         * Pass the page text comes from, or null for text-layer pages.
+         */
+        public OcrPass getPass() {
+            return pass;
+        }
+
+        public void setPass(OcrPass pass) {
+            this.pass = pass;
+        }
+
+        /**
+         * True if the fast pass was not confident enough and the page was recognised again;
+         * the timings then include both passes.
+         */
+        public boolean isEscalated() {
+            return escalated;
+        }
+
+        public void setEscalated(boolean escalated) {
+            this.escalated = escalated;
+        }
+
+        /**
+         * Number of page regions that were recognised, or 0 if the whole page was recognised.
+         */
+        public int getRegionCount() {
+            return regionCount;
+        }
+
+        public void setRegionCount(int regionCount) {
+            this.regionCount = regionCount;
+        }
+
+        /**
+         * Time spent obtaining the page text: Tesseract recognition for OCR pages,
+         * text-layer extraction for {@link ExtractionMethod#TEXT_LAYER} pages.
+         */
+        public long getRecognitionMs() {
+            return recognitionMs;
+        }
+
+        public void setRecognitionMs(long recognitionMs) {
+            this.recognitionMs = recognitionMs;
+        }
+
+        public long getDurationMs() {
+            return renderMs + preprocessMs + recognitionMs;
+        }
+
+        /**
+         * Resolution the page was rendered and recognised at, or 0 if the page was not rendered.
+         */
+        public int getDpi() {
+            return dpi;
+        }
+
+        public void setDpi(int dpi) {
+            this.dpi = dpi;
+        }
+    }
+}
@@ -7,13 +7,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 
 @Entity
-@Table(name = "ocr_documents")
+@Table(name = "ocr_documents", indexes = {
+    @Index(name = "idx_ocr_documents_content_hash", columnList = "content_hash")
+})
 public class OcrTextDocument {
 
     @Id
@@ -35,6 +38,15 @@ public class OcrTextDocument {
     @Column(nullable = false)
     private String languageUsed; // e.g., "eng", "ita"
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the uploaded bytes, used as OCR cache key
+
+    @Column(name = "ocr_profile")
+    private String ocrProfile; // OCR settings the text was produced with
+
+    @Column(name = "page_metadata", columnDefinition = "TEXT")
+    private String pageMetadata; // JSON of the per-page method, pass, DPI, confidence and timings
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -102,6 +114,30 @@ public class OcrTextDocument {
         this.languageUsed = languageUsed;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getOcrProfile() {
+        return ocrProfile;
+    }
+
+    public void setOcrProfile(String ocrProfile) {
+        this.ocrProfile = ocrProfile;
+    }
+
+    public String getPageMetadata() {
+        return pageMetadata;
+    }
+
+    public void setPageMetadata(String pageMetadata) {
+        this.pageMetadata = pageMetadata;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,59 @@
+package com.marsk.docassist.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+/**
+ * Where a field sits in a vendor's invoice layout: the normalised text of the label before
+ * the value, and whether the value follows it on the same line (offset 0) or on the next one (offset 1).
+ */
+@Embeddable
+public class TemplateFieldAnchor {
+
+    @Column(name = "field_name", nullable = false, length = 40)
+    private String fieldName;
+
+    @Column(name = "anchor_text", nullable = false)
+    private String anchorText;
+
+    @Column(name = "line_offset", nullable = false)
+    private int lineOffset;
+
+    public TemplateFieldAnchor() {
+    }
+
+    public TemplateFieldAnchor(String fieldName, String anchorText, int lineOffset) {
+        this.fieldName = fieldName;
+        this.anchorText = anchorText;
+        this.lineOffset = lineOffset;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public void setFieldName(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String getAnchorText() {
+        return anchorText;
+    }
+
+    public void setAnchorText(String anchorText) {
+        this.anchorText = anchorText;
+    }
+
+    public int getLineOffset() {
+        return lineOffset;
+    }
+
+    public void setLineOffset(int lineOffset) {
+        this.lineOffset = lineOffset;
+    }
+
+    @Override
+    public String toString() {
+        return fieldName + "@'" + anchorText + "'+" + lineOffset;
+    }
+}
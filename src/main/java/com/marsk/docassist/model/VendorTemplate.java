@@ -0,0 +1,163 @@
+package com.marsk.docassist.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+
+/**
+ * Extraction template of one vendor's invoice layout, learned from a successful model extraction.
+ * Found by the vendor's VAT number, or by the layout fingerprint of the letterhead when no VAT
+ * number can be read. Values that never change for a vendor are stored as they are; the others
+ * as anchors into the OCR text.
+ */
+@Entity
+@Table(name = "vendor_templates", indexes = {
+    @Index(name = "idx_vendor_templates_vat_key", columnList = "vendor_vat_key"),
+    @Index(name = "idx_vendor_templates_fingerprint", columnList = "layout_fingerprint")
+})
+public class VendorTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "vendor_vat_key", length = 20)
+    private String vendorVatKey; // Digits of the vendor VAT number, without country prefix
+
+    @Column(name = "layout_fingerprint", nullable = false, length = 64)
+    private String layoutFingerprint; // SHA-256 of the normalised letterhead lines
+
+    @Column
+    private String vendorName;
+
+    @Column
+    private String vendorVatNumber;
+
+    @Column(length = 3)
+    private String currency;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "vendor_template_anchors", joinColumns = @JoinColumn(name = "template_id"))
+    private List<TemplateFieldAnchor> anchors = new ArrayList<>();
+
+    @Column(name = "hit_count", nullable = false)
+    private long hitCount;
+
+    @Column(name = "miss_count", nullable = false)
+    private long missCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public VendorTemplate() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getVendorVatKey() {
+        return vendorVatKey;
+    }
+
+    public void setVendorVatKey(String vendorVatKey) {
+        this.vendorVatKey = vendorVatKey;
+    }
+
+    public String getLayoutFingerprint() {
+        return layoutFingerprint;
+    }
+
+    public void setLayoutFingerprint(String layoutFingerprint) {
+        this.layoutFingerprint = layoutFingerprint;
+    }
+
+    public String getVendorName() {
+        return vendorName;
+    }
+
+    public void setVendorName(String vendorName) {
+        this.vendorName = vendorName;
+    }
+
+    public String getVendorVatNumber() {
+        return vendorVatNumber;
+    }
+
+    public void setVendorVatNumber(String vendorVatNumber) {
+        this.vendorVatNumber = vendorVatNumber;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public List<TemplateFieldAnchor> getAnchors() {
+        return anchors;
+    }
+
+    public void setAnchors(List<TemplateFieldAnchor> anchors) {
+        this.anchors = anchors;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
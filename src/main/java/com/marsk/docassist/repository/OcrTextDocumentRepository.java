@@ -1,6 +1,7 @@
 package com.marsk.docassist.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -11,4 +12,6 @@ import com.marsk.docassist.model.OcrTextDocument;
 public interface OcrTextDocumentRepository extends JpaRepository<OcrTextDocument, Long> {
     List<OcrTextDocument> findByOriginalFilenameContainingIgnoreCase(String filename);
     List<OcrTextDocument> findAllByOrderByCreatedAtDesc();
+    Optional<OcrTextDocument> findFirstByContentHashAndLanguageUsedAndOcrProfileOrderByCreatedAtDesc(
+            String contentHash, String languageUsed, String ocrProfile);
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.marsk.docassist.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.marsk.docassist.model.VendorTemplate;
+
+@Repository
+public interface VendorTemplateRepository extends JpaRepository<VendorTemplate, Long> {
+    Optional<VendorTemplate> findFirstByVendorVatKeyOrderByUpdatedAtDesc(String vendorVatKey);
+    Optional<VendorTemplate> findFirstByLayoutFingerprintOrderByUpdatedAtDesc(String layoutFingerprint);
+
+    @Transactional
+    @Modifying
+    @Query("update VendorTemplate t set t.hitCount = t.hitCount + 1 where t.id = :id")
+    void incrementHits(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update VendorTemplate t set t.missCount = t.missCount + 1 where t.id = :id")
+    void incrementMisses(@Param("id") Long id);
+}
@@ -0,0 +1,165 @@
+package com.marsk.docassist.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the model server with AIMD (additive increase,
+ * multiplicative decrease). Every call that completes within the latency threshold raises
+ * the limit by roughly one per limit's worth of calls; a slow call or an overload failure cuts
+ * it by the backoff ratio. Callers beyond the limit wait in a bounded queue, and are rejected
+ * immediately once the queue is full, so an overloaded server is not buried under requests
+ * that would all run into the timeout.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxWaiting;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition slotFreed = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong overloads = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile long averageLatencyNanos;
+
+    /**
+     * @param initialLimit Concurrent calls allowed before any latency has been observed
+     * @param minLimit Lowest limit the backoff may reach
+     * @param maxLimit Highest limit the increase may reach
+     * @param maxWaiting Callers that may wait for a slot; further callers are rejected
+     * @param latencyThresholdNanos Calls slower than this count as an overload signal
+     * @param backoffRatio Factor the limit is multiplied with on overload, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxWaiting,
+                                      long latencyThresholdNanos, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxWaiting = maxWaiting;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot, waiting up to the timeout for one to become free.
+     *
+     * @return false if the queue is full or no slot became free in time
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < currentLimit()) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= maxWaiting) {
+                rejected.incrementAndGet();
+                return false;
+            }
+
+            long remainingNanos = unit.toNanos(timeout);
+            waiting++;
+            try {
+                while (inFlight >= currentLimit()) {
+                    if (remainingNanos <= 0) {
+                        timeouts.incrementAndGet();
+                        return false;
+                    }
+                    remainingNanos = slotFreed.awaitNanos(remainingNanos);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot and adjusts the limit from the outcome of the call.
+     *
+     * @param latencyNanos How long the call took
+     * @param overloaded True if the call failed in a way that indicates an overloaded or unreachable server
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloaded || latencyNanos > latencyThresholdNanos) {
+                overloads.incrementAndGet();
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            completed.incrementAndGet();
+            averageLatencyNanos = averageLatencyNanos == 0
+                    ? latencyNanos
+                    : (long) (averageLatencyNanos * 0.8 + latencyNanos * 0.2);
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot without adjusting the limit, for calls that never reached the server.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.lock();
+        try {
+            stats.put("limit", currentLimit());
+            stats.put("inFlight", inFlight);
+            stats.put("waiting", waiting);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("completed", completed.get());
+        stats.put("overloads", overloads.get());
+        stats.put("rejected", rejected.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("averageLatencyMs", TimeUnit.NANOSECONDS.toMillis(averageLatencyNanos));
+        return stats;
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+}
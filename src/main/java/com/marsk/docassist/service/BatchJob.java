@@ -0,0 +1,145 @@
+package com.marsk.docassist.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.marsk.docassist.model.InvoiceData;
+
+/**
+ * State of an asynchronous batch job: the staged files, their progress,
+ * the extracted invoices and the consolidated Excel file once it is written.
+ */
+public class BatchJob {
+
+    /**
+     * Lifecycle of the job as a whole.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String language;
+    private final String excelFileName;
+    private final StagedBatch batch;
+    private final List<InvoiceData> results = Collections.synchronizedList(new ArrayList<>());
+    private final Instant submittedAt = Instant.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public BatchJob(String id, String language, String excelFileName, StagedBatch batch) {
+        this.id = id;
+        this.language = language;
+        this.excelFileName = excelFileName;
+        this.batch = batch;
+    }
+
+    public void markRunning() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    public void markCompleted() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    /**
+     * Overall completion from 0 to 100, weighting every file by the stage it has reached.
+     */
+    public int getPercentComplete() {
+        if (isFinished()) {
+            return 100;
+        }
+        List<OcrProgressInfo> files = batch.getFiles();
+        if (files.isEmpty()) {
+            return 0;
+        }
+        double progress = files.stream().mapToDouble(file -> file.getStage().getProgress()).sum();
+        return (int) Math.floor(progress * 100 / files.size());
+    }
+
+    /**
+     * Estimated seconds until the job finishes, extrapolated from the progress made so far.
+     */
+    public Long getEtaSeconds() {
+        if (isFinished()) {
+            return 0L;
+        }
+        int percent = getPercentComplete();
+        if (startedAt == null || percent <= 0) {
+            return null;
+        }
+        long elapsedMs = Duration.between(startedAt, Instant.now()).toMillis();
+        return elapsedMs * (100 - percent) / percent / 1000;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Name of the consolidated Excel file, relative to the configured output directory.
+     */
+    public String getExcelFileName() {
+        return excelFileName;
+    }
+
+    public StagedBatch getBatch() {
+        return batch;
+    }
+
+    public List<OcrProgressInfo> getFiles() {
+        return batch.getFiles();
+    }
+
+    public List<InvoiceData> getResults() {
+        synchronized (results) {
+            return new ArrayList<>(results);
+        }
+    }
+
+    public void addResult(InvoiceData invoiceData) {
+        results.add(invoiceData);
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
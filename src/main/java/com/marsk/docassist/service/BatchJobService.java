@@ -0,0 +1,178 @@
+package com.marsk.docassist.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.marsk.docassist.config.BatchJobConfig;
+import com.marsk.docassist.model.InvoiceData;
+
+/**
+ * Runs batch invoice processing in the background.
+ * Uploads are staged to disk when the job is submitted, so the HTTP request returns
+ * immediately with a job ID; the OCR and extraction pipeline and the consolidated
+ * Excel export then run on the batch job executor while clients poll the job status.
+ */
+@Service
+public class BatchJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchJobService.class);
+
+    private final InvoicePipelineService invoicePipelineService;
+    private final ExcelService excelService;
+    private final ThreadPoolTaskExecutor batchJobExecutor;
+    private final BatchJobConfig batchJobConfig;
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+
+    public BatchJobService(InvoicePipelineService invoicePipelineService, ExcelService excelService,
+                           @Qualifier("batchJobExecutor") ThreadPoolTaskExecutor batchJobExecutor, BatchJobConfig batchJobConfig) {
+        this.invoicePipelineService = invoicePipelineService;
+        this.excelService = excelService;
+        this.batchJobExecutor = batchJobExecutor;
+        this.batchJobConfig = batchJobConfig;
+    }
+
+    /**
+     * Stages the uploaded files and queues a batch job for them.
+     *
+     * @param files The uploaded documents
+     * @param language OCR language
+     * @param outputPath Path of the consolidated Excel file within the output directory (optional)
+     * @return The queued job
+     * @throws IOException If the uploads cannot be staged
+     * @throws IllegalArgumentException If the output path points outside the output directory
+     * @throws BatchJobRejectedException If the job queue is full
+     */
+    public BatchJob submit(MultipartFile[] files, String language, String outputPath)
+            throws IOException, BatchJobRejectedException {
+        purgeExpiredJobs();
+
+        String jobId = UUID.randomUUID().toString();
+        String excelFileName = excelFileName(outputDirectory(), outputPath, "batch_" + jobId + ".xlsx");
+        StagedBatch batch = StagedBatch.stage(files);
+        BatchJob job = new BatchJob(jobId, language, excelFileName, batch);
+        jobs.put(jobId, job);
+
+        try {
+            batchJobExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(jobId);
+            batch.close();
+            throw new BatchJobRejectedException("Too many batch jobs are queued, please retry later", e);
+        }
+
+        logger.info("Queued batch job {} with {} files", jobId, files.length);
+        return job;
+    }
+
+    public Optional<BatchJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Location of a job's consolidated Excel file, which exists once the job has completed.
+     */
+    public Path getExcelFile(BatchJob job) {
+        return outputDirectory().resolve(job.getExcelFileName()).normalize();
+    }
+
+    private void run(BatchJob job) {
+        job.markRunning();
+        logger.info("Starting batch job {} with {} files", job.getId(), job.getFiles().size());
+
+        try (StagedBatch batch = job.getBatch()) {
+            List<InvoiceData> results = invoicePipelineService.extractInvoices(batch, job.getLanguage(), job::addResult);
+            if (results.isEmpty()) {
+                job.markFailed("No invoices could be processed successfully");
+                logger.warn("Batch job {} finished without any processed invoices", job.getId());
+                return;
+            }
+
+            Path excelFile = getExcelFile(job);
+            Files.createDirectories(excelFile.getParent());
+            excelService.createEnhancedExcelFile(results, excelFile.toString());
+
+            job.getFiles().stream()
+                    .filter(file -> file.getStage() == OcrProgressInfo.Stage.EXCEL)
+                    .forEach(file -> file.moveTo(OcrProgressInfo.Stage.DONE));
+            job.markCompleted();
+            logger.info("Batch job {} completed: {} invoices written to {}", job.getId(), results.size(), excelFile);
+
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Batch job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.getFiles().stream()
+                    .filter(file -> file.getStage() != OcrProgressInfo.Stage.DONE
+                            && file.getStage() != OcrProgressInfo.Stage.FAILED)
+                    .forEach(file -> file.fail("job failed: " + e.getMessage()));
+            job.markFailed("Batch processing failed: " + e.getMessage());
+        }
+    }
+
+    private Path outputDirectory() {
+        return Paths.get(batchJobConfig.getOutputDirectory()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Resolves a requested output path against the output directory, so that clients cannot
+     * write or later download files elsewhere on the server.
+     *
+     * @param outputDirectory Absolute, normalised output directory
+     * @param requested Requested path, relative to the output directory (optional)
+     * @param defaultName File name used when no path is requested
+     * @return The file name relative to the output directory
+     * @throws IllegalArgumentException If the path normalises to a location outside the output directory
+     */
+    static String excelFileName(Path outputDirectory, String requested, String defaultName) {
+        if (requested == null || requested.trim().isEmpty()) {
+            return defaultName;
+        }
+        Path resolved;
+        try {
+            resolved = outputDirectory.resolve(requested.trim()).normalize();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid output path: " + requested, e);
+        }
+        if (!resolved.startsWith(outputDirectory) || resolved.equals(outputDirectory)) {
+            throw new IllegalArgumentException("Output path must be a file inside the output directory: " + requested);
+        }
+        return outputDirectory.relativize(resolved).toString();
+    }
+
+    /**
+     * Forgets finished jobs older than the configured retention.
+     * Excel files already written stay in the output directory.
+     */
+    private void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(batchJobConfig.getRetentionMinutes()));
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    /**
+     * Thrown when a job cannot be queued because the executor is saturated.
+     */
+    public static class BatchJobRejectedException extends Exception {
+        public BatchJobRejectedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
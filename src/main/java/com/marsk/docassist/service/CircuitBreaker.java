@@ -0,0 +1,148 @@
+package com.marsk.docassist.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for calls to an external server.
+ * After a run of consecutive failures the circuit opens and calls fail immediately instead of
+ * waiting for the server's timeout; once the open interval has passed a single trial call is
+ * let through, and its outcome closes the circuit again or re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Admission of one call, handed back with its outcome so that only the trial call itself
+     * can end the trial.
+     */
+    public static final class Permit {
+        // 0 for calls let through by a closed circuit
+        private final long trial;
+
+        private Permit(long trial) {
+            this.trial = trial;
+        }
+
+        public boolean isTrial() {
+            return trial != 0;
+        }
+    }
+
+    private static final Permit CLOSED_PERMIT = new Permit(0);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long trials;
+    // Trial call currently running while half-open, 0 if none
+    private long activeTrial;
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong timesOpened = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+    }
+
+    /**
+     * Checks whether a call may go ahead. A caller that is allowed must report the outcome with
+     * {@link #recordSuccess(Permit)}, {@link #recordFailure(Permit)} or {@link #recordIgnored(Permit)}.
+     *
+     * @return The call's permit, or null if the circuit is open, or half-open with its trial call already running
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return CLOSED_PERMIT;
+        }
+        if (state == State.HALF_OPEN && activeTrial == 0) {
+            activeTrial = ++trials;
+            return new Permit(activeTrial);
+        }
+        rejectedCalls.incrementAndGet();
+        return null;
+    }
+
+    public synchronized void recordSuccess(Permit permit) {
+        consecutiveFailures = 0;
+        activeTrial = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure(Permit permit) {
+        endTrial(permit);
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                timesOpened.incrementAndGet();
+            }
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            // A trial still running belongs to the previous open interval
+            activeTrial = 0;
+        }
+    }
+
+    /**
+     * Reports a call that says nothing about the server's health, such as one that was never sent
+     * or whose response could not be parsed.
+     */
+    public synchronized void recordIgnored(Permit permit) {
+        endTrial(permit);
+    }
+
+    private void endTrial(Permit permit) {
+        if (permit.isTrial() && permit.trial == activeTrial) {
+            activeTrial = 0;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Seconds until an open circuit lets a trial call through, or 0 if it is not open.
+     */
+    public synchronized long getRetryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        long remaining = openNanos - (clock.getAsLong() - openedAt);
+        return remaining > 0 ? TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1) : 0;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", getState());
+        synchronized (this) {
+            stats.put("consecutiveFailures", consecutiveFailures);
+        }
+        stats.put("rejectedCalls", rejectedCalls.get());
+        stats.put("timesOpened", timesOpened.get());
+        return stats;
+    }
+}
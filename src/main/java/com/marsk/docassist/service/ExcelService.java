@@ -1,22 +1,36 @@
 package com.marsk.docassist.service;
 
+import com.marsk.docassist.config.ExcelConfig;
 import com.marsk.docassist.model.InvoiceData;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service for creating Excel files from invoice data.
  * Uses Apache POI to generate XLSX files with extracted invoice information.
+ * Large exports are written with a streaming workbook that keeps only a window
+ * of rows in memory and flushes the rest to a temporary file.
  */
 @Service
 public class ExcelService {
@@ -28,6 +42,37 @@ public class ExcelService {
         "Currency", "Description", "Processing Notes"
     };
 
+    private static final int DEFAULT_STREAMING_ROW_THRESHOLD = 1000;
+    private static final int DEFAULT_STREAMING_WINDOW_SIZE = 100;
+    private static final int MAX_COLUMN_WIDTH_CHARS = 80;
+
+    private static final String DATA_SHEET_NAME = "Invoice Data";
+    private static final String SUMMARY_SHEET_NAME = "Summary";
+    private static final String TOTALS_LABEL = "TOTALS:";
+    private static final int TOTALS_LABEL_COLUMN = 6;
+    private static final String TOTAL_INVOICES_LABEL = "Total Invoices:";
+    private static final String TOTAL_NET_LABEL = "Total Net Amount:";
+    private static final String TOTAL_VAT_LABEL = "Total VAT Amount:";
+    private static final String TOTAL_GROSS_LABEL = "Total Gross Amount:";
+    private static final String VENDOR_BREAKDOWN_LABEL = "Vendor Breakdown:";
+    private static final String VENDOR_LABEL_INDENT = "  ";
+
+    private final int streamingRowThreshold;
+    private final int streamingWindowSize;
+    private final Map<Path, Object> appendLocks = new ConcurrentHashMap<>();
+
+    public ExcelService() {
+        this.streamingRowThreshold = DEFAULT_STREAMING_ROW_THRESHOLD;
+        this.streamingWindowSize = DEFAULT_STREAMING_WINDOW_SIZE;
+    }
+
+    @Autowired
+    public ExcelService(ExcelConfig excelConfig) {
+        this.streamingRowThreshold = excelConfig.getStreamingRowThreshold();
+        this.streamingWindowSize = excelConfig.getStreamingWindowSize() > 0
+                ? excelConfig.getStreamingWindowSize() : DEFAULT_STREAMING_WINDOW_SIZE;
+    }
+
     /**
      * Creates an Excel file with invoice data.
      * 
@@ -41,25 +86,25 @@ public class ExcelService {
             throw new ExcelExportException("Cannot create Excel file with empty invoice data");
         }
 
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Invoice Data");
+        try (Workbook workbook = createWorkbook(invoiceDataList.size())) {
+            Sheet sheet = workbook.createSheet(DATA_SHEET_NAME);
+            ExcelStyleRegistry styles = new ExcelStyleRegistry(workbook);
+            ColumnWidths columnWidths = new ColumnWidths();
             
             // Create header row
-            createHeaderRow(sheet);
+            columnWidths.track(createHeaderRow(sheet, styles));
             
             // Create data rows
             int rowNum = 1;
             for (InvoiceData invoiceData : invoiceDataList) {
-                createDataRow(sheet, rowNum++, invoiceData);
+                columnWidths.track(createDataRow(sheet, rowNum++, invoiceData, styles));
             }
             
-            // Auto-size columns for better readability
-            autoSizeColumns(sheet);
+            // Size columns for better readability
+            columnWidths.apply(sheet);
             
             // Write to file
-            try (FileOutputStream fileOut = new FileOutputStream(outputFilePath)) {
-                workbook.write(fileOut);
-            }
+            writeWorkbook(workbook, outputFilePath);
             
             logger.info("Successfully created Excel file with {} invoice records at: {}", 
                        invoiceDataList.size(), outputFilePath);
@@ -89,55 +134,206 @@ public class ExcelService {
      * @throws ExcelExportException if there's an error updating the Excel file
      */
     public void appendToExcelFile(InvoiceData invoiceData, String excelFilePath) throws ExcelExportException {
-        // For simplicity, we'll implement this as reading existing data and rewriting the file
-        // In a production environment, you might want to use a more efficient approach
-        logger.info("Appending invoice data to Excel file: {}", excelFilePath);
-        
+        appendToExcelFile(List.of(invoiceData), excelFilePath);
+    }
+
+    /**
+     * Appends a batch of invoices to an existing Excel file in a single write, or creates a new
+     * enhanced file if it doesn't exist. New rows go after the last data row; the totals row is
+     * moved below them and the Summary sheet is updated from its previous totals, so existing
+     * rows are neither re-read for the summary nor re-created.
+     * 
+     * @param invoiceDataList Invoice data to append
+     * @param excelFilePath Path to the Excel file
+     * @throws ExcelExportException if there's an error updating the Excel file
+     */
+    public void appendToExcelFile(List<InvoiceData> invoiceDataList, String excelFilePath) throws ExcelExportException {
+        if (invoiceDataList == null || invoiceDataList.isEmpty()) {
+            logger.warn("No invoice data provided for Excel append");
+            throw new ExcelExportException("Cannot append empty invoice data to Excel file");
+        }
+
+        Path excelPath = Paths.get(excelFilePath).toAbsolutePath().normalize();
+        logger.info("Appending {} invoice records to Excel file: {}", invoiceDataList.size(), excelPath);
+
+        // Appends to the same file must not interleave, or one write would drop the other's rows
+        synchronized (appendLocks.computeIfAbsent(excelPath, path -> new Object())) {
+            try {
+                if (!Files.exists(excelPath)) {
+                    createEnhancedExcelFile(invoiceDataList, excelFilePath);
+                    return;
+                }
+                appendRows(excelPath, invoiceDataList);
+            } catch (ExcelExportException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.error("Error appending to Excel file {}: {}", excelFilePath, e.getMessage(), e);
+                throw new ExcelExportException("Failed to append to Excel file: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void appendRows(Path excelPath, List<InvoiceData> invoiceDataList) throws IOException, ExcelExportException {
+        try (InputStream in = Files.newInputStream(excelPath);
+             XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+            Sheet dataSheet = workbook.getSheet(DATA_SHEET_NAME);
+            if (dataSheet == null) {
+                throw new ExcelExportException("Excel file has no '" + DATA_SHEET_NAME + "' sheet: " + excelPath);
+            }
+            Sheet summarySheet = workbook.getSheet(SUMMARY_SHEET_NAME);
+
+            int totalsRowNum = findTotalsRow(dataSheet);
+            boolean enhanced = totalsRowNum >= 0 || summarySheet != null;
+            int lastDataRow = totalsRowNum >= 0 ? totalsRowNum - 1 : dataSheet.getLastRowNum();
+
+            ExcelStyleRegistry styles = new ExcelStyleRegistry(workbook);
+            adoptExistingStyles(styles, dataSheet, summarySheet, lastDataRow, totalsRowNum, enhanced);
+
+            if (totalsRowNum >= 0) {
+                dataSheet.removeRow(dataSheet.getRow(totalsRowNum));
+            }
+
+            ColumnWidths columnWidths = new ColumnWidths();
+            int rowNum = lastDataRow + 1;
+            for (InvoiceData invoiceData : invoiceDataList) {
+                columnWidths.track(enhanced
+                        ? createEnhancedDataRow(styles, dataSheet, rowNum++, invoiceData)
+                        : createDataRow(dataSheet, rowNum++, invoiceData, styles));
+            }
+            if (enhanced) {
+                createTotalsRow(styles, dataSheet, rowNum, rowNum - 1);
+            }
+            columnWidths.widen(dataSheet);
+
+            if (summarySheet != null) {
+                SummaryTotals totals = SummaryTotals.read(summarySheet);
+                invoiceDataList.forEach(totals::add);
+                for (int i = summarySheet.getLastRowNum(); i >= 0; i--) {
+                    Row row = summarySheet.getRow(i);
+                    if (row != null) {
+                        summarySheet.removeRow(row);
+                    }
+                }
+                writeSummarySheet(styles, summarySheet, totals);
+            }
+
+            workbook.setForceFormulaRecalculation(true);
+            writeAtomically(workbook, excelPath);
+
+            logger.info("Appended {} invoice records to {} (now {} data rows)",
+                       invoiceDataList.size(), excelPath, rowNum - 1);
+        }
+    }
+
+    /**
+     * Returns the index of the totals row of an enhanced data sheet, or -1 if there is none.
+     */
+    private int findTotalsRow(Sheet sheet) {
+        Row lastRow = sheet.getRow(sheet.getLastRowNum());
+        if (lastRow == null) {
+            return -1;
+        }
+        Cell label = lastRow.getCell(TOTALS_LABEL_COLUMN);
+        if (label != null && label.getCellType() == CellType.STRING && TOTALS_LABEL.equals(label.getStringCellValue())) {
+            return lastRow.getRowNum();
+        }
+        return -1;
+    }
+
+    /**
+     * Registers the styles already used in the file, so an append only creates styles
+     * that the file does not have yet.
+     */
+    private void adoptExistingStyles(ExcelStyleRegistry styles, Sheet dataSheet, Sheet summarySheet,
+                                     int lastDataRow, int totalsRowNum, boolean enhanced) {
+        for (int rowNum = lastDataRow; rowNum >= Math.max(1, lastDataRow - 3); rowNum--) {
+            Row row = dataSheet.getRow(rowNum);
+            if (row == null) {
+                continue;
+            }
+            boolean shaded = enhanced && rowNum % 2 == 0;
+            if (shaded && row.getCell(0) != null) {
+                styles.adopt(ExcelStyleRegistry.TEXT_SHADED, row.getCell(0).getCellStyle());
+            }
+            Cell dateCell = row.getCell(2);
+            if (dateCell != null && dateCell.getCellType() == CellType.STRING && !dateCell.getStringCellValue().isEmpty()) {
+                styles.adopt(shaded ? ExcelStyleRegistry.DATE_SHADED : ExcelStyleRegistry.DATE, dateCell.getCellStyle());
+            }
+            for (int col = 7; col <= 9; col++) {
+                Cell amountCell = row.getCell(col);
+                if (amountCell != null && amountCell.getCellType() == CellType.NUMERIC) {
+                    styles.adopt(shaded ? ExcelStyleRegistry.CURRENCY_SHADED : ExcelStyleRegistry.CURRENCY,
+                            amountCell.getCellStyle());
+                }
+            }
+        }
+
+        if (totalsRowNum >= 0) {
+            Row totalsRow = dataSheet.getRow(totalsRowNum);
+            styles.adopt(ExcelStyleRegistry.TOTALS, totalsRow.getCell(TOTALS_LABEL_COLUMN).getCellStyle());
+            if (totalsRow.getCell(7) != null) {
+                styles.adopt(ExcelStyleRegistry.TOTALS_CURRENCY, totalsRow.getCell(7).getCellStyle());
+            }
+        }
+
+        if (summarySheet != null) {
+            for (Row row : summarySheet) {
+                Cell labelCell = row.getCell(0);
+                Cell valueCell = row.getCell(1);
+                if (labelCell == null) {
+                    continue;
+                }
+                styles.adopt(row.getRowNum() == 0 ? ExcelStyleRegistry.TITLE : ExcelStyleRegistry.LABEL,
+                        labelCell.getCellStyle());
+                if (valueCell != null && valueCell.getCellType() == CellType.NUMERIC) {
+                    styles.adopt(ExcelStyleRegistry.CURRENCY, valueCell.getCellStyle());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the workbook next to the target and moves it into place, so a failed write
+     * never leaves a truncated ledger behind.
+     */
+    private void writeAtomically(Workbook workbook, Path excelPath) throws IOException {
+        Path tempFile = Files.createTempFile(excelPath.getParent(), ".append_", ".xlsx");
         try {
-            // For now, just create a new file with the single record
-            // TODO: Implement proper append functionality by reading existing file first
-            createExcelFile(invoiceData, excelFilePath);
-        } catch (Exception e) {
-            logger.error("Error appending to Excel file {}: {}", excelFilePath, e.getMessage(), e);
-            throw new ExcelExportException("Failed to append to Excel file: " + e.getMessage(), e);
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                workbook.write(out);
+            }
+            try {
+                Files.move(tempFile, excelPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, excelPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
     }
 
     /**
      * Creates the header row with column names.
      */
-    private void createHeaderRow(Sheet sheet) {
+    private Row createHeaderRow(Sheet sheet, ExcelStyleRegistry styles) {
         Row headerRow = sheet.createRow(0);
-        
-        // Create header style
-        CellStyle headerStyle = sheet.getWorkbook().createCellStyle();
-        Font headerFont = sheet.getWorkbook().createFont();
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        CellStyle headerStyle = styles.header();
         
         for (int i = 0; i < HEADERS.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(HEADERS[i]);
             cell.setCellStyle(headerStyle);
         }
+        return headerRow;
     }
 
     /**
      * Creates a data row with invoice information.
      */
-    private void createDataRow(Sheet sheet, int rowNum, InvoiceData invoiceData) {
+    private Row createDataRow(Sheet sheet, int rowNum, InvoiceData invoiceData, ExcelStyleRegistry styles) {
         Row row = sheet.createRow(rowNum);
-        
-        // Create date format style
-        CellStyle dateStyle = sheet.getWorkbook().createCellStyle();
-        CreationHelper createHelper = sheet.getWorkbook().getCreationHelper();
-        dateStyle.setDataFormat(createHelper.createDataFormat().getFormat("yyyy-mm-dd"));
-        
-        // Create currency format style
-        CellStyle currencyStyle = sheet.getWorkbook().createCellStyle();
-        currencyStyle.setDataFormat(createHelper.createDataFormat().getFormat("#,##0.00"));
+        CellStyle dateStyle = styles.date(false);
+        CellStyle currencyStyle = styles.currency(false);
         
         int colNum = 0;
         
@@ -203,6 +399,7 @@ public class ExcelService {
         
         // Processing Notes
         createCell(row, colNum++, invoiceData.getProcessingNotes());
+        return row;
     }
 
     /**
@@ -214,11 +411,70 @@ public class ExcelService {
     }
 
     /**
-     * Auto-sizes all columns for better readability.
+     * Creates the workbook for an export, switching to a streaming workbook for large exports.
      */
-    private void autoSizeColumns(Sheet sheet) {
-        for (int i = 0; i < HEADERS.length; i++) {
-            sheet.autoSizeColumn(i);
+    private Workbook createWorkbook(int rowCount) {
+        if (rowCount > streamingRowThreshold) {
+            logger.info("Using streaming workbook for {} rows (window size {})", rowCount, streamingWindowSize);
+            SXSSFWorkbook workbook = new SXSSFWorkbook(streamingWindowSize);
+            workbook.setCompressTempFiles(true);
+            return workbook;
+        }
+        return new XSSFWorkbook();
+    }
+
+    /**
+     * Writes the workbook to disk and removes the temporary files of a streaming workbook.
+     */
+    private void writeWorkbook(Workbook workbook, String outputFilePath) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(outputFilePath)) {
+            workbook.write(fileOut);
+        } finally {
+            if (workbook instanceof SXSSFWorkbook streamingWorkbook) {
+                streamingWorkbook.dispose();
+            }
+        }
+    }
+
+    /**
+     * Tracks the longest value written to each column so widths can be set without
+     * autoSizeColumn, which re-measures every cell and needs all rows in memory.
+     */
+    private static class ColumnWidths {
+        private final Map<Integer, Integer> maxLengths = new HashMap<>();
+
+        void track(Row row) {
+            for (Cell cell : row) {
+                int length;
+                switch (cell.getCellType()) {
+                    case STRING -> length = cell.getStringCellValue().length();
+                    case NUMERIC -> length = String.format("%,.2f", cell.getNumericCellValue()).length();
+                    default -> length = 0;
+                }
+                maxLengths.merge(cell.getColumnIndex(), length, Math::max);
+            }
+        }
+
+        void apply(Sheet sheet) {
+            for (Map.Entry<Integer, Integer> entry : maxLengths.entrySet()) {
+                sheet.setColumnWidth(entry.getKey(), width(entry.getValue()));
+            }
+        }
+
+        /**
+         * Widens columns that the tracked rows overflow, leaving wider columns as they are.
+         */
+        void widen(Sheet sheet) {
+            for (Map.Entry<Integer, Integer> entry : maxLengths.entrySet()) {
+                int width = width(entry.getValue());
+                if (width > sheet.getColumnWidth(entry.getKey())) {
+                    sheet.setColumnWidth(entry.getKey(), width);
+                }
+            }
+        }
+
+        private static int width(int maxLength) {
+            return Math.min(maxLength + 3, MAX_COLUMN_WIDTH_CHARS) * 256;
         }
     }
 
@@ -248,19 +504,18 @@ public class ExcelService {
             throw new ExcelExportException("Cannot create Excel file with empty invoice data");
         }
 
-        try (Workbook workbook = new XSSFWorkbook()) {
+        try (Workbook workbook = createWorkbook(invoiceDataList.size())) {
             // Create main data sheet
-            Sheet dataSheet = workbook.createSheet("Invoice Data");
-            createEnhancedDataSheet(workbook, dataSheet, invoiceDataList);
+            ExcelStyleRegistry styles = new ExcelStyleRegistry(workbook);
+            Sheet dataSheet = workbook.createSheet(DATA_SHEET_NAME);
+            createEnhancedDataSheet(styles, dataSheet, invoiceDataList);
             
             // Create summary sheet
-            Sheet summarySheet = workbook.createSheet("Summary");
-            createSummarySheet(workbook, summarySheet, invoiceDataList);
+            Sheet summarySheet = workbook.createSheet(SUMMARY_SHEET_NAME);
+            createSummarySheet(styles, summarySheet, invoiceDataList);
             
             // Write to file
-            try (FileOutputStream fileOut = new FileOutputStream(outputFilePath)) {
-                workbook.write(fileOut);
-            }
+            writeWorkbook(workbook, outputFilePath);
             
             logger.info("Successfully created enhanced Excel file with {} invoice records and summary at: {}", 
                        invoiceDataList.size(), outputFilePath);
@@ -274,21 +529,23 @@ public class ExcelService {
     /**
      * Creates the enhanced data sheet with improved formatting and totals.
      */
-    private void createEnhancedDataSheet(Workbook workbook, Sheet sheet, List<InvoiceData> invoiceDataList) {
+    private void createEnhancedDataSheet(ExcelStyleRegistry styles, Sheet sheet, List<InvoiceData> invoiceDataList) {
+        ColumnWidths columnWidths = new ColumnWidths();
+        
         // Create enhanced header row
-        createEnhancedHeaderRow(workbook, sheet);
+        columnWidths.track(createEnhancedHeaderRow(styles, sheet));
         
         // Create data rows
         int rowNum = 1;
         for (InvoiceData invoiceData : invoiceDataList) {
-            createEnhancedDataRow(workbook, sheet, rowNum++, invoiceData);
+            columnWidths.track(createEnhancedDataRow(styles, sheet, rowNum++, invoiceData));
         }
         
         // Add totals row
-        createTotalsRow(workbook, sheet, rowNum, invoiceDataList.size());
+        createTotalsRow(styles, sheet, rowNum, invoiceDataList.size());
         
-        // Auto-size columns
-        autoSizeColumns(sheet);
+        // Size columns from the tracked values
+        columnWidths.apply(sheet);
         
         // Freeze the header row
         sheet.createFreezePane(0, 1);
@@ -297,120 +554,131 @@ public class ExcelService {
     /**
      * Creates the summary sheet with aggregate data.
      */
-    private void createSummarySheet(Workbook workbook, Sheet sheet, List<InvoiceData> invoiceDataList) {
+    private void createSummarySheet(ExcelStyleRegistry styles, Sheet sheet, List<InvoiceData> invoiceDataList) {
+        SummaryTotals totals = new SummaryTotals();
+        invoiceDataList.forEach(totals::add);
+        writeSummarySheet(styles, sheet, totals);
+    }
+
+    /**
+     * Writes the summary title, totals and vendor breakdown.
+     */
+    private void writeSummarySheet(ExcelStyleRegistry styles, Sheet sheet, SummaryTotals totals) {
         // Create title
         Row titleRow = sheet.createRow(0);
         Cell titleCell = titleRow.createCell(0);
         titleCell.setCellValue("Invoice Processing Summary");
+        titleCell.setCellStyle(styles.title());
         
-        // Title style
-        CellStyle titleStyle = workbook.createCellStyle();
-        Font titleFont = workbook.createFont();
-        titleFont.setBold(true);
-        titleFont.setFontHeight((short) 280);
-        titleStyle.setFont(titleFont);
-        titleCell.setCellStyle(titleStyle);
-        
+        ColumnWidths columnWidths = new ColumnWidths();
         int rowNum = 2;
         
         // Summary statistics
-        createSummaryRow(workbook, sheet, rowNum++, "Total Invoices:", invoiceDataList.size());
-        
-        // Calculate totals
-        double totalNetAmount = invoiceDataList.stream()
-            .filter(inv -> inv.getNetAmount() != null)
-            .mapToDouble(inv -> inv.getNetAmount().doubleValue())
-            .sum();
-            
-        double totalVatAmount = invoiceDataList.stream()
-            .filter(inv -> inv.getVatAmount() != null)
-            .mapToDouble(inv -> inv.getVatAmount().doubleValue())
-            .sum();
-            
-        double totalGrossAmount = invoiceDataList.stream()
-            .filter(inv -> inv.getTotalAmount() != null)
-            .mapToDouble(inv -> inv.getTotalAmount().doubleValue())
-            .sum();
+        columnWidths.track(createSummaryRow(styles, sheet, rowNum++, TOTAL_INVOICES_LABEL, totals.invoiceCount));
         
         // Currency format for summary
-        CellStyle currencyStyle = workbook.createCellStyle();
-        CreationHelper createHelper = workbook.getCreationHelper();
-        currencyStyle.setDataFormat(createHelper.createDataFormat().getFormat("#,##0.00"));
+        CellStyle currencyStyle = styles.currency(false);
         
-        createSummaryRowWithCurrency(workbook, sheet, rowNum++, "Total Net Amount:", totalNetAmount, currencyStyle);
-        createSummaryRowWithCurrency(workbook, sheet, rowNum++, "Total VAT Amount:", totalVatAmount, currencyStyle);
-        createSummaryRowWithCurrency(workbook, sheet, rowNum++, "Total Gross Amount:", totalGrossAmount, currencyStyle);
+        columnWidths.track(createSummaryRowWithCurrency(styles, sheet, rowNum++, TOTAL_NET_LABEL, totals.netAmount, currencyStyle));
+        columnWidths.track(createSummaryRowWithCurrency(styles, sheet, rowNum++, TOTAL_VAT_LABEL, totals.vatAmount, currencyStyle));
+        columnWidths.track(createSummaryRowWithCurrency(styles, sheet, rowNum++, TOTAL_GROSS_LABEL, totals.grossAmount, currencyStyle));
         
         rowNum++; // Empty row
         
         // Vendor breakdown
-        createSummaryRow(workbook, sheet, rowNum++, "Vendor Breakdown:", "");
+        columnWidths.track(createSummaryRow(styles, sheet, rowNum++, VENDOR_BREAKDOWN_LABEL, ""));
         
-        Map<String, Double> vendorTotals = invoiceDataList.stream()
-            .filter(inv -> inv.getVendorName() != null && inv.getTotalAmount() != null)
-            .collect(Collectors.groupingBy(
-                InvoiceData::getVendorName,
-                Collectors.summingDouble(inv -> inv.getTotalAmount().doubleValue())
-            ));
-        
-        for (Map.Entry<String, Double> entry : vendorTotals.entrySet()) {
-            createSummaryRowWithCurrency(workbook, sheet, rowNum++, 
-                "  " + entry.getKey() + ":", entry.getValue(), currencyStyle);
+        for (Map.Entry<String, Double> entry : totals.vendorTotals.entrySet()) {
+            columnWidths.track(createSummaryRowWithCurrency(styles, sheet, rowNum++, 
+                VENDOR_LABEL_INDENT + entry.getKey() + ":", entry.getValue(), currencyStyle));
         }
         
-        // Auto-size columns
-        for (int i = 0; i < 3; i++) {
-            sheet.autoSizeColumn(i);
+        // Size columns from the tracked values
+        columnWidths.apply(sheet);
+    }
+
+    /**
+     * Aggregates shown on the Summary sheet. They can be read back from an existing
+     * sheet, so appends update the summary without re-reading every data row.
+     */
+    private static class SummaryTotals {
+        private long invoiceCount;
+        private double netAmount;
+        private double vatAmount;
+        private double grossAmount;
+        private final Map<String, Double> vendorTotals = new LinkedHashMap<>();
+
+        void add(InvoiceData invoiceData) {
+            invoiceCount++;
+            if (invoiceData.getNetAmount() != null) {
+                netAmount += invoiceData.getNetAmount().doubleValue();
+            }
+            if (invoiceData.getVatAmount() != null) {
+                vatAmount += invoiceData.getVatAmount().doubleValue();
+            }
+            if (invoiceData.getTotalAmount() != null) {
+                grossAmount += invoiceData.getTotalAmount().doubleValue();
+                if (invoiceData.getVendorName() != null) {
+                    vendorTotals.merge(invoiceData.getVendorName(), invoiceData.getTotalAmount().doubleValue(), Double::sum);
+                }
+            }
+        }
+
+        static SummaryTotals read(Sheet sheet) {
+            SummaryTotals totals = new SummaryTotals();
+            boolean vendorSection = false;
+            for (Row row : sheet) {
+                Cell labelCell = row.getCell(0);
+                Cell valueCell = row.getCell(1);
+                if (labelCell == null || labelCell.getCellType() != CellType.STRING) {
+                    continue;
+                }
+                String label = labelCell.getStringCellValue();
+                double value = valueCell != null && valueCell.getCellType() == CellType.NUMERIC
+                        ? valueCell.getNumericCellValue() : 0;
+
+                switch (label) {
+                    case TOTAL_INVOICES_LABEL -> totals.invoiceCount = (long) value;
+                    case TOTAL_NET_LABEL -> totals.netAmount = value;
+                    case TOTAL_VAT_LABEL -> totals.vatAmount = value;
+                    case TOTAL_GROSS_LABEL -> totals.grossAmount = value;
+                    case VENDOR_BREAKDOWN_LABEL -> vendorSection = true;
+                    default -> {
+                        if (vendorSection && label.startsWith(VENDOR_LABEL_INDENT) && label.endsWith(":")) {
+                            String vendor = label.substring(VENDOR_LABEL_INDENT.length(), label.length() - 1);
+                            totals.vendorTotals.merge(vendor, value, Double::sum);
+                        }
+                    }
+                }
+            }
+            return totals;
         }
     }
 
     /**
      * Creates enhanced header row with better styling.
      */
-    private void createEnhancedHeaderRow(Workbook workbook, Sheet sheet) {
+    private Row createEnhancedHeaderRow(ExcelStyleRegistry styles, Sheet sheet) {
         Row headerRow = sheet.createRow(0);
-        
-        // Enhanced header style
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerFont.setColor(IndexedColors.WHITE.getIndex());
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        headerStyle.setBorderBottom(BorderStyle.THICK);
-        headerStyle.setBorderTop(BorderStyle.THICK);
-        headerStyle.setBorderLeft(BorderStyle.THICK);
-        headerStyle.setBorderRight(BorderStyle.THICK);
-        headerStyle.setAlignment(HorizontalAlignment.CENTER);
+        CellStyle headerStyle = styles.enhancedHeader();
         
         for (int i = 0; i < HEADERS.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(HEADERS[i]);
             cell.setCellStyle(headerStyle);
         }
+        return headerRow;
     }
 
     /**
      * Creates enhanced data row with better formatting.
      */
-    private void createEnhancedDataRow(Workbook workbook, Sheet sheet, int rowNum, InvoiceData invoiceData) {
+    private Row createEnhancedDataRow(ExcelStyleRegistry styles, Sheet sheet, int rowNum, InvoiceData invoiceData) {
         Row row = sheet.createRow(rowNum);
         
-        // Create styles
-        CellStyle dateStyle = workbook.createCellStyle();
-        CreationHelper createHelper = workbook.getCreationHelper();
-        dateStyle.setDataFormat(createHelper.createDataFormat().getFormat("yyyy-mm-dd"));
-        
-        CellStyle currencyStyle = workbook.createCellStyle();
-        currencyStyle.setDataFormat(createHelper.createDataFormat().getFormat("#,##0.00"));
-        
         // Alternating row colors
-        CellStyle alternateStyle = workbook.createCellStyle();
-        if (rowNum % 2 == 0) {
-            alternateStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            alternateStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        }
+        boolean shaded = rowNum % 2 == 0;
+        CellStyle alternateStyle = styles.text(shaded);
         
         int colNum = 0;
         
@@ -422,13 +690,7 @@ public class ExcelService {
         if (invoiceData.getInvoiceDate() != null) {
             Cell dateCell = row.createCell(colNum++);
             dateCell.setCellValue(invoiceData.getInvoiceDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
-            CellStyle combinedDateStyle = workbook.createCellStyle();
-            combinedDateStyle.cloneStyleFrom(dateStyle);
-            if (rowNum % 2 == 0) {
-                combinedDateStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-                combinedDateStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            }
-            dateCell.setCellStyle(combinedDateStyle);
+            dateCell.setCellStyle(styles.date(shaded));
         } else {
             createStyledCell(row, colNum++, "", alternateStyle);
         }
@@ -439,39 +701,27 @@ public class ExcelService {
         createStyledCell(row, colNum++, invoiceData.getClientVatNumber(), alternateStyle);
         
         // Currency amounts with proper formatting
-        createCurrencyCell(row, colNum++, invoiceData.getNetAmount(), currencyStyle, alternateStyle, workbook);
-        createCurrencyCell(row, colNum++, invoiceData.getVatAmount(), currencyStyle, alternateStyle, workbook);
-        createCurrencyCell(row, colNum++, invoiceData.getTotalAmount(), currencyStyle, alternateStyle, workbook);
+        createCurrencyCell(row, colNum++, invoiceData.getNetAmount(), styles.currency(shaded), alternateStyle);
+        createCurrencyCell(row, colNum++, invoiceData.getVatAmount(), styles.currency(shaded), alternateStyle);
+        createCurrencyCell(row, colNum++, invoiceData.getTotalAmount(), styles.currency(shaded), alternateStyle);
         
         createStyledCell(row, colNum++, invoiceData.getCurrency(), alternateStyle);
         createStyledCell(row, colNum++, invoiceData.getDescription(), alternateStyle);
         createStyledCell(row, colNum++, invoiceData.getProcessingNotes(), alternateStyle);
+        return row;
     }
 
     /**
      * Creates a totals row at the bottom of the data.
      */
-    private void createTotalsRow(Workbook workbook, Sheet sheet, int rowNum, int dataRowCount) {
+    private void createTotalsRow(ExcelStyleRegistry styles, Sheet sheet, int rowNum, int dataRowCount) {
         Row totalsRow = sheet.createRow(rowNum);
-        
-        // Totals row style
-        CellStyle totalsStyle = workbook.createCellStyle();
-        Font totalsFont = workbook.createFont();
-        totalsFont.setBold(true);
-        totalsStyle.setFont(totalsFont);
-        totalsStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
-        totalsStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        totalsStyle.setBorderTop(BorderStyle.THICK);
-        
-        // Currency totals style
-        CellStyle totalsCurrencyStyle = workbook.createCellStyle();
-        totalsCurrencyStyle.cloneStyleFrom(totalsStyle);
-        CreationHelper createHelper = workbook.getCreationHelper();
-        totalsCurrencyStyle.setDataFormat(createHelper.createDataFormat().getFormat("#,##0.00"));
+        CellStyle totalsStyle = styles.totals();
+        CellStyle totalsCurrencyStyle = styles.totalsCurrency();
         
         // "TOTALS" label
-        Cell totalsLabel = totalsRow.createCell(6);
-        totalsLabel.setCellValue("TOTALS:");
+        Cell totalsLabel = totalsRow.createCell(TOTALS_LABEL_COLUMN);
+        totalsLabel.setCellValue(TOTALS_LABEL);
         totalsLabel.setCellStyle(totalsStyle);
         
         // Sum formulas for currency columns (Net Amount, VAT Amount, Total Amount)
@@ -507,17 +757,11 @@ public class ExcelService {
      * Helper method to create currency cells with proper formatting.
      */
     private void createCurrencyCell(Row row, int colNum, java.math.BigDecimal value, 
-                                   CellStyle currencyStyle, CellStyle alternateStyle, Workbook workbook) {
+                                   CellStyle currencyStyle, CellStyle alternateStyle) {
         Cell cell = row.createCell(colNum);
         if (value != null) {
             cell.setCellValue(value.doubleValue());
-            CellStyle combinedStyle = workbook.createCellStyle();
-            combinedStyle.cloneStyleFrom(currencyStyle);
-            if (alternateStyle != null && row.getRowNum() % 2 == 0) {
-                combinedStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-                combinedStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            }
-            cell.setCellStyle(combinedStyle);
+            cell.setCellStyle(currencyStyle);
         } else {
             createStyledCell(row, colNum, "", alternateStyle);
         }
@@ -526,17 +770,12 @@ public class ExcelService {
     /**
      * Helper method to create summary rows.
      */
-    private void createSummaryRow(Workbook workbook, Sheet sheet, int rowNum, String label, Object value) {
+    private Row createSummaryRow(ExcelStyleRegistry styles, Sheet sheet, int rowNum, String label, Object value) {
         Row row = sheet.createRow(rowNum);
         
-        CellStyle labelStyle = workbook.createCellStyle();
-        Font labelFont = workbook.createFont();
-        labelFont.setBold(true);
-        labelStyle.setFont(labelFont);
-        
         Cell labelCell = row.createCell(0);
         labelCell.setCellValue(label);
-        labelCell.setCellStyle(labelStyle);
+        labelCell.setCellStyle(styles.label());
         
         Cell valueCell = row.createCell(1);
         if (value instanceof Number) {
@@ -544,26 +783,23 @@ public class ExcelService {
         } else {
             valueCell.setCellValue(value.toString());
         }
+        return row;
     }
 
     /**
      * Helper method to create summary rows with currency formatting.
      */
-    private void createSummaryRowWithCurrency(Workbook workbook, Sheet sheet, int rowNum, 
+    private Row createSummaryRowWithCurrency(ExcelStyleRegistry styles, Sheet sheet, int rowNum, 
                                             String label, double value, CellStyle currencyStyle) {
         Row row = sheet.createRow(rowNum);
         
-        CellStyle labelStyle = workbook.createCellStyle();
-        Font labelFont = workbook.createFont();
-        labelFont.setBold(true);
-        labelStyle.setFont(labelFont);
-        
         Cell labelCell = row.createCell(0);
         labelCell.setCellValue(label);
-        labelCell.setCellStyle(labelStyle);
+        labelCell.setCellStyle(styles.label());
         
         Cell valueCell = row.createCell(1);
         valueCell.setCellValue(value);
         valueCell.setCellStyle(currencyStyle);
+        return row;
     }
 }
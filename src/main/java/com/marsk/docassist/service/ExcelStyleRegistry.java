@@ -0,0 +1,178 @@
+package com.marsk.docassist.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Cell styles of one workbook, each created the first time it is needed and then reused.
+ * Creating styles per row multiplies entries in styles.xml and eventually hits the
+ * workbook style limit; with the registry the style count depends only on the number
+ * of distinct formats used by the export.
+ */
+public class ExcelStyleRegistry {
+
+    static final String HEADER = "header";
+    static final String ENHANCED_HEADER = "enhancedHeader";
+    static final String TEXT_SHADED = "text.shaded";
+    static final String DATE = "date";
+    static final String DATE_SHADED = "date.shaded";
+    static final String CURRENCY = "currency";
+    static final String CURRENCY_SHADED = "currency.shaded";
+    static final String TOTALS = "totals";
+    static final String TOTALS_CURRENCY = "totals.currency";
+    static final String TITLE = "title";
+    static final String LABEL = "label";
+
+    private static final String DATE_FORMAT = "yyyy-mm-dd";
+    private static final String CURRENCY_FORMAT = "#,##0.00";
+
+    private final Workbook workbook;
+    private final Map<String, CellStyle> styles = new HashMap<>();
+    private Font boldFont;
+
+    public ExcelStyleRegistry(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    /**
+     * Header style of the plain export.
+     */
+    public CellStyle header() {
+        return style(HEADER, style -> {
+            style.setFont(boldFont());
+            style.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        });
+    }
+
+    /**
+     * Header style of the enhanced export: white bold text on dark blue with thick borders.
+     */
+    public CellStyle enhancedHeader() {
+        return style(ENHANCED_HEADER, style -> {
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerFont.setColor(IndexedColors.WHITE.getIndex());
+            style.setFont(headerFont);
+            style.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            style.setBorderBottom(BorderStyle.THICK);
+            style.setBorderTop(BorderStyle.THICK);
+            style.setBorderLeft(BorderStyle.THICK);
+            style.setBorderRight(BorderStyle.THICK);
+            style.setAlignment(HorizontalAlignment.CENTER);
+        });
+    }
+
+    /**
+     * Text style of a data row, or null for unshaded rows that keep the default style.
+     */
+    public CellStyle text(boolean shaded) {
+        return shaded ? style(TEXT_SHADED, this::shade) : null;
+    }
+
+    public CellStyle date(boolean shaded) {
+        return style(shaded ? DATE_SHADED : DATE, style -> {
+            style.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat(DATE_FORMAT));
+            if (shaded) {
+                shade(style);
+            }
+        });
+    }
+
+    public CellStyle currency(boolean shaded) {
+        return style(shaded ? CURRENCY_SHADED : CURRENCY, style -> {
+            style.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat(CURRENCY_FORMAT));
+            if (shaded) {
+                shade(style);
+            }
+        });
+    }
+
+    /**
+     * Style of the label cell in the totals row.
+     */
+    public CellStyle totals() {
+        return style(TOTALS, this::applyTotals);
+    }
+
+    public CellStyle totalsCurrency() {
+        return style(TOTALS_CURRENCY, style -> {
+            applyTotals(style);
+            style.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat(CURRENCY_FORMAT));
+        });
+    }
+
+    /**
+     * Style of the Summary sheet title.
+     */
+    public CellStyle title() {
+        return style(TITLE, style -> {
+            Font titleFont = workbook.createFont();
+            titleFont.setBold(true);
+            titleFont.setFontHeight((short) 280);
+            style.setFont(titleFont);
+        });
+    }
+
+    /**
+     * Style of the bold labels on the Summary sheet.
+     */
+    public CellStyle label() {
+        return style(LABEL, style -> style.setFont(boldFont()));
+    }
+
+    /**
+     * Reuses a style that already exists in a loaded workbook instead of creating a new one,
+     * so repeated appends to the same file do not add styles on every write.
+     */
+    void adopt(String key, CellStyle style) {
+        if (style != null && style.getIndex() != 0) {
+            styles.putIfAbsent(key, style);
+        }
+    }
+
+    /**
+     * Number of styles this registry has added to or adopted from the workbook.
+     */
+    public int size() {
+        return styles.size();
+    }
+
+    private CellStyle style(String key, Consumer<CellStyle> initializer) {
+        return styles.computeIfAbsent(key, k -> {
+            CellStyle style = workbook.createCellStyle();
+            initializer.accept(style);
+            return style;
+        });
+    }
+
+    private void shade(CellStyle style) {
+        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+    }
+
+    private void applyTotals(CellStyle style) {
+        style.setFont(boldFont());
+        style.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        style.setBorderTop(BorderStyle.THICK);
+    }
+
+    private Font boldFont() {
+        if (boldFont == null) {
+            boldFont = workbook.createFont();
+            boldFont.setBold(true);
+        }
+        return boldFont;
+    }
+}
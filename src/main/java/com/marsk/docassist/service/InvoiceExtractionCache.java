@@ -0,0 +1,145 @@
+package com.marsk.docassist.service;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.marsk.docassist.InvoiceExtractionAssistant;
+import com.marsk.docassist.model.InvoiceData;
+
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
+
+/**
+ * Cache of LLM extraction results keyed by the normalised OCR text, the model name
+ * and the prompt version. The prompt version is a hash of the prompts declared on
+ * {@link InvoiceExtractionAssistant}, so editing the prompts or switching
+ * ollama.model-name produces new keys and stale results are never served.
+ * Requests built differently from the assistant's, such as the streaming chat request,
+ * pass their own version so their results are kept apart.
+ */
+public class InvoiceExtractionCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Hash of the system and user prompts the assistant is built with. */
+    public static final String PROMPT_VERSION = computePromptVersion();
+
+    private final boolean enabled;
+    private final String modelName;
+    private final Cache<String, InvoiceData> cache;
+
+    public InvoiceExtractionCache(boolean enabled, String modelName, long maxEntries, Duration expireAfterWrite) {
+        this.enabled = enabled && maxEntries > 0;
+        this.modelName = modelName;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxEntries, 0))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a copy of the cached extraction for this text, or null on a miss.
+     */
+    public InvoiceData get(String ocrText) {
+        return get(ocrText, PROMPT_VERSION);
+    }
+
+    /**
+     * Returns a copy of the extraction cached for this text under a prompt version, or null on a miss.
+     */
+    public InvoiceData get(String ocrText, String promptVersion) {
+        if (!enabled) {
+            return null;
+        }
+        InvoiceData cached = cache.getIfPresent(key(ocrText, modelName, promptVersion));
+        return cached != null ? new InvoiceData(cached) : null;
+    }
+
+    /**
+     * Stores a copy of an extraction result for this text.
+     */
+    public void put(String ocrText, InvoiceData invoiceData) {
+        put(ocrText, PROMPT_VERSION, invoiceData);
+    }
+
+    /**
+     * Stores a copy of an extraction result for this text under a prompt version.
+     */
+    public void put(String ocrText, String promptVersion, InvoiceData invoiceData) {
+        if (enabled && invoiceData != null) {
+            cache.put(key(ocrText, modelName, promptVersion), new InvoiceData(invoiceData));
+        }
+    }
+
+    /**
+     * Derives a prompt version from a request template, such as a request body built for
+     * placeholder text; any change to the prompts, format or options changes it.
+     */
+    public static String versionOf(String requestTemplate) {
+        return sha256Hex(requestTemplate).substring(0, 12);
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("modelName", modelName);
+        result.put("promptVersion", PROMPT_VERSION);
+        return result;
+    }
+
+    /**
+     * Normalises OCR text so that re-OCR'd copies of the same document that only
+     * differ in whitespace or Unicode composition map to the same key.
+     */
+    static String normalize(String ocrText) {
+        String composed = Normalizer.normalize(ocrText, Normalizer.Form.NFC);
+        return WHITESPACE.matcher(composed).replaceAll(" ").trim();
+    }
+
+    /**
+     * Cache key of an extraction: the hash of the normalised text, the model name and the prompt version.
+     */
+    static String key(String ocrText, String modelName, String promptVersion) {
+        return sha256Hex(normalize(ocrText)) + "|" + modelName + "|" + promptVersion;
+    }
+
+    static String sha256Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private static String computePromptVersion() {
+        try {
+            Method method = InvoiceExtractionAssistant.class.getMethod("extractInvoiceData", String.class);
+            SystemMessage systemMessage = method.getAnnotation(SystemMessage.class);
+            UserMessage userMessage = method.getAnnotation(UserMessage.class);
+            String prompts = (systemMessage != null ? String.join("\n", systemMessage.value()) : "")
+                    + "\n---\n"
+                    + (userMessage != null ? String.join("\n", userMessage.value()) : "");
+            return versionOf(prompts);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("InvoiceExtractionAssistant.extractInvoiceData not found", e);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.marsk.docassist.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.marsk.docassist.config.BatchJobConfig;
+import com.marsk.docassist.config.OcrConfig;
+import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.model.OcrResult;
+
+/**
+ * Extracts invoices from a staged batch with OCR and Ollama extraction running as separate stages.
+ * Each file is recognised on the OCR executor and then handed to the LLM executor, so the CPU-bound
+ * and the model-bound work overlap instead of alternating. A batch only has a bounded number of
+ * files between submission and the end of extraction; when that many are in flight, no more files
+ * are submitted, which keeps recognised text from piling up ahead of a slow model server.
+ * Both executors are shared by all batches, so concurrent jobs share the stage threads rather
+ * than each adding their own. The caller is the final stage and receives the invoices in upload
+ * order for the Excel export.
+ */
+@Service
+public class InvoicePipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoicePipelineService.class);
+
+    private final OcrService ocrService;
+    private final VendorTemplateService vendorTemplateService;
+    private final OcrConfig ocrConfig;
+    private final BatchJobConfig batchJobConfig;
+    private final ExecutorService ocrExecutor;
+    private final ExecutorService llmExecutor;
+
+    public InvoicePipelineService(OcrService ocrService, VendorTemplateService vendorTemplateService,
+                                  OcrConfig ocrConfig, BatchJobConfig batchJobConfig,
+                                  @Qualifier("pipelineOcrExecutor") ExecutorService ocrExecutor,
+                                  @Qualifier("pipelineLlmExecutor") ExecutorService llmExecutor) {
+        this.ocrService = ocrService;
+        this.vendorTemplateService = vendorTemplateService;
+        this.ocrConfig = ocrConfig;
+        this.batchJobConfig = batchJobConfig;
+        this.ocrExecutor = ocrExecutor;
+        this.llmExecutor = llmExecutor;
+    }
+
+    /**
+     * State of one batch run: the files in flight, and the first failure that stopped it.
+     */
+    private static final class PipelineRun {
+        private final Semaphore inFlight;
+        private final CountDownLatch remaining;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Queue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
+
+        private PipelineRun(int maxInFlight, int files) {
+            this.inFlight = new Semaphore(maxInFlight);
+            this.remaining = new CountDownLatch(files);
+        }
+
+        private boolean isAborted() {
+            return failure.get() != null;
+        }
+
+        /**
+         * Stops the run after a worker failure: files that have not started are skipped, so
+         * every file still reaches {@link #finish()} and the caller is released.
+         */
+        private void abort(Throwable cause) {
+            failure.compareAndSet(null, cause);
+        }
+
+        /**
+         * Marks a file skipped because the run was stopped.
+         */
+        private void skip(OcrProgressInfo file) {
+            file.fail("pipeline stopped: " + failure.get().getMessage());
+        }
+
+        /**
+         * Interrupts the running tasks and drops the queued ones; only used once nobody waits for them.
+         */
+        private void cancel() {
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        /**
+         * Marks a file as done with, whether it was extracted, failed or skipped.
+         */
+        private void finish() {
+            inFlight.release();
+            remaining.countDown();
+        }
+    }
+
+    /**
+     * Runs every pending file of the batch through OCR and extraction.
+     * Files that fail are marked as failed in their progress; successfully extracted
+     * files are left in the EXCEL stage for the caller to write.
+     *
+     * @param batch The staged files
+     * @param language OCR language
+     * @param onExtracted Called from an LLM thread as soon as an invoice has been extracted
+     * @return The extracted invoices in upload order
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the stages
+     */
+    public List<InvoiceData> extractInvoices(StagedBatch batch, String language, Consumer<InvoiceData> onExtracted)
+            throws InterruptedException {
+        List<OcrProgressInfo> pending = batch.getFiles().stream()
+                .filter(file -> file.getStage() != OcrProgressInfo.Stage.FAILED)
+                .toList();
+        if (pending.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int ocrWorkers = batchJobConfig.getPipelineOcrWorkers() > 0
+                ? batchJobConfig.getPipelineOcrWorkers() : ocrConfig.getPoolSize();
+        int llmWorkers = Math.max(1, batchJobConfig.getPipelineLlmWorkers());
+        int queueCapacity = Math.max(1, batchJobConfig.getPipelineQueueCapacity());
+        // Files being recognised, waiting for extraction and being extracted
+        int maxInFlight = ocrWorkers + queueCapacity + llmWorkers;
+
+        logger.info("Running pipeline for {} files with up to {} files in flight ({} OCR and {} LLM threads shared)",
+                pending.size(), maxInFlight, ocrWorkers, llmWorkers);
+
+        InvoiceData[] extracted = new InvoiceData[batch.getFiles().size()];
+        PipelineRun run = new PipelineRun(maxInFlight, pending.size());
+        try {
+            for (OcrProgressInfo file : pending) {
+                // Blocks while the batch has as many files in flight as it may
+                run.inFlight.acquire();
+                if (run.isAborted()) {
+                    run.skip(file);
+                    run.finish();
+                    continue;
+                }
+                try {
+                    run.tasks.add(ocrExecutor.submit(() -> recogniseStage(run, batch, file, language, extracted, onExtracted)));
+                } catch (RuntimeException e) {
+                    run.abort(e);
+                    run.skip(file);
+                    run.finish();
+                }
+            }
+            run.remaining.await();
+        } catch (InterruptedException e) {
+            run.abort(e);
+            run.cancel();
+            throw e;
+        }
+
+        Throwable failure = run.failure.get();
+        if (failure != null) {
+            throw new IllegalStateException("Pipeline worker failed: " + failure.getMessage(), failure);
+        }
+        return Arrays.stream(extracted)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Recognises one file on the OCR executor and hands its text to the LLM executor.
+     */
+    private void recogniseStage(PipelineRun run, StagedBatch batch, OcrProgressInfo file, String language,
+                                InvoiceData[] extracted, Consumer<InvoiceData> onExtracted) {
+        boolean handedOver = false;
+        try {
+            if (run.isAborted()) {
+                run.skip(file);
+                return;
+            }
+            OcrResult ocrResult = recognise(batch, file, language);
+            if (ocrResult != null) {
+                run.tasks.add(llmExecutor.submit(
+                        () -> extractStage(run, batch, file, ocrResult, language, extracted, onExtracted)));
+                handedOver = true;
+            }
+        } catch (Throwable t) {
+            file.fail("processing error: " + t);
+            run.abort(t);
+        } finally {
+            if (!handedOver) {
+                run.finish();
+            }
+        }
+    }
+
+    /**
+     * Extracts one recognised file on the LLM executor.
+     */
+    private void extractStage(PipelineRun run, StagedBatch batch, OcrProgressInfo file, OcrResult ocrResult,
+                              String language, InvoiceData[] extracted, Consumer<InvoiceData> onExtracted) {
+        try {
+            if (run.isAborted()) {
+                run.skip(file);
+            } else {
+                extract(batch, file, ocrResult, language, extracted, onExtracted);
+            }
+        } catch (Throwable t) {
+            file.fail("processing error: " + t);
+            run.abort(t);
+        } finally {
+            run.finish();
+        }
+    }
+
+    private OcrResult recognise(StagedBatch batch, OcrProgressInfo file, String language) {
+        String filename = file.getFilename();
+        try {
+            file.moveTo(OcrProgressInfo.Stage.OCR);
+            OcrResult ocrResult = ocrService.performOcrWithDetails(batch.getStagedFile(file), filename, language);
+            if (ocrService.shouldEscalateEmptyText(ocrResult)) {
+                logger.info("No text found in file {} by the fast pass, recognising it again with the standard pass",
+                        filename);
+                ocrResult = ocrService.performOcrWithDetails(
+                        batch.getStagedFile(file), filename, language, OcrResult.OcrPass.STANDARD);
+            }
+            String ocrText = ocrResult.getText();
+
+            if (ocrText == null || ocrText.trim().isEmpty()) {
+                file.fail("no text extracted");
+                return null;
+            }
+            return ocrResult;
+
+        } catch (Exception e) {
+            logger.error("Error recognising file {}: {}", filename, e.getMessage());
+            file.fail("processing error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void extract(StagedBatch batch, OcrProgressInfo file, OcrResult ocrResult, String language,
+                         InvoiceData[] extracted, Consumer<InvoiceData> onExtracted) {
+        String filename = file.getFilename();
+        try {
+            file.moveTo(OcrProgressInfo.Stage.LLM);
+            OllamaService.InvoiceExtractionResult result =
+                    vendorTemplateService.processInvoice(ocrResult.getText(), filename);
+            if (result.isSuccess() && ocrService.shouldEscalate(ocrResult, result.getConfidence())) {
+                result = escalate(batch, file, language, result);
+            }
+
+            if (result.isSuccess() && result.getInvoiceData() != null) {
+                InvoiceData invoiceData = result.getInvoiceData();
+                invoiceData.setSourceFilename(filename);
+                file.setConfidence(result.getConfidence());
+                extracted[file.getIndex()] = invoiceData;
+                file.moveTo(OcrProgressInfo.Stage.EXCEL);
+                if (onExtracted != null) {
+                    onExtracted.accept(invoiceData);
+                }
+                logger.info("Successfully processed file: {}", filename);
+            } else {
+                file.fail("extraction failed: " + result.getErrorMessage());
+            }
+
+        } catch (Exception e) {
+            logger.error("Error extracting invoice data from file {}: {}", filename, e.getMessage());
+            file.fail("processing error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recognises a file again with the standard OCR pass after its fast-pass text produced an
+     * incomplete invoice, and keeps whichever extraction is more complete. Runs on the LLM
+     * executor, so the OCR stage keeps its throughput for the files that do not need it.
+     */
+    private OllamaService.InvoiceExtractionResult escalate(StagedBatch batch, OcrProgressInfo file, String language,
+                                                           OllamaService.InvoiceExtractionResult first) {
+        String filename = file.getFilename();
+        logger.info("Extraction confidence {} for file {}, recognising it again with the standard pass",
+                first.getConfidence(), filename);
+        try {
+            OcrResult retried = ocrService.performOcrWithDetails(
+                    batch.getStagedFile(file), filename, language, OcrResult.OcrPass.STANDARD);
+            if (retried.getText() == null || retried.getText().trim().isEmpty()) {
+                return first;
+            }
+            OllamaService.InvoiceExtractionResult second = vendorTemplateService.processInvoice(retried.getText(), filename);
+            return second.isSuccess() && second.getConfidence() > first.getConfidence() ? second : first;
+        } catch (Exception e) {
+            logger.warn("Standard-pass retry of file {} failed, keeping the first extraction: {}", filename, e.getMessage());
+            return first;
+        }
+    }
+}
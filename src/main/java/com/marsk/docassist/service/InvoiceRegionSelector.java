@@ -0,0 +1,80 @@
+package com.marsk.docassist.service;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Picks the text blocks of an invoice page that are worth recognising.
+ * The fields of {@code InvoiceData} sit in the header band (number, date, vendor and
+ * customer) and in the right-aligned totals block below the line items; full-width
+ * line item tables, terms and footers in between are skipped.
+ * When the selection would not save anything, or nothing was selected, the page is
+ * recognised as a whole.
+ */
+public class InvoiceRegionSelector {
+
+    // Totals blocks start right of this fraction of the page width
+    private static final double TOTALS_MIN_LEFT_FRACTION = 0.4;
+    // Padding around each block so glyphs on its edge are not clipped
+    private static final double PADDING_FRACTION = 0.01;
+
+    private final double headerFraction;
+    private final double maxCoverage;
+
+    /**
+     * @param headerFraction Fraction of the page height, from the top, that holds the header band
+     * @param maxCoverage Largest fraction of the page area the regions may cover before a full-page pass is cheaper
+     */
+    public InvoiceRegionSelector(double headerFraction, double maxCoverage) {
+        this.headerFraction = headerFraction;
+        this.maxCoverage = maxCoverage;
+    }
+
+    /**
+     * Selects the regions to recognise.
+     *
+     * @param blocks Text blocks detected on the page
+     * @param pageWidth Page width in pixels
+     * @param pageHeight Page height in pixels
+     * @return Padded regions in reading order, or an empty list if the whole page should be recognised
+     */
+    public List<Rectangle> select(List<Rectangle> blocks, int pageWidth, int pageHeight) {
+        Rectangle page = new Rectangle(0, 0, pageWidth, pageHeight);
+        int headerBottom = (int) (pageHeight * headerFraction);
+        int totalsMinLeft = (int) (pageWidth * TOTALS_MIN_LEFT_FRACTION);
+        int padding = (int) Math.ceil(Math.min(pageWidth, pageHeight) * PADDING_FRACTION);
+
+        List<Rectangle> regions = new ArrayList<>();
+        for (Rectangle block : blocks) {
+            boolean header = block.y < headerBottom;
+            boolean totals = !header && block.x >= totalsMinLeft;
+            if (header || totals) {
+                Rectangle padded = new Rectangle(block);
+                padded.grow(padding, padding);
+                regions.add(padded.intersection(page));
+            }
+        }
+        if (regions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        regions.sort(Comparator.<Rectangle>comparingInt(r -> r.y).thenComparingInt(r -> r.x));
+        double coverage = coveredArea(regions) / ((double) pageWidth * pageHeight);
+        return coverage > maxCoverage ? Collections.emptyList() : regions;
+    }
+
+    /**
+     * Sum of the region areas; padded neighbours may overlap slightly, which only
+     * makes the estimate conservative.
+     */
+    private static double coveredArea(List<Rectangle> regions) {
+        double area = 0;
+        for (Rectangle region : regions) {
+            area += (double) region.width * region.height;
+        }
+        return area;
+    }
+}
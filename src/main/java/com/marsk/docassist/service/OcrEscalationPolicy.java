@@ -0,0 +1,39 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.OcrResult;
+
+/**
+ * Decides when the result of the fast OCR pass is not good enough.
+ * A page is escalated when the mean confidence of its words is low or no words were found,
+ * as faint scans often read nothing at the fast pass resolution; a whole document is escalated
+ * when the invoice extracted from it is incomplete, or no text was found at all, and some of
+ * its pages still come from the fast pass.
+ */
+public class OcrEscalationPolicy {
+
+    private final float minPageConfidence;
+    private final double minExtractionConfidence;
+
+    /**
+     * @param minPageConfidence Mean word confidence (0-100) a fast-pass page needs to be kept
+     * @param minExtractionConfidence Extraction confidence (0-1) a document needs to be kept
+     */
+    public OcrEscalationPolicy(float minPageConfidence, double minExtractionConfidence) {
+        this.minPageConfidence = minPageConfidence;
+        this.minExtractionConfidence = minExtractionConfidence;
+    }
+
+    public boolean needsPageEscalation(OcrResult.PageResult page) {
+        // Pages without words report confidence -1; text-layer pages have no pass and are never escalated
+        return page.getPass() == OcrResult.OcrPass.FAST
+                && (page.getWords().isEmpty() || page.getConfidence() < minPageConfidence);
+    }
+
+    public boolean needsDocumentEscalation(OcrResult ocrResult, double extractionConfidence) {
+        return extractionConfidence < minExtractionConfidence && ocrResult.isFastPassUsed();
+    }
+
+    public boolean needsEmptyTextEscalation(OcrResult ocrResult) {
+        return (ocrResult.getText() == null || ocrResult.getText().isBlank()) && ocrResult.isFastPassUsed();
+    }
+}
@@ -0,0 +1,101 @@
+package com.marsk.docassist.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marsk.docassist.model.OcrResult;
+
+/**
+ * Converts the per-page results of an OCR run to and from the JSON stored with the OCR text,
+ * so that results served from the database keep their pages: extraction method, pass, DPI,
+ * confidence and timings. Page text and words are not stored; the document text is.
+ */
+final class OcrPageMetadata {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private OcrPageMetadata() {
+    }
+
+    /**
+     * @return The JSON of the pages, or null if they cannot be serialised
+     */
+    static String write(List<OcrResult.PageResult> pages) {
+        List<Map<String, Object>> described = new ArrayList<>();
+        for (OcrResult.PageResult page : pages) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("page", page.getPageNumber());
+            entry.put("extractionMethod", page.getExtractionMethod());
+            entry.put("pass", page.getPass());
+            entry.put("escalated", page.isEscalated());
+            entry.put("dpi", page.getDpi());
+            entry.put("regions", page.getRegionCount());
+            entry.put("confidence", page.getConfidence());
+            entry.put("renderMs", page.getRenderMs());
+            entry.put("preprocessMs", page.getPreprocessMs());
+            entry.put("preprocessStages", page.getPreprocessStageMs());
+            entry.put("recognitionMs", page.getRecognitionMs());
+            described.add(entry);
+        }
+        try {
+            return MAPPER.writeValueAsString(described);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The restored pages, or null if the metadata is missing or unreadable
+     */
+    static List<OcrResult.PageResult> read(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        List<Map<String, Object>> described;
+        try {
+            described = MAPPER.readValue(json, new TypeReference<List<Map<String, Object>>>() { });
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+
+        List<OcrResult.PageResult> pages = new ArrayList<>();
+        try {
+            for (Map<String, Object> entry : described) {
+                OcrResult.PageResult page = new OcrResult.PageResult();
+                page.setPageNumber(number(entry.get("page")).intValue());
+                if (entry.get("extractionMethod") != null) {
+                    page.setExtractionMethod(OcrResult.ExtractionMethod.valueOf((String) entry.get("extractionMethod")));
+                }
+                if (entry.get("pass") != null) {
+                    page.setPass(OcrResult.OcrPass.valueOf((String) entry.get("pass")));
+                }
+                page.setEscalated(Boolean.TRUE.equals(entry.get("escalated")));
+                page.setDpi(number(entry.get("dpi")).intValue());
+                page.setRegionCount(number(entry.get("regions")).intValue());
+                page.setConfidence(entry.get("confidence") != null ? number(entry.get("confidence")).floatValue() : -1);
+                page.setRenderMs(number(entry.get("renderMs")).longValue());
+                page.setPreprocessMs(number(entry.get("preprocessMs")).longValue());
+                page.setRecognitionMs(number(entry.get("recognitionMs")).longValue());
+                Map<String, Long> stages = new LinkedHashMap<>();
+                if (entry.get("preprocessStages") instanceof Map<?, ?> stored) {
+                    stored.forEach((stage, ms) -> stages.put(String.valueOf(stage), number(ms).longValue()));
+                }
+                page.setPreprocessStageMs(stages);
+                pages.add(page);
+            }
+        } catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+            // Written by another version: an unknown method or pass, or a field of another type
+            return null;
+        }
+        return pages;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number ? (Number) value : 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.marsk.docassist.service;
+
+/**
+ * Page segmentation profiles used to configure pooled Tesseract engines.
+ * Each language/profile pair gets its own set of pre-configured engines,
+ * so no request ever has to mutate an engine another request is using.
+ */
+public enum OcrProfile {
+
+    /** PSM 3 - fully automatic page segmentation, used for rendered PDF pages. */
+    PAGE_AUTO(3),
+
+    /** PSM 6 - assume a single uniform block of text, used for uploaded images. */
+    SINGLE_BLOCK(6),
+
+    /** PSM 6 with the page settings, used for the fast first pass over rendered PDF pages. */
+    PAGE_FAST(6);
+
+    private final int pageSegMode;
+
+    OcrProfile(int pageSegMode) {
+        this.pageSegMode = pageSegMode;
+    }
+
+    public int getPageSegMode() {
+        return pageSegMode;
+    }
+}
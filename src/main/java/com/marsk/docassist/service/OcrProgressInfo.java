@@ -0,0 +1,107 @@
+package com.marsk.docassist.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Progress of a single file inside a batch job.
+ * Updated by the job worker and read concurrently by the status endpoint.
+ */
+public class OcrProgressInfo {
+
+    /**
+     * Processing stages a file moves through.
+     */
+    public enum Stage {
+        QUEUED(0.0),
+        OCR(0.1),
+        LLM(0.5),
+        EXCEL(0.9),
+        DONE(1.0),
+        FAILED(1.0);
+
+        private final double progress;
+
+        Stage(double progress) {
+            this.progress = progress;
+        }
+
+        /**
+         * Share of the per-file work that is complete once a file reaches this stage.
+         */
+        public double getProgress() {
+            return progress;
+        }
+    }
+
+    private final int index;
+    private final String filename;
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile Double confidence;
+    private volatile String error;
+
+    public OcrProgressInfo(int index, String filename) {
+        this.index = index;
+        this.filename = filename;
+    }
+
+    public void moveTo(Stage stage) {
+        if (startedAt == null && stage != Stage.QUEUED) {
+            startedAt = Instant.now();
+        }
+        if (stage == Stage.DONE || stage == Stage.FAILED) {
+            finishedAt = Instant.now();
+        }
+        this.stage = stage;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        moveTo(Stage.FAILED);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(Double confidence) {
+        this.confidence = confidence;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Time spent on this file so far, or in total once it has finished.
+     */
+    public Long getElapsedMs() {
+        if (startedAt == null) {
+            return null;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(startedAt, end).toMillis();
+    }
+}
@@ -0,0 +1,160 @@
+package com.marsk.docassist.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.marsk.docassist.config.OcrConfig;
+import com.marsk.docassist.model.OcrResult;
+import com.marsk.docassist.model.OcrTextDocument;
+import com.marsk.docassist.repository.OcrTextDocumentRepository;
+
+/**
+ * Two-tier cache of OCR results keyed by the SHA-256 of the uploaded bytes,
+ * the OCR language and the OCR profile.
+ * The first tier is an in-process Caffeine cache; the second is the
+ * ocr_documents table, where every OCR result is already persisted with its page metadata.
+ */
+@Component
+public class OcrResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrResultCache.class);
+
+    private final OcrTextDocumentRepository ocrTextDocumentRepository;
+    private final boolean enabled;
+    private final Cache<String, OcrResult> memoryCache;
+    private final AtomicLong databaseHits = new AtomicLong();
+
+    public OcrResultCache(OcrConfig ocrConfig, OcrTextDocumentRepository ocrTextDocumentRepository) {
+        this.ocrTextDocumentRepository = ocrTextDocumentRepository;
+        this.enabled = ocrConfig.isCacheEnabled();
+        this.memoryCache = Caffeine.newBuilder()
+                .maximumSize(ocrConfig.getCacheMaxEntries())
+                .expireAfterAccess(Duration.ofMinutes(ocrConfig.getCacheExpireAfterAccessMinutes()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Computes the SHA-256 of a stream without holding its content in memory.
+     *
+     * @param content The content to hash; it is read to the end but not closed
+     * @return The lowercase hex digest
+     * @throws IOException If the stream cannot be read
+     */
+    public static String sha256(InputStream content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up a previous OCR result for the same content, language and profile.
+     * The returned result is a copy flagged as served from cache.
+     */
+    public Optional<OcrResult> lookup(String contentHash, String language, String profile) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        String key = keyOf(contentHash, language, profile);
+        OcrResult cached = memoryCache.getIfPresent(key);
+
+        if (cached == null) {
+            Optional<OcrTextDocument> stored = ocrTextDocumentRepository
+                    .findFirstByContentHashAndLanguageUsedAndOcrProfileOrderByCreatedAtDesc(contentHash, language, profile);
+            if (stored.isEmpty()) {
+                return Optional.empty();
+            }
+            // Without its pages a result would hide the fast pass from escalation and lose its timings
+            List<OcrResult.PageResult> pages = OcrPageMetadata.read(stored.get().getPageMetadata());
+            if (pages == null) {
+                logger.debug("OCR result {} in ocr_documents has no page metadata, not serving it", stored.get().getId());
+                return Optional.empty();
+            }
+            databaseHits.incrementAndGet();
+            cached = new OcrResult(stored.get().getExtractedText(), pages, 0);
+            memoryCache.put(key, cached);
+            logger.debug("OCR cache hit in ocr_documents for {} (document ID {})", key, stored.get().getId());
+        }
+
+        // Callers may update their pages, so each gets its own copies
+        OcrResult result = new OcrResult(cached.getText(), copyPages(cached.getPages()),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        result.setFromCache(true);
+        return Optional.of(result);
+    }
+
+    /**
+     * Stores a fresh OCR result in the in-process tier.
+     * The persistent tier is written by OcrService when it saves the OCR document.
+     */
+    public void put(String contentHash, String language, String profile, OcrResult result) {
+        if (enabled && result != null && result.getText() != null) {
+            memoryCache.put(keyOf(contentHash, language, profile),
+                    new OcrResult(result.getText(), copyPages(result.getPages()), result.getDurationMs()));
+        }
+    }
+
+    /**
+     * Describes the pages of a result for the page_metadata column of ocr_documents.
+     */
+    public static String pageMetadata(OcrResult result) {
+        return OcrPageMetadata.write(result.getPages());
+    }
+
+    /**
+     * Returns hit/miss statistics for both cache tiers.
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = memoryCache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", memoryCache.estimatedSize());
+        result.put("memoryHits", stats.hitCount());
+        result.put("memoryMisses", stats.missCount());
+        result.put("databaseHits", databaseHits.get());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private static List<OcrResult.PageResult> copyPages(List<OcrResult.PageResult> pages) {
+        List<OcrResult.PageResult> copies = new ArrayList<>(pages.size());
+        for (OcrResult.PageResult page : pages) {
+            copies.add(new OcrResult.PageResult(page));
+        }
+        return copies;
+    }
+
+    private static String keyOf(String contentHash, String language, String profile) {
+        return contentHash + "|" + language + "|" + profile;
+    }
+}
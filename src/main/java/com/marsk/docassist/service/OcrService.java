@@ -1,72 +1,123 @@
 package com.marsk.docassist.service;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.BufferedImageOp;
-import java.awt.image.ConvolveOp;
-import java.awt.image.Kernel;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper; // Added for direct text extraction
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.marsk.docassist.config.OcrConfig;
+import com.marsk.docassist.model.OcrResult;
 import com.marsk.docassist.model.OcrTextDocument; // Added import
 import com.marsk.docassist.repository.OcrTextDocumentRepository; // Added import
+import com.marsk.docassist.util.ImagePreprocessor;
+import com.marsk.docassist.util.TextBlockDetector;
 
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
 import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
 
 @Service
 public class OcrService {
 
     private static final Logger logger = LoggerFactory.getLogger(OcrService.class);
-    private final ITesseract tesseractInstance;
+    private final TesseractEnginePool enginePool;
+    private final OcrTextDocumentRepository ocrTextDocumentRepository;
+    private final OcrConfig ocrConfig;
+    private final ExecutorService ocrPageExecutor;
+    private final TextLayerEvaluator textLayerEvaluator;
+    private final OcrResultCache ocrResultCache;
+    private final ImageType renderImageType;
+    private final RenderDpiSelector renderDpiSelector;
+    private final ImagePreprocessor imagePreprocessor;
+    private final TextBlockDetector textBlockDetector = new TextBlockDetector();
+    private final InvoiceRegionSelector regionSelector;
+    private final OcrEscalationPolicy escalationPolicy;
+    private final ImagePreprocessor fastPreprocessor = new ImagePreprocessor(List.of(), 1.0, 0);
 
-    @Autowired // Added repository injection
-    private OcrTextDocumentRepository ocrTextDocumentRepository;
+    public OcrService(TesseractEnginePool enginePool, OcrTextDocumentRepository ocrTextDocumentRepository,
+                      OcrConfig ocrConfig, @Qualifier("ocrPageExecutor") ExecutorService ocrPageExecutor,
+                      OcrResultCache ocrResultCache) {
+        this.enginePool = enginePool;
+        this.ocrTextDocumentRepository = ocrTextDocumentRepository;
+        this.ocrConfig = ocrConfig;
+        this.ocrPageExecutor = ocrPageExecutor;
+        this.ocrResultCache = ocrResultCache;
+        this.textLayerEvaluator = new TextLayerEvaluator(
+                ocrConfig.getTextLayerMinChars(), ocrConfig.getTextLayerMinPlausibleRatio());
+        this.renderImageType = resolveRenderImageType(ocrConfig.getPdfRenderImageType());
+        this.renderDpiSelector = ocrConfig.isAdaptiveDpi()
+                ? new RenderDpiSelector(ocrConfig.getInitialDpi(), ocrConfig.getMaxDpi(), ocrConfig.getMinTextHeightPx())
+                : null;
+        this.imagePreprocessor = new ImagePreprocessor(ImagePreprocessor.Stage.parse(ocrConfig.getPreprocessStages()),
+                ocrConfig.getPreprocessUpscaleFactor(), ocrConfig.getPreprocessDeskewMaxDegrees());
+        logger.info("OCR preprocessing stages: {}", imagePreprocessor.getStages());
+        this.regionSelector = ocrConfig.isRoiEnabled()
+                ? new InvoiceRegionSelector(ocrConfig.getRoiHeaderFraction(), ocrConfig.getRoiMaxCoverage())
+                : null;
+        this.escalationPolicy = ocrConfig.isEscalationEnabled()
+                ? new OcrEscalationPolicy(ocrConfig.getEscalationMinPageConfidence(),
+                        ocrConfig.getEscalationMinExtractionConfidence())
+                : null;
+    }
 
-    public OcrService() {
-        tesseractInstance = new Tesseract();
-        
-        // Set the path to the Tesseract data directory (where tessdata is located)
+    private static ImageType resolveRenderImageType(String configured) {
         try {
-            // Set tessdata directory path - first try app root directory
-            String userDir = System.getProperty("user.dir");
-            File tessDataDir = new File(userDir, "tessdata");
-            
-            if (tessDataDir.exists() && tessDataDir.isDirectory()) {
-                logger.info("Using tessdata directory: {}", tessDataDir.getAbsolutePath());
-                tesseractInstance.setDatapath(tessDataDir.getAbsolutePath());
-            } else {
-                logger.warn("Tessdata directory not found at: {}. Using system default.", tessDataDir.getAbsolutePath());
-            }
-            
-            tesseractInstance.setLanguage("eng"); // Default to English, can be made configurable
-            
-            // Add additional options to improve PDF processing
-            tesseractInstance.setPageSegMode(3); // PSM_AUTO - Fully automatic page segmentation, but no OSD.
-            tesseractInstance.setOcrEngineMode(1); // Neural net based LSTM engine only
-            
-            logger.info("Initialized Tesseract OCR service with PSM_AUTO (3)");
-        } catch (Exception e) {
-            logger.error("Error configuring Tesseract OCR: {}", e.getMessage());
+            return ImageType.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            logger.warn("Unknown PDF render image type '{}', rendering pages in GRAY", configured);
+            return ImageType.GRAY;
         }
-    }    
-    
+    }
+
+    /**
+     * Buffering policy for a PDF being loaded. In mixed mode each document keeps at most
+     * the configured amount of main memory and spills the rest to a scratch file, so
+     * large scans with many embedded images do not inflate the heap.
+     */
+    private MemoryUsageSetting pdfMemoryUsage() {
+        long maxMainMemoryBytes = ocrConfig.getPdfMaxMainMemoryMb() * 1024 * 1024;
+        switch (ocrConfig.getPdfMemoryMode().trim().toLowerCase(Locale.ROOT)) {
+            case "main-memory":
+                return MemoryUsageSetting.setupMainMemoryOnly();
+            case "temp-file":
+                return MemoryUsageSetting.setupTempFileOnly();
+            default:
+                return MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        }
+    }
+
     public String performOcr(MultipartFile file) throws IOException, TesseractException {
         return performOcr(file, "eng"); // Default to English
     }
@@ -81,64 +132,173 @@ public class OcrService {
      * @throws TesseractException If there is an error during OCR processing
      */
     public String performOcr(MultipartFile file, String language) throws IOException, TesseractException {
+        return performOcrWithDetails(file, language).getText();
+    }
+
+    /**
+     * Performs OCR on a file and returns the text together with per-page results and timings.
+     *
+     * @param file The file to process
+     * @param language The language to use for OCR
+     * @return The OCR result for the whole document
+     * @throws IOException If there is an error reading/writing the file
+     * @throws TesseractException If there is an error during OCR processing
+     */
+    public OcrResult performOcrWithDetails(MultipartFile file, String language) throws IOException, TesseractException {
+        return performOcrWithDetails(file, file.getOriginalFilename(), language, null);
+    }
+
+    /**
+     * Performs OCR on a file starting from the given pass, for example to recognise a document
+     * again with the standard pass after its fast-pass text produced an incomplete invoice.
+     *
+     * @param file The file to process
+     * @param language The language to use for OCR
+     * @param firstPass The pass rendered pages are recognised with first
+     * @return The OCR result for the whole document
+     * @throws IOException If there is an error reading/writing the file
+     * @throws TesseractException If there is an error during OCR processing
+     */
+    public OcrResult performOcrWithDetails(MultipartFile file, String language, OcrResult.OcrPass firstPass)
+            throws IOException, TesseractException {
+        return performOcrWithDetails(file, file.getOriginalFilename(), language, firstPass);
+    }
+
+    /**
+     * Performs OCR on a file already stored on disk, such as an upload staged for a batch job.
+     *
+     * @param file The path of the file to process
+     * @param originalFilename The name the file was uploaded with, used to detect PDFs and for logging
+     * @param language The language to use for OCR
+     * @return The OCR result for the whole document
+     * @throws IOException If there is an error reading the file
+     * @throws TesseractException If there is an error during OCR processing
+     */
+    public OcrResult performOcrWithDetails(Path file, String originalFilename, String language) throws IOException, TesseractException {
+        return performOcrWithDetails(new FileSystemResource(file), originalFilename, language, null);
+    }
+
+    /**
+     * Performs OCR on a file already stored on disk starting from the given pass.
+     *
+     * @see #performOcrWithDetails(MultipartFile, String, OcrResult.OcrPass)
+     */
+    public OcrResult performOcrWithDetails(Path file, String originalFilename, String language, OcrResult.OcrPass firstPass)
+            throws IOException, TesseractException {
+        return performOcrWithDetails(new FileSystemResource(file), originalFilename, language, firstPass);
+    }
+
+    /**
+     * Checks whether a document should be recognised again with the standard pass because the
+     * invoice extracted from its text is incomplete and some pages still come from the fast pass.
+     *
+     * @param ocrResult The OCR result the invoice was extracted from
+     * @param extractionConfidence The confidence of the extraction (0-1)
+     * @return true if a standard-pass retry may improve the extraction
+     */
+    public boolean shouldEscalate(OcrResult ocrResult, double extractionConfidence) {
+        return escalationPolicy != null && escalationPolicy.needsDocumentEscalation(ocrResult, extractionConfidence);
+    }
+
+    /**
+     * Checks whether a document should be recognised again with the standard pass because no text
+     * was found in it and some pages still come from the fast pass.
+     *
+     * @param ocrResult The OCR result of the first attempt
+     * @return true if a standard-pass retry may find text
+     */
+    public boolean shouldEscalateEmptyText(OcrResult ocrResult) {
+        return escalationPolicy != null && escalationPolicy.needsEmptyTextEscalation(ocrResult);
+    }
+
+    private OcrResult performOcrWithDetails(InputStreamSource file, String uploadedFilename, String language,
+                                            OcrResult.OcrPass requestedPass) throws IOException, TesseractException {
+        String originalFilename = uploadedFilename != null ? uploadedFilename : "unknown_file";
         Path tempFile = null;
         
         try {
-            // Set the language
-            tesseractInstance.setLanguage(language);
-            logger.info("Setting OCR language to: {}", language);
+            boolean pdf = originalFilename.toLowerCase().endsWith(".pdf");
+            OcrResult.OcrPass firstPass = requestedPass != null ? requestedPass
+                    : escalationPolicy != null ? OcrResult.OcrPass.FAST : OcrResult.OcrPass.STANDARD;
+            String profile = cacheProfile(pdf, firstPass);
             
-            // Create a temporary file from the MultipartFile
-            String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null) {
-                originalFilename = "unknown_file";
+            // Repeat uploads of the same bytes are served from the cache instead of re-running OCR
+            String contentHash;
+            try (InputStream uploadStream = file.getInputStream()) {
+                contentHash = OcrResultCache.sha256(uploadStream);
             }
-            
-            tempFile = Files.createTempFile("ocr_temp_", "_" + originalFilename);
-            try (FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
-                fos.write(file.getBytes());
+            Optional<OcrResult> cached = ocrResultCache.lookup(contentHash, language, profile);
+            if (cached.isPresent()) {
+                logger.info("Returning cached OCR result for file: {} ({} chars, {} ms)",
+                        originalFilename, cached.get().getText().length(), cached.get().getDurationMs());
+                return cached.get();
             }
             
             logger.info("Performing OCR on file: {} with language: {}", originalFilename, language);
             
-            if (originalFilename.toLowerCase().endsWith(".pdf")) {
-                return processPdfFile(tempFile.toFile(), language);
+            OcrResult ocrResult;
+            String documentType;
+            if (pdf) {
+                // PDFBox needs random access to the document, so uploads still go through a temporary file
+                File pdfFile;
+                if (file instanceof FileSystemResource resource) {
+                    pdfFile = resource.getFile();
+                } else {
+                    tempFile = copyToTempFile(file, "ocr_temp_", originalFilename);
+                    pdfFile = tempFile.toFile();
+                }
+                ocrResult = processPdfFile(pdfFile, language, firstPass);
+                documentType = null;
             } else {
-                // Process as regular image file with improved OCR settings
-                tesseractInstance.setPageSegMode(6); // Assume single uniform block
-                tesseractInstance.setOcrEngineMode(1); // LSTM only
-                
-                // Apply language-specific config
-                if ("ita".equals(language)) {
-                    tesseractInstance.setTessVariable("tessedit_char_whitelist",
-                        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyzàèéìòù");
+                // Decode the upload in memory and hand the pixels straight to the engine
+                BufferedImage image;
+                try (InputStream imageStream = file.getInputStream()) {
+                    image = ImageIO.read(imageStream);
                 }
                 
-                String result = tesseractInstance.doOCR(tempFile.toFile());
-                
-                // Save the OCR result
-                if (result != null && !result.isEmpty()) {
-                    OcrTextDocument doc = new OcrTextDocument(
-                        originalFilename,
-                        result,
-                        language,
-                        "invoice" // Default document type
-                    );
-                    ocrTextDocumentRepository.save(doc);
-                    logger.info("Saved OCR result for file: {}", originalFilename);
+                // Process as regular image file with an engine set up for a single uniform block
+                long recognitionStart = System.nanoTime();
+                String result;
+                List<OcrResult.Word> words = List.of();
+                try (TesseractEnginePool.Lease lease = enginePool.borrow(language, OcrProfile.SINGLE_BLOCK)) {
+                    if (image != null) {
+                        words = recogniseWords(lease.engine(), image);
+                        result = OcrTextAssembler.assemble(words);
+                    } else {
+                        // No ImageIO reader for this format; let Tesseract decode it from disk
+                        logger.debug("No image reader available for {}, falling back to file-based OCR", originalFilename);
+                        tempFile = copyToTempFile(file, "ocr_temp_", originalFilename);
+                        result = lease.engine().doOCR(tempFile.toFile());
+                    }
                 }
+                long recognitionMs = elapsedMs(recognitionStart);
                 
-                return result.toString().trim();
+                String text = result != null ? result.trim() : "";
+                OcrResult.PageResult page = new OcrResult.PageResult(1, text);
+                page.setPass(OcrResult.OcrPass.STANDARD);
+                page.setWords(words);
+                page.setRecognitionMs(recognitionMs);
+                ocrResult = new OcrResult(text, List.of(page), recognitionMs);
+                documentType = "invoice"; // Default document type
             }
+            
+            // Save the OCR result; the saved row is also the persistent tier of the OCR cache
+            if (ocrResult.getText() != null && !ocrResult.getText().isBlank()) {
+                OcrTextDocument doc = new OcrTextDocument(originalFilename, ocrResult.getText(), language, documentType);
+                doc.setContentHash(contentHash);
+                doc.setOcrProfile(profile);
+                doc.setPageMetadata(OcrResultCache.pageMetadata(ocrResult));
+                ocrTextDocumentRepository.save(doc);
+                logger.info("Saved OCR result for file: {}", originalFilename);
+            }
+            ocrResultCache.put(contentHash, language, profile, ocrResult);
+            
+            return ocrResult;
         } catch (IOException e) {
-            logger.error("IOException during OCR file handling for {}: {}", 
-                    file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown file", 
-                    e.getMessage());
+            logger.error("IOException during OCR file handling for {}: {}", originalFilename, e.getMessage());
             throw e; // Re-throw to be handled by controller
         } catch (TesseractException e) {
-            logger.error("TesseractException during OCR for {}: {}", 
-                    file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown file", 
-                    e.getMessage());
+            logger.error("TesseractException during OCR for {}: {}", originalFilename, e.getMessage());
             logger.error("Tesseract error details: {}", e.getMessage());
             if (e.getCause() != null) {
                 logger.error("Tesseract cause: {}", e.getCause().getMessage());
@@ -157,6 +317,48 @@ public class OcrService {
         }
     }
 
+    /**
+     * Streams an upload into a new temporary file without buffering it on the heap.
+     * Multipart uploads are handed to {@link MultipartFile#transferTo(Path)}, which copies
+     * straight from the part the container has already spooled.
+     */
+    private Path copyToTempFile(InputStreamSource source, String prefix, String originalFilename) throws IOException {
+        Path tempFile = Files.createTempFile(prefix, "_" + originalFilename.replaceAll("[^A-Za-z0-9._-]", "_"));
+        try {
+            if (source instanceof MultipartFile multipartFile) {
+                multipartFile.transferTo(tempFile);
+            } else {
+                try (InputStream in = source.getInputStream()) {
+                    Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
+    /**
+     * Describes the OCR settings that determine the extracted text, so that cached
+     * results produced with different settings are never reused.
+     */
+    private String cacheProfile(boolean pdf, OcrResult.OcrPass firstPass) {
+        if (pdf) {
+            String dpi = renderDpiSelector != null
+                    ? "adaptive-" + ocrConfig.getInitialDpi() + "-" + ocrConfig.getMaxDpi() + "-" + ocrConfig.getMinTextHeightPx()
+                    : String.valueOf(ocrConfig.getFixedDpi());
+            String ladder = firstPass == OcrResult.OcrPass.FAST
+                    ? "fast@" + ocrConfig.getEscalationFastDpi() + "<" + ocrConfig.getEscalationMinPageConfidence() + ">"
+                    : "";
+            return "pdf:" + ladder + OcrProfile.PAGE_AUTO.name() + ":" + renderImageType.name() + "@" + dpi
+                    + ":" + imagePreprocessor.getStages()
+                    + (regionSelector != null ? "+roi" : "")
+                    + (ocrConfig.isTextLayerEnabled() ? "+text-layer" : "");
+        }
+        return "image:" + OcrProfile.SINGLE_BLOCK.name();
+    }
+
     /**
      * Extracts text directly from a PDF file without performing OCR.
      * Uses PDFBox's PDFTextStripper.
@@ -175,12 +377,9 @@ public class OcrService {
 
         Path tempFile = null;
         try {
-            tempFile = Files.createTempFile("direct_text_extract_", "_" + originalFilename);
-            try (FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
-                fos.write(file.getBytes());
-            }
+            tempFile = copyToTempFile(file, "direct_text_extract_", originalFilename);
 
-            try (PDDocument document = PDDocument.load(tempFile.toFile())) {
+            try (PDDocument document = PDDocument.load(tempFile.toFile(), pdfMemoryUsage())) {
                 if (document.isEncrypted()) {
                     logger.warn("PDF file {} is encrypted. Cannot extract text directly.", originalFilename);
                     // Optionally, you could try to decrypt with an empty password, but this often fails.
@@ -211,74 +410,113 @@ public class OcrService {
         }
     }
     
-    private String processPdfFile(File pdfFile) throws IOException, TesseractException {
-        return processPdfFile(pdfFile, "eng"); // Default to English
+    private OcrResult processPdfFile(File pdfFile) throws IOException, TesseractException {
+        return processPdfFile(pdfFile, "eng", OcrResult.OcrPass.STANDARD); // Default to English
     }
     
     /**
      * Process a PDF file for OCR.
+     * Pages with a dense, plausible text layer are read directly and never rasterised;
+     * only scanned or image-only pages are rendered and recognised.
+     * Pages are rendered one after another on the calling thread, since PDFRenderer is not
+     * thread-safe, while preprocessing and recognition of the rendered pages run in parallel
+     * on the page executor. The page texts are reassembled in page order.
+     * When the first pass is the fast pass, pages it could not read confidently are rendered
+     * and recognised again with the standard pass.
      * 
      * @param pdfFile The PDF file to process
      * @param language The language to use for OCR
-     * @return The extracted text
+     * @param firstPass The pass rendered pages are recognised with first
+     * @return The OCR result with the text and timings of every page
      * @throws IOException If there is an error reading/writing the file
      * @throws TesseractException If there is an error during OCR processing
      */
-    private String processPdfFile(File pdfFile, String language) throws IOException, TesseractException {
-        StringBuilder extractedText = new StringBuilder();
+    private OcrResult processPdfFile(File pdfFile, String language, OcrResult.OcrPass firstPass)
+            throws IOException, TesseractException {
+        long documentStart = System.nanoTime();
         
-        try (PDDocument document = PDDocument.load(pdfFile)) {
+        try (PDDocument document = PDDocument.load(pdfFile, pdfMemoryUsage())) {
             PDFRenderer pdfRenderer = new PDFRenderer(document);
+            PDFTextStripper textStripper = ocrConfig.isTextLayerEnabled() ? new PDFTextStripper() : null;
             int pageCount = document.getNumberOfPages();
             
             logger.info("Processing PDF with {} pages using language: {}", pageCount, language);
             
-            // Process each page of the PDF
-            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
-                logger.debug("Processing page {} of {}", pageIndex + 1, pageCount);
+            // Bounds the number of rendered pages held in memory while they wait for an engine
+            Semaphore pagesInFlight = new Semaphore(ocrConfig.getPageParallelism());
+            List<Future<OcrResult.PageResult>> pageFutures = new ArrayList<>(pageCount);
+            
+            try {
+                for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                    int pageNumber = pageIndex + 1;
+                    
+                    // Born-digital pages: use the embedded text and skip rasterisation entirely
+                    if (textStripper != null) {
+                        OcrResult.PageResult textLayerPage = readTextLayer(document, textStripper, pageNumber);
+                        if (textLayerPage != null) {
+                            pageFutures.add(CompletableFuture.completedFuture(textLayerPage));
+                            continue;
+                        }
+                    }
+                    
+                    pageFutures.add(submitPage(pdfRenderer, pageIndex, firstPass, language, pagesInFlight));
+                }
                 
-                // Render PDF page to image with higher DPI for better OCR results (increase from 300 to 400)
-                BufferedImage image = pdfRenderer.renderImageWithDPI(pageIndex, 400);
+                List<OcrResult.PageResult> pages = new ArrayList<>(pageCount);
+                for (Future<OcrResult.PageResult> pageFuture : pageFutures) {
+                    pages.add(awaitPage(pageFuture));
+                }
                 
-                // Apply image pre-processing if needed (for scanned documents)
-                BufferedImage processedImage = preprocessImageForOcr(image);
+                // Escalation ladder: only the pages the fast pass could not read confidently pay for the standard pass
+                int escalatedPages = 0;
+                if (escalationPolicy != null) {
+                    Map<Integer, Future<OcrResult.PageResult>> retries = new LinkedHashMap<>();
+                    for (int i = 0; i < pages.size(); i++) {
+                        if (escalationPolicy.needsPageEscalation(pages.get(i))) {
+                            logger.debug("Page {} recognised with confidence {}, escalating to the standard pass",
+                                    pages.get(i).getPageNumber(), pages.get(i).getConfidence());
+                            Future<OcrResult.PageResult> retry = submitPage(pdfRenderer, pages.get(i).getPageNumber() - 1,
+                                    OcrResult.OcrPass.STANDARD, language, pagesInFlight);
+                            pageFutures.add(retry);
+                            retries.put(i, retry);
+                        }
+                    }
+                    for (Map.Entry<Integer, Future<OcrResult.PageResult>> retry : retries.entrySet()) {
+                        OcrResult.PageResult fastPage = pages.get(retry.getKey());
+                        OcrResult.PageResult page = awaitPage(retry.getValue());
+                        page.setEscalated(true);
+                        page.setRenderMs(page.getRenderMs() + fastPage.getRenderMs());
+                        page.setPreprocessMs(page.getPreprocessMs() + fastPage.getPreprocessMs());
+                        page.setRecognitionMs(page.getRecognitionMs() + fastPage.getRecognitionMs());
+                        pages.set(retry.getKey(), page);
+                    }
+                    escalatedPages = retries.size();
+                }
                 
-                // Save the image temporarily
-                Path tempImageFile = Files.createTempFile("pdf_page_" + pageIndex + "_", ".png");
-                try {
-                    ImageIO.write(processedImage, "PNG", tempImageFile.toFile());
-                    
-                    // Configure Tesseract for better accuracy
-                    configureTesseractForPage(language);
-                    
-                    // Perform OCR on the image
-                    String pageText = tesseractInstance.doOCR(tempImageFile.toFile());
-                    
+                StringBuilder extractedText = new StringBuilder();
+                for (OcrResult.PageResult page : pages) {
                     // Add page number if multiple pages
                     if (pageCount > 1) {
-                        extractedText.append("--- Page ").append(pageIndex + 1).append(" ---\n");
+                        extractedText.append("--- Page ").append(page.getPageNumber()).append(" ---\n");
                     }
                     
-                    extractedText.append(pageText).append("\n");
-                    
-                } catch (TesseractException e) {
-                    logger.error("Error during OCR processing of PDF page {}: {}", pageIndex + 1, e.getMessage());
-                    throw e;
-                } finally {
-                    // Clean up temporary image file
-                    Files.deleteIfExists(tempImageFile);
+                    extractedText.append(page.getText()).append("\n");
+                }
+                
+                long durationMs = elapsedMs(documentStart);
+                long textLayerPages = pages.stream()
+                        .filter(p -> p.getExtractionMethod() == OcrResult.ExtractionMethod.TEXT_LAYER)
+                        .count();
+                logger.info("Successfully processed PDF with {} pages in {} ms ({} from text layer, {} OCR, {} escalated)",
+                        pageCount, durationMs, textLayerPages, pageCount - textLayerPages, escalatedPages);
+                
+                return new OcrResult(extractedText.toString(), pages, durationMs);
+            } finally {
+                // Stop any pages still queued when an earlier page failed
+                for (Future<OcrResult.PageResult> pageFuture : pageFutures) {
+                    pageFuture.cancel(true);
                 }
             }
-              logger.info("Successfully processed PDF with {} pages", pageCount);
-              
-            // Save the OCR result for PDF
-            if (extractedText.length() > 0) {
-                OcrTextDocument doc = new OcrTextDocument(pdfFile.getName(), extractedText.toString(), language);
-                ocrTextDocumentRepository.save(doc);
-                logger.info("Saved OCR result for PDF file: {}", pdfFile.getName());
-            }
-            
-            return extractedText.toString();
         } catch (IOException e) {
             logger.error("Error processing PDF file: {}", e.getMessage());
             throw new IOException("Error processing PDF file: " + e.getMessage(), e);
@@ -286,41 +524,222 @@ public class OcrService {
     }
     
     /**
-     * Preprocesses an image to enhance OCR accuracy.
-     * Applies various filters and adjustments to improve text recognition.
-     * 
-     * @param image The original image to process
-     * @return The processed image optimized for OCR
+     * Renders a page on the calling thread and submits its preprocessing and recognition
+     * to the page executor.
      */
-    private BufferedImage preprocessImageForOcr(BufferedImage image) {
-        // Create a copy of the image to work with
-        BufferedImage processedImage = new BufferedImage(
-                image.getWidth(), 
-                image.getHeight(),
-                BufferedImage.TYPE_INT_RGB);
+    private Future<OcrResult.PageResult> submitPage(PDFRenderer pdfRenderer, int pageIndex, OcrResult.OcrPass pass,
+                                                    String language, Semaphore pagesInFlight) throws IOException {
+        int pageNumber = pageIndex + 1;
+        logger.debug("Rendering page {} for the {} pass", pageNumber, pass);
+        acquirePageSlot(pagesInFlight);
         
-        Graphics2D g2d = processedImage.createGraphics();
+        long renderStart = System.nanoTime();
+        BufferedImage image;
+        int dpi;
+        try {
+            // Grayscale needs a quarter of the memory of RGB, binary a thirty-second
+            if (pass == OcrResult.OcrPass.FAST) {
+                dpi = ocrConfig.getEscalationFastDpi();
+                image = pdfRenderer.renderImageWithDPI(pageIndex, dpi, renderImageType);
+            } else if (renderDpiSelector != null) {
+                // Start low and re-render only pages whose text is too small to recognise reliably
+                dpi = renderDpiSelector.getInitialDpi();
+                BufferedImage preview = pdfRenderer.renderImageWithDPI(pageIndex, dpi, renderImageType);
+                int selectedDpi = renderDpiSelector.selectDpi(preview, dpi);
+                if (selectedDpi > dpi) {
+                    logger.debug("Re-rendering page {} at {} DPI", pageNumber, selectedDpi);
+                    preview = pdfRenderer.renderImageWithDPI(pageIndex, selectedDpi, renderImageType);
+                    dpi = selectedDpi;
+                }
+                image = preview;
+            } else {
+                dpi = ocrConfig.getFixedDpi();
+                image = pdfRenderer.renderImageWithDPI(pageIndex, dpi, renderImageType);
+            }
+        } catch (IOException | RuntimeException e) {
+            pagesInFlight.release();
+            throw e;
+        }
+        long renderMs = elapsedMs(renderStart);
+        int pageDpi = dpi;
         
-        // Fill background with white for better contrast
-        g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        try {
+            return ocrPageExecutor.submit(() -> {
+                try {
+                    return recognisePdfPage(image, pageNumber, pageDpi, renderMs, language, pass);
+                } finally {
+                    pagesInFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pagesInFlight.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Reads the embedded text layer of a page.
+     *
+     * @return The page result, or null if the text layer is missing or not plausible and the page needs OCR
+     */
+    private OcrResult.PageResult readTextLayer(PDDocument document, PDFTextStripper textStripper, int pageNumber) {
+        long start = System.nanoTime();
+        String layerText;
+        try {
+            textStripper.setStartPage(pageNumber);
+            textStripper.setEndPage(pageNumber);
+            layerText = textStripper.getText(document);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not read text layer of page {}, falling back to OCR: {}", pageNumber, e.getMessage());
+            return null;
+        }
+        
+        if (!textLayerEvaluator.isUsable(layerText)) {
+            logger.debug("Page {} has no usable text layer ({} chars), using OCR", pageNumber, layerText.trim().length());
+            return null;
+        }
         
-        // Draw the original image over the white background
-        g2d.drawImage(image, 0, 0, null);
-        g2d.dispose();
+        OcrResult.PageResult page = new OcrResult.PageResult(pageNumber, layerText);
+        page.setExtractionMethod(OcrResult.ExtractionMethod.TEXT_LAYER);
+        page.setRecognitionMs(elapsedMs(start));
+        logger.debug("Page {} taken from text layer ({} chars) in {} ms", pageNumber, layerText.length(), page.getRecognitionMs());
+        return page;
+    }
+    
+    /**
+     * Preprocesses and recognises one rendered PDF page.
+     */
+    private OcrResult.PageResult recognisePdfPage(BufferedImage image, int pageNumber, int dpi, long renderMs,
+                                                  String language, OcrResult.OcrPass pass) throws TesseractException {
+        boolean fast = pass == OcrResult.OcrPass.FAST;
+        OcrResult.PageResult page = new OcrResult.PageResult();
+        page.setPageNumber(pageNumber);
+        page.setPass(pass);
+        page.setDpi(dpi);
+        page.setRenderMs(renderMs);
         
-        // Apply a light sharpen filter to enhance text edges
-        float[] sharpenKernel = {
-             0.0f, -0.2f,  0.0f,
-            -0.2f,  1.8f, -0.2f,
-             0.0f, -0.2f,  0.0f
-        };
+        // Apply image pre-processing if needed (for scanned documents)
+        long preprocessStart = System.nanoTime();
+        ImagePreprocessor.Result preprocessed = fast ? fastPreprocessor.process(image) : imagePreprocessor.process(image);
+        BufferedImage processedImage = preprocessed.getImage();
+        page.setPreprocessMs(elapsedMs(preprocessStart));
+        page.setPreprocessStageMs(preprocessed.getStageMs());
         
-        BufferedImageOp sharpenOp = new ConvolveOp(new Kernel(3, 3, sharpenKernel));
-        processedImage = sharpenOp.filter(processedImage, null);
+        List<Rectangle> regions = regionSelector != null && !fast
+                ? selectRegions(processedImage, page)
+                : Collections.emptyList();
         
-        return processedImage;    }
-
+        // Perform OCR on the in-memory image with an engine configured for full pages
+        long recognitionStart = System.nanoTime();
+        OcrProfile profile = fast ? OcrProfile.PAGE_FAST : OcrProfile.PAGE_AUTO;
+        try (TesseractEnginePool.Lease lease = enginePool.borrow(language, profile)) {
+            lease.engine().setVariable("user_defined_dpi", String.valueOf(dpi));
+            String text = null;
+            List<OcrResult.Word> words = null;
+            if (!regions.isEmpty()) {
+                // All regions stacked into one image, so the engine is initialised once per page
+                RegionMontage montage = RegionMontage.of(processedImage, regions,
+                        Math.max(20, processedImage.getHeight() / 50));
+                List<OcrResult.Word> regionWords = recogniseWords(lease.engine(), montage.getImage());
+                text = OcrTextAssembler.assemble(regionWords);
+                if (countVisibleChars(text) >= ocrConfig.getRoiMinChars()) {
+                    page.setRegionCount(regions.size());
+                    words = montage.toPageCoordinates(regionWords);
+                } else {
+                    logger.debug("Regions of page {} yielded too little text, recognising the whole page", pageNumber);
+                    text = null;
+                }
+            }
+            if (text == null) {
+                words = recogniseWords(lease.engine(), processedImage);
+                text = OcrTextAssembler.assemble(words);
+            }
+            page.setText(text);
+            page.setWords(words);
+        } catch (TesseractException e) {
+            logger.error("Error during OCR processing of PDF page {}: {}", pageNumber, e.getMessage());
+            throw e;
+        }
+        page.setRecognitionMs(elapsedMs(recognitionStart));
+        
+        logger.debug("Page {} processed in {} ms (render {} ms, preprocess {} ms, recognition {} ms), confidence {}",
+                pageNumber, page.getDurationMs(), page.getRenderMs(), page.getPreprocessMs(), page.getRecognitionMs(),
+                page.getConfidence());
+        return page;
+    }
+    
+    /**
+     * Recognises an image and returns its words with confidences and bounding boxes; the page
+     * text is assembled from these words, so a single recognition pass yields both.
+     */
+    private static List<OcrResult.Word> recogniseWords(ITesseract engine, BufferedImage image) {
+        return OcrTextAssembler.fromTesseract(engine.getWords(image, TessPageIteratorLevel.RIL_WORD));
+    }
+    
+    /**
+     * Detects the text blocks of a preprocessed page and selects the header and totals regions.
+     * The layout time is reported as its own preprocessing stage.
+     *
+     * @return The regions to recognise, or an empty list if the whole page should be recognised
+     */
+    private List<Rectangle> selectRegions(BufferedImage processedImage, OcrResult.PageResult page) {
+        long layoutStart = System.nanoTime();
+        List<Rectangle> regions;
+        try {
+            regions = regionSelector.select(textBlockDetector.detect(processedImage),
+                    processedImage.getWidth(), processedImage.getHeight());
+        } catch (RuntimeException e) {
+            logger.warn("Layout analysis of page {} failed, recognising the whole page: {}",
+                    page.getPageNumber(), e.getMessage());
+            regions = Collections.emptyList();
+        }
+        long layoutMs = elapsedMs(layoutStart);
+        
+        Map<String, Long> stageMs = new LinkedHashMap<>(page.getPreprocessStageMs());
+        stageMs.put("layout", layoutMs);
+        page.setPreprocessStageMs(stageMs);
+        page.setPreprocessMs(page.getPreprocessMs() + layoutMs);
+        return regions;
+    }
+    
+    private static long countVisibleChars(String text) {
+        return text == null ? 0 : text.chars().filter(c -> !Character.isWhitespace(c)).count();
+    }
+    
+    private void acquirePageSlot(Semaphore pagesInFlight) throws IOException {
+        try {
+            pagesInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering PDF pages", e);
+        }
+    }
+    
+    private OcrResult.PageResult awaitPage(Future<OcrResult.PageResult> pageFuture) throws IOException, TesseractException {
+        try {
+            return pageFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for PDF page OCR", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TesseractException tesseractException) {
+                throw tesseractException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("PDF page OCR failed: " + cause.getMessage(), cause);
+        }
+    }
+    
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+    
     /**
      * Saves an OCR result to the database.
      * This method is used to persist OCR extraction results for later retrieval and analysis.
@@ -358,24 +777,4 @@ public class OcrService {
         logger.info("Successfully saved OCR result with ID: {} for file: {}", savedDocument.getId(), filename);
         return savedDocument;
     }
-
-      /**
-     * Configures Tesseract parameters for optimal OCR based on the current page being processed.
-     * 
-     * @param language The OCR language
-     */
-    private void configureTesseractForPage(String language) {
-        // Language is set at the beginning of performOcr or processPdfFile.
-        // No need to set it again here per page if it's the same language.
-        // tesseractInstance.setLanguage(language);
-        
-        // Optimize Tesseract parameters based on the content
-        tesseractInstance.setPageSegMode(3); // PSM_AUTO - Fully automatic page segmentation, but no OSD.
-        
-        // Set DPI to improve recognition (can be adjusted based on the image quality)
-        tesseractInstance.setVariable("user_defined_dpi", "400");
-        
-        // Additional parameters to improve accuracy
-        tesseractInstance.setVariable("tessedit_char_whitelist", "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789.,;:!?()-+*/_'\"@#$%&=[]{}|<>àèìòùÀÈÌÒÙáéíóúÁÉÍÓÚ");
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package com.marsk.docassist.service;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.marsk.docassist.model.OcrResult;
+
+/**
+ * Rebuilds page text from the word-level results of a recognition pass, so the text and
+ * the word confidences come from the same pass. Tesseract returns words in reading order
+ * (block, paragraph, line), so lines are rebuilt by comparing each word with the previous one:
+ * a word to the right at the same height continues the line, anything else starts a new one,
+ * and a jump upwards or a gap taller than a line starts a new block.
+ */
+public final class OcrTextAssembler {
+
+    private OcrTextAssembler() {
+    }
+
+    /**
+     * Converts Tesseract words, skipping empty ones.
+     */
+    public static List<OcrResult.Word> fromTesseract(List<net.sourceforge.tess4j.Word> words) {
+        List<OcrResult.Word> converted = new ArrayList<>(words.size());
+        for (net.sourceforge.tess4j.Word word : words) {
+            String text = word.getText() != null ? word.getText().trim() : "";
+            if (!text.isEmpty()) {
+                Rectangle box = word.getBoundingBox();
+                converted.add(new OcrResult.Word(text, word.getConfidence(), box.x, box.y, box.width, box.height));
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Joins words into lines and blocks.
+     *
+     * @param words Words in reading order
+     * @return The page text, with lines separated by a newline and blocks by a blank line
+     */
+    public static String assemble(List<OcrResult.Word> words) {
+        StringBuilder text = new StringBuilder();
+        OcrResult.Word previous = null;
+        for (OcrResult.Word word : words) {
+            if (previous != null) {
+                if (continuesLine(previous, word)) {
+                    text.append(' ');
+                } else if (startsBlock(previous, word)) {
+                    text.append("\n\n");
+                } else {
+                    text.append('\n');
+                }
+            }
+            text.append(word.getText());
+            previous = word;
+        }
+        return text.toString();
+    }
+
+    private static boolean continuesLine(OcrResult.Word previous, OcrResult.Word word) {
+        int centerY = word.getY() + word.getHeight() / 2;
+        return word.getX() > previous.getX()
+                && centerY >= previous.getY()
+                && centerY <= previous.getY() + previous.getHeight();
+    }
+
+    private static boolean startsBlock(OcrResult.Word previous, OcrResult.Word word) {
+        int gap = word.getY() - (previous.getY() + previous.getHeight());
+        return word.getY() < previous.getY() || gap > previous.getHeight();
+    }
+}
@@ -0,0 +1,264 @@
+package com.marsk.docassist.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Shortens OCR text before it is sent to the model, since prompt length drives extraction latency.
+ * Page markers, whitespace runs and lines without content are dropped, and lines repeated across
+ * pages (headers, footers) are kept once. If the text is still over the token budget, the lines
+ * that most likely hold invoice fields, ranked by keyword, amount, date and VAT number density,
+ * are kept in their original order and the rest, such as line item detail and legal boilerplate,
+ * is dropped.
+ * Token counts are estimated at four characters per token; the model's tokenizer is not available here.
+ */
+public class OcrTextCondenser {
+
+    /**
+     * Condensed text and what was saved.
+     */
+    public static class Result {
+        private final String text;
+        private final int originalTokens;
+        private final int condensedTokens;
+        private final int originalLines;
+        private final int keptLines;
+
+        Result(String text, int originalTokens, int condensedTokens, int originalLines, int keptLines) {
+            this.text = text;
+            this.originalTokens = originalTokens;
+            this.condensedTokens = condensedTokens;
+            this.originalLines = originalLines;
+            this.keptLines = keptLines;
+        }
+
+        public String getText() { return text; }
+        public int getOriginalTokens() { return originalTokens; }
+        public int getCondensedTokens() { return condensedTokens; }
+        public int getSavedTokens() { return originalTokens - condensedTokens; }
+        public int getOriginalLines() { return originalLines; }
+        public int getKeptLines() { return keptLines; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("originalTokens", originalTokens);
+            map.put("sentTokens", condensedTokens);
+            map.put("savedTokens", getSavedTokens());
+            map.put("originalLines", originalLines);
+            map.put("keptLines", keptLines);
+            return map;
+        }
+    }
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final Pattern PAGE_MARKER = Pattern.compile("^-{2,}\\s*page\\s+\\d+\\s*-{2,}$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PAGE_COUNTER = Pattern.compile("^(page|pag\\.?|pagina)\\s*\\d+\\s*(of|di|/)\\s*\\d+$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern AMOUNT = Pattern.compile("\\d[\\d.,' ]*[.,]\\d{2}(?!\\d)");
+    private static final Pattern DATE = Pattern.compile("\\b\\d{1,2}[./-]\\d{1,2}[./-]\\d{2,4}\\b|\\b\\d{4}-\\d{2}-\\d{2}\\b");
+    private static final Pattern VAT_NUMBER = Pattern.compile("\\b(IT)?\\s?\\d{11}\\b|\\b[A-Z]{2}\\d{8,12}\\b");
+
+    // Labels of the fields in InvoiceData, in Italian and English
+    private static final String[] KEYWORDS = {
+        "fattura", "invoice", "p.iva", "p. iva", "partita iva", "vat", "iva", "imponibile", "totale", "total",
+        "netto", "net", "importo", "amount", "data", "date", "numero", "number", "n.", "nr", "cliente",
+        "customer", "bill to", "fornitore", "supplier", "vendor", "codice fiscale", "c.f.", "valuta",
+        "currency", "eur", "€", "descrizione", "description", "oggetto", "scadenza", "due"
+    };
+    private static final List<Pattern> KEYWORD_PATTERNS = Arrays.stream(KEYWORDS)
+            .map(OcrTextCondenser::wholeWord)
+            .toList();
+    // Legal and banking text that rarely holds a field
+    private static final String[] BOILERPLATE = {
+        "privacy", "gdpr", "d.lgs", "d.p.r", "dpr ", "ai sensi", "art.", "condizioni generali",
+        "terms and conditions", "regolamento", "reg. ue", "capitale sociale", "rea ", "iban", "swift", "bic",
+        "www.", "http", "@", "tel.", "fax"
+    };
+
+    private final boolean enabled;
+    private final int tokenBudget;
+
+    /**
+     * @param enabled Whether lines are cleaned and ranked at all
+     * @param tokenBudget Estimated tokens the condensed text may use; lines are only dropped for ranking above it
+     */
+    public OcrTextCondenser(boolean enabled, int tokenBudget) {
+        this.enabled = enabled;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * Condenses OCR text for the extraction prompt.
+     *
+     * @param ocrText The OCR text of a whole document
+     * @return The condensed text with token estimates; the original text if condensation is disabled
+     *         or would leave nothing
+     */
+    public Result condense(String ocrText) {
+        String text = ocrText != null ? ocrText : "";
+        List<String> rawLines = text.lines().toList();
+        int originalTokens = estimateTokens(text);
+        if (!enabled) {
+            return new Result(text, originalTokens, originalTokens, rawLines.size(), rawLines.size());
+        }
+
+        List<String> lines = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String rawLine : rawLines) {
+            String line = WHITESPACE.matcher(rawLine).replaceAll(" ").trim();
+            if (isNoise(line)) {
+                continue;
+            }
+            // Repeated page headers and footers are kept once
+            if (seen.add(line.toLowerCase(Locale.ROOT))) {
+                lines.add(line);
+            }
+        }
+        if (lines.isEmpty()) {
+            return new Result(text, originalTokens, originalTokens, rawLines.size(), rawLines.size());
+        }
+
+        List<String> kept = lines;
+        if (estimateTokens(lines) > tokenBudget) {
+            kept = selectWithinBudget(lines);
+        }
+
+        String condensed = String.join("\n", kept);
+        return new Result(condensed, originalTokens, estimateTokens(condensed), rawLines.size(), kept.size());
+    }
+
+    /**
+     * Keeps the highest scoring lines that fit the budget, in document order.
+     */
+    private List<String> selectWithinBudget(List<String> lines) {
+        double[] scores = new double[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            scores[i] = score(lines.get(i), i);
+        }
+        // A label without a value on its line usually has the value on the next one
+        for (int i = 1; i < lines.size(); i++) {
+            if (isLabelOnly(lines.get(i - 1))) {
+                scores[i] = Math.max(scores[i], scores[i - 1]);
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(a, b));
+
+        boolean[] selected = new boolean[lines.size()];
+        int tokens = 0;
+        for (int index : order) {
+            if (scores[index] <= 0) {
+                break;
+            }
+            int lineTokens = estimateTokens(lines.get(index)) + 1;
+            if (tokens + lineTokens <= tokenBudget) {
+                selected[index] = true;
+                tokens += lineTokens;
+            }
+        }
+
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (selected[i]) {
+                kept.add(lines.get(i));
+            }
+        }
+        return kept.isEmpty() ? lines.subList(0, 1) : kept;
+    }
+
+    private double score(String line, int position) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        double score = 0;
+        for (Pattern keyword : KEYWORD_PATTERNS) {
+            if (keyword.matcher(lower).find()) {
+                score += 2;
+            }
+        }
+        if (AMOUNT.matcher(line).find()) {
+            score += 2;
+        }
+        if (DATE.matcher(line).find()) {
+            score += 2;
+        }
+        if (VAT_NUMBER.matcher(line).find()) {
+            score += 3;
+        }
+        for (String phrase : BOILERPLATE) {
+            if (lower.contains(phrase)) {
+                score -= 3;
+            }
+        }
+        // Vendor name and address open the document, usually without any keyword
+        if (position < 5) {
+            score += 1.5;
+        }
+        // Long lines are mostly prose
+        if (line.length() > 160) {
+            score -= 2;
+        }
+        return score;
+    }
+
+    private static boolean isLabelOnly(String line) {
+        return line.length() <= 40 && line.chars().noneMatch(Character::isDigit)
+                && (line.endsWith(":") || containsKeyword(line.toLowerCase(Locale.ROOT)));
+    }
+
+    private static boolean containsKeyword(String lower) {
+        for (Pattern keyword : KEYWORD_PATTERNS) {
+            if (keyword.matcher(lower).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches a keyword only as a whole word, so "net" does not match "internet" nor "n." match "un.".
+     * Ends of the keyword that are punctuation, as in "n." or "€", need no boundary.
+     */
+    private static Pattern wholeWord(String keyword) {
+        String start = Character.isLetterOrDigit(keyword.charAt(0)) ? "(?<![\\p{L}\\p{N}])" : "";
+        String end = Character.isLetterOrDigit(keyword.charAt(keyword.length() - 1)) ? "(?![\\p{L}\\p{N}])" : "";
+        return Pattern.compile(start + Pattern.quote(keyword) + end);
+    }
+
+    /**
+     * Page markers and counters, and lines made mostly of rules, dots or OCR specks.
+     */
+    private static boolean isNoise(String line) {
+        if (line.isEmpty() || PAGE_MARKER.matcher(line).matches() || PAGE_COUNTER.matcher(line).matches()) {
+            return true;
+        }
+        int alphanumeric = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (Character.isLetterOrDigit(line.charAt(i))) {
+                alphanumeric++;
+            }
+        }
+        return alphanumeric < 2 || alphanumeric < line.length() * 0.4;
+    }
+
+    private static int estimateTokens(List<String> lines) {
+        int chars = lines.size();
+        for (String line : lines) {
+            chars += line.length();
+        }
+        return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -0,0 +1,190 @@
+package com.marsk.docassist.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marsk.docassist.config.OllamaConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Health of the Ollama server, checked without running a generation.
+ * A probe lists the installed models ({@code GET /api/tags}), which shows both that the server
+ * is reachable and that the configured model is available. The result is refreshed in the
+ * background and served from memory, so health checks do not take model capacity.
+ */
+@Component
+public class OllamaHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaHealthMonitor.class);
+
+    /**
+     * Outcome of one probe.
+     */
+    public static class Status {
+        private final boolean reachable;
+        private final boolean modelAvailable;
+        private final long latencyMs;
+        private final String error;
+        private final Instant checkedAt;
+
+        Status(boolean reachable, boolean modelAvailable, long latencyMs, String error, Instant checkedAt) {
+            this.reachable = reachable;
+            this.modelAvailable = modelAvailable;
+            this.latencyMs = latencyMs;
+            this.error = error;
+            this.checkedAt = checkedAt;
+        }
+
+        public boolean isHealthy() {
+            return reachable && modelAvailable;
+        }
+
+        public boolean isReachable() { return reachable; }
+        public boolean isModelAvailable() { return modelAvailable; }
+        public long getLatencyMs() { return latencyMs; }
+        public String getError() { return error; }
+        public Instant getCheckedAt() { return checkedAt; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("reachable", reachable);
+            map.put("modelAvailable", modelAvailable);
+            map.put("latencyMs", latencyMs);
+            map.put("checkedAt", checkedAt.toString());
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+
+    private final OllamaConfig ollamaConfig;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final URI tagsUri;
+    private final long ttlNanos;
+    private final ReentrantLock probeLock = new ReentrantLock();
+    private volatile Status status;
+    private volatile long statusNanos;
+
+    public OllamaHealthMonitor(OllamaConfig ollamaConfig) {
+        this.ollamaConfig = ollamaConfig;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(ollamaConfig.getHealthTimeoutSeconds()))
+                .build();
+        String baseUrl = ollamaConfig.getOllamaBaseUrl();
+        this.tagsUri = URI.create((baseUrl.endsWith("/") ? baseUrl : baseUrl + "/") + "api/tags");
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ollamaConfig.getHealthCacheTtlSeconds());
+    }
+
+    /**
+     * Returns the latest probe result. Only when it is older than the TTL, because the background
+     * refresh is not keeping up, is a probe run here; concurrent callers get the stale result meanwhile.
+     */
+    public Status getStatus() {
+        Status current = status;
+        if (current != null && System.nanoTime() - statusNanos < ttlNanos) {
+            return current;
+        }
+        if (current == null) {
+            probeLock.lock();
+        } else if (!probeLock.tryLock()) {
+            return current;
+        }
+        try {
+            // Another caller may have refreshed while this one waited for the lock
+            if (status == null || System.nanoTime() - statusNanos >= ttlNanos) {
+                probe();
+            }
+            return status;
+        } finally {
+            probeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ollama.health.refresh-interval-ms:5000}")
+    public void refresh() {
+        probeLock.lock();
+        try {
+            probe();
+        } finally {
+            probeLock.unlock();
+        }
+    }
+
+    private void probe() {
+        long start = System.nanoTime();
+        Status result;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(tagsUri)
+                    .timeout(Duration.ofSeconds(ollamaConfig.getHealthTimeoutSeconds()))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            long latencyMs = elapsedMs(start);
+            if (response.statusCode() != 200) {
+                result = new Status(false, false, latencyMs, "HTTP " + response.statusCode(), Instant.now());
+            } else {
+                String modelName = ollamaConfig.getOllamaModelName();
+                boolean available = hasModel(objectMapper.readTree(response.body()), modelName);
+                result = new Status(true, available, latencyMs,
+                        available ? null : "Model " + modelName + " is not installed", Instant.now());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = new Status(false, false, elapsedMs(start), "Interrupted", Instant.now());
+        } catch (Exception e) {
+            result = new Status(false, false, elapsedMs(start),
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(), Instant.now());
+        }
+
+        Status previous = status;
+        if (previous == null || previous.isHealthy() != result.isHealthy()) {
+            if (result.isHealthy()) {
+                logger.info("Ollama at {} is healthy ({} ms)", tagsUri, result.getLatencyMs());
+            } else {
+                logger.warn("Ollama at {} is unhealthy: {}", tagsUri, result.getError());
+            }
+        }
+        status = result;
+        statusNanos = System.nanoTime();
+    }
+
+    /**
+     * Checks whether the model list contains the model. A name without a tag matches
+     * its {@code :latest} variant, as in the Ollama CLI.
+     */
+    static boolean hasModel(JsonNode tags, String modelName) {
+        String wanted = normaliseModelName(modelName);
+        for (JsonNode model : tags.path("models")) {
+            String name = model.path("name").asText(model.path("model").asText(""));
+            if (normaliseModelName(name).equals(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normaliseModelName(String name) {
+        String normalised = name.trim().toLowerCase(Locale.ROOT);
+        return normalised.contains(":") ? normalised : normalised + ":latest";
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
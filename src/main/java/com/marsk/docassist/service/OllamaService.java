@@ -1,17 +1,47 @@
 package com.marsk.docassist.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.marsk.docassist.InvoiceExtractionAssistant;
 import com.marsk.docassist.config.OllamaConfig;
 import com.marsk.docassist.model.InvoiceData;
 import dev.langchain4j.model.ollama.OllamaChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
  * Service for extracting structured invoice data from OCR text using Ollama LLM
@@ -21,10 +51,25 @@ import java.time.Duration;
 @Service
 public class OllamaService {
     private static final Logger logger = LoggerFactory.getLogger(OllamaService.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
     
     private final InvoiceExtractionAssistant invoiceExtractionAssistant;
     private final ObjectMapper objectMapper;
     private final OllamaConfig ollamaConfig;
+    private final InvoiceExtractionCache extractionCache;
+    private final OcrTextCondenser textCondenser;
+    private final AtomicLong condensedDocuments = new AtomicLong();
+    private final AtomicLong originalPromptTokens = new AtomicLong();
+    private final AtomicLong sentPromptTokens = new AtomicLong();
+    private final RuleBasedInvoiceExtractor ruleExtractor = new RuleBasedInvoiceExtractor();
+    private final AtomicLong ruleExtractions = new AtomicLong();
+    private final AtomicLong modelSkipped = new AtomicLong();
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HttpClient streamingClient;
+    private final ScheduledThreadPoolExecutor streamDeadlines;
+    private final URI chatUri;
+    private final String streamingPromptVersion;
 
     public OllamaService(OllamaConfig ollamaConfig) {
         this.ollamaConfig = ollamaConfig;
@@ -36,13 +81,60 @@ public class OllamaService {
                 .baseUrl(ollamaConfig.getOllamaBaseUrl())
                 .modelName(ollamaConfig.getOllamaModelName())
                 .temperature(0.1)
-                .timeout(Duration.ofMinutes(5))
+                .numPredict(ollamaConfig.getNumPredict())
+                .timeout(REQUEST_TIMEOUT)
                 .build();
         
         // Create AI service
         this.invoiceExtractionAssistant = AiServices.builder(InvoiceExtractionAssistant.class)
                 .chatModel(chatModel)
                 .build();
+        
+        // Cache of extraction results, keyed on normalised text, model name and prompt version
+        long cacheTtlMinutes = ollamaConfig.getExtractionCacheExpireAfterWriteMinutes();
+        // Condensed text is what the model sees, so it is also what results are cached under
+        this.textCondenser = new OcrTextCondenser(
+                ollamaConfig.isCondenserEnabled(), ollamaConfig.getCondenserTokenBudget());
+        
+        this.extractionCache = new InvoiceExtractionCache(
+                ollamaConfig.isExtractionCacheEnabled(),
+                ollamaConfig.getOllamaModelName(),
+                ollamaConfig.getExtractionCacheMaxEntries(),
+                Duration.ofMinutes(cacheTtlMinutes > 0 ? cacheTtlMinutes : 1440));
+        
+        // The model server handles a few generations at a time; further callers wait here instead,
+        // and fail fast while the server is unreachable
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                ollamaConfig.getMaxConcurrentRequests(),
+                ollamaConfig.getLimiterMinLimit(),
+                ollamaConfig.getLimiterMaxLimit(),
+                ollamaConfig.getLimiterMaxQueue(),
+                TimeUnit.SECONDS.toNanos(ollamaConfig.getLimiterLatencyThresholdSeconds()),
+                ollamaConfig.getLimiterBackoffRatio());
+        this.circuitBreaker = new CircuitBreaker(
+                ollamaConfig.getCircuitBreakerFailureThreshold(),
+                ollamaConfig.getCircuitBreakerOpenSeconds(), TimeUnit.SECONDS);
+        
+        // Streaming extraction talks to the chat endpoint directly so it can hang up once the JSON is complete
+        this.streamingClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String baseUrl = ollamaConfig.getOllamaBaseUrl();
+        this.chatUri = URI.create((baseUrl.endsWith("/") ? baseUrl : baseUrl + "/") + "api/chat");
+        // The request timeout stops at the response headers; the body is closed from here when it runs late
+        this.streamDeadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ollama-stream-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.streamDeadlines.setRemoveOnCancelPolicy(true);
+        // The streaming request words and formats its prompt differently from the assistant, so its
+        // results are cached under a version of its own request template
+        try {
+            this.streamingPromptVersion = InvoiceExtractionCache.versionOf(buildStreamingChatRequest("{{text}}"));
+        } catch (JsonProcessingException | NoSuchMethodException e) {
+            throw new IllegalStateException("Cannot build the streaming chat request template", e);
+        }
     }
 
     /**
@@ -54,21 +146,41 @@ public class OllamaService {
      * @throws InvoiceExtractionException if extraction fails
      */
     public InvoiceData extractInvoiceData(String ocrText, String sourceFilename) throws InvoiceExtractionException {
-        if (ocrText == null || ocrText.trim().isEmpty()) {
-            logger.warn("Empty OCR text provided for invoice extraction");
-            throw new InvoiceExtractionException("Cannot extract invoice data from empty text");
+        requireText(ocrText);
+        RuleBasedInvoiceExtractor.Result rules = applyRules(ocrText, sourceFilename);
+        InvoiceData ruleData = completeFromRules(rules, sourceFilename);
+        if (ruleData != null) {
+            return ruleData;
+        }
+        return mergeRules(rules, extractInvoiceData(condense(ocrText, sourceFilename), sourceFilename));
+    }
+
+    private InvoiceData extractInvoiceData(OcrTextCondenser.Result prompt, String sourceFilename) throws InvoiceExtractionException {
+        String promptText = prompt.getText();
+
+        // Identical text (up to whitespace) was already extracted with this model and prompt
+        InvoiceData cachedData = extractionCache.get(promptText);
+        if (cachedData != null) {
+            cachedData.setSourceFilename(sourceFilename);
+            logger.info("Returning cached invoice extraction for file: {}. Invoice number: {}",
+                       sourceFilename, cachedData.getInvoiceNumber());
+            return cachedData;
         }
 
+        CircuitBreaker.Permit permit = acquireRequestSlot(sourceFilename);
+        long start = System.nanoTime();
+        boolean serverFailure = false;
         try {
             logger.info("Extracting invoice data from OCR text (length: {} chars) for file: {}", 
-                       ocrText.length(), sourceFilename);
+                       promptText.length(), sourceFilename);
             
             // Use the Langchain4j AI service to extract invoice data
-            InvoiceData invoiceData = invoiceExtractionAssistant.extractInvoiceData(ocrText);
+            InvoiceData invoiceData = invoiceExtractionAssistant.extractInvoiceData(promptText);
             
             // Set the source filename for tracking
             if (invoiceData != null) {
                 invoiceData.setSourceFilename(sourceFilename);
+                extractionCache.put(promptText, invoiceData);
                 
                 // Log extraction summary
                 logger.info("Successfully extracted invoice data for file: {}. Invoice number: {}, Vendor: {}, Total: {}", 
@@ -88,13 +200,304 @@ public class OllamaService {
             
             // Check for connectivity issues
             if (isConnectivityIssue(e)) {
+                serverFailure = true;
                 throw new InvoiceExtractionException(
                     "Failed to connect to Ollama server. Please ensure Ollama is running and accessible. Original error: " + e.getMessage(), e);
             } else {
                 throw new InvoiceExtractionException(
                     "Failed to extract invoice data: " + e.getMessage(), e);
             }
+        } finally {
+            releaseRequestSlot(permit, start, serverFailure);
+        }
+    }
+
+    /**
+     * Extracts structured invoice data while the model is still generating it.
+     * The response is streamed from the model server and parsed as it arrives: every field is passed
+     * to the listener as soon as its value is complete, and the connection is closed as soon as the
+     * closing brace of the JSON object arrives, which stops the generation on the server.
+     * 
+     * @param ocrText The OCR-extracted text from the invoice document
+     * @param sourceFilename The filename of the source document for tracking
+     * @param fieldListener Receives each {@code InvoiceData} field name and its JSON value as it completes
+     * @return InvoiceData object with extracted information
+     * @throws InvoiceExtractionException if extraction fails
+     */
+    public InvoiceData extractInvoiceDataStreaming(String ocrText, String sourceFilename,
+                                                   BiConsumer<String, JsonNode> fieldListener) throws InvoiceExtractionException {
+        requireText(ocrText);
+        RuleBasedInvoiceExtractor.Result rules = applyRules(ocrText, sourceFilename);
+        InvoiceData ruleData = completeFromRules(rules, sourceFilename);
+        if (ruleData != null) {
+            emitFields(ruleData, fieldListener);
+            return ruleData;
+        }
+        emitFields(rules.toInvoiceData(ollamaConfig.getRulesMinFieldConfidence()), fieldListener);
+        return mergeRules(rules, extractInvoiceDataStreaming(condense(ocrText, sourceFilename), sourceFilename, fieldListener));
+    }
+
+    private InvoiceData extractInvoiceDataStreaming(OcrTextCondenser.Result prompt, String sourceFilename,
+                                                    BiConsumer<String, JsonNode> fieldListener) throws InvoiceExtractionException {
+        String promptText = prompt.getText();
+        InvoiceData cachedData = extractionCache.get(promptText, streamingPromptVersion);
+        if (cachedData != null) {
+            cachedData.setSourceFilename(sourceFilename);
+            logger.info("Returning cached invoice extraction for file: {}. Invoice number: {}",
+                       sourceFilename, cachedData.getInvoiceNumber());
+            emitFields(cachedData, fieldListener);
+            return cachedData;
+        }
+
+        CircuitBreaker.Permit permit = acquireRequestSlot(sourceFilename);
+        long start = System.nanoTime();
+        boolean serverFailure = false;
+        boolean clientGone = false;
+        try {
+            logger.info("Streaming invoice data extraction from OCR text (length: {} chars) for file: {}", 
+                       promptText.length(), sourceFilename);
+
+            HttpRequest request = HttpRequest.newBuilder(chatUri)
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(buildStreamingChatRequest(promptText)))
+                    .build();
+            HttpResponse<InputStream> response = streamingClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long timeoutSeconds = ollamaConfig.getStreamingTimeoutSeconds();
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> deadline = streamDeadlines.schedule(() -> {
+                timedOut.set(true);
+                try {
+                    response.body().close();
+                } catch (IOException e) {
+                    logger.debug("Failed to close timed out stream for file {}", sourceFilename, e);
+                }
+            }, timeoutSeconds, TimeUnit.SECONDS);
+
+            StreamingJsonObjectParser parser = new StreamingJsonObjectParser((name, rawValue) -> {
+                try {
+                    fieldListener.accept(name, objectMapper.readTree(rawValue));
+                } catch (JsonProcessingException e) {
+                    logger.debug("Skipping unparseable streamed field {} for file {}", name, sourceFilename);
+                }
+            });
+            // Closing the body before the end of the stream drops the connection and ends the generation
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                if (response.statusCode() != 200) {
+                    serverFailure = response.statusCode() >= 500;
+                    throw new InvoiceExtractionException("Ollama returned HTTP " + response.statusCode()
+                            + ": " + reader.readLine());
+                }
+                String line;
+                while (!parser.isComplete() && (line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode chunk = objectMapper.readTree(line);
+                    if (chunk.hasNonNull("error")) {
+                        throw new InvoiceExtractionException("Ollama error: " + chunk.get("error").asText());
+                    }
+                    parser.feed(chunk.path("message").path("content").asText(""));
+                    if (chunk.path("done").asBoolean(false)) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                if (!timedOut.get()) {
+                    throw e;
+                }
+            } finally {
+                deadline.cancel(false);
+            }
+            if (timedOut.get()) {
+                serverFailure = true;
+                throw new InvoiceExtractionException("Ollama did not finish the response within " + timeoutSeconds + "s");
+            }
+            if (!parser.isComplete()) {
+                throw new InvoiceExtractionException("Model response ended before the invoice JSON was complete");
+            }
+
+            InvoiceData invoiceData = objectMapper.readerFor(InvoiceData.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(parser.getJson());
+            invoiceData.setSourceFilename(sourceFilename);
+            extractionCache.put(promptText, streamingPromptVersion, invoiceData);
+
+            logger.info("Successfully streamed invoice data for file: {} in {} ms. Invoice number: {}, Total: {}", 
+                       sourceFilename, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                       invoiceData.getInvoiceNumber(), invoiceData.getTotalAmount());
+            return invoiceData;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvoiceExtractionException("Interrupted while streaming invoice data", e);
+        } catch (InvoiceExtractionException e) {
+            logger.error("Error streaming invoice data from file {}: {}", sourceFilename, e.getMessage());
+            throw e;
+        } catch (UncheckedIOException e) {
+            // Thrown by the field listener when the client went away; says nothing about the server
+            clientGone = true;
+            logger.info("Client disconnected while streaming invoice data for file {}", sourceFilename);
+            throw new InvoiceExtractionException("Client disconnected: " + e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error streaming invoice data from file {}: {}", sourceFilename, e.getMessage(), e);
+            if (isConnectivityIssue(e)) {
+                serverFailure = true;
+                throw new InvoiceExtractionException(
+                    "Failed to connect to Ollama server. Please ensure Ollama is running and accessible. Original error: " + e.getMessage(), e);
+            } else {
+                throw new InvoiceExtractionException(
+                    "Failed to extract invoice data: " + e.getMessage(), e);
+            }
+        } finally {
+            if (clientGone) {
+                cancelRequestSlot(permit);
+            } else {
+                releaseRequestSlot(permit, start, serverFailure);
+            }
+        }
+    }
+
+    /**
+     * Builds an Ollama chat request with the same prompts as {@link InvoiceExtractionAssistant},
+     * asking for a streamed JSON response.
+     */
+    private String buildStreamingChatRequest(String ocrText) throws JsonProcessingException, NoSuchMethodException {
+        Method extraction = InvoiceExtractionAssistant.class.getMethod("extractInvoiceData", String.class);
+        String systemPrompt = String.join("\n", extraction.getAnnotation(SystemMessage.class).value());
+        String userPrompt = String.join("\n", extraction.getAnnotation(UserMessage.class).value())
+                .replace("{{text}}", ocrText);
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", ollamaConfig.getOllamaModelName());
+        body.put("stream", true);
+        body.put("format", "json");
+        body.putObject("options")
+                .put("temperature", 0.1)
+                .put("num_predict", ollamaConfig.getNumPredict());
+        body.putArray("messages")
+                .add(objectMapper.createObjectNode().put("role", "system").put("content", systemPrompt))
+                .add(objectMapper.createObjectNode().put("role", "user").put("content", userPrompt));
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private void emitFields(InvoiceData invoiceData, BiConsumer<String, JsonNode> fieldListener) {
+        Iterator<Map.Entry<String, JsonNode>> fields = objectMapper.valueToTree(invoiceData).fields();
+        fields.forEachRemaining(field -> {
+            if (!field.getValue().isNull()) {
+                fieldListener.accept(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    /**
+     * Runs the pattern rules on the OCR text; an empty result if they are disabled.
+     */
+    private RuleBasedInvoiceExtractor.Result applyRules(String ocrText, String sourceFilename) {
+        if (!ollamaConfig.isRulesEnabled()) {
+            return new RuleBasedInvoiceExtractor.Result();
+        }
+        ruleExtractions.incrementAndGet();
+        RuleBasedInvoiceExtractor.Result rules = ruleExtractor.extract(ocrText);
+        logger.debug("Rules found {} fields for file {}: {}", rules.getFieldConfidence().size(),
+                    sourceFilename, rules.getFieldConfidence());
+        return rules;
+    }
+
+    /**
+     * Returns the rule result as the extraction if its confident fields already reach the
+     * configured confidence score, so the model is not needed; null otherwise.
+     */
+    private InvoiceData completeFromRules(RuleBasedInvoiceExtractor.Result rules, String sourceFilename) {
+        if (!ollamaConfig.isRulesEnabled()) {
+            return null;
+        }
+        // A VAT number assigned to a party by its position alone may be the other party's; the model decides
+        if (rules.hasPositionalFields()) {
+            return null;
+        }
+        InvoiceData ruleData = rules.toInvoiceData(ollamaConfig.getRulesMinFieldConfidence());
+        double confidence = calculateConfidenceScore(ruleData);
+        if (confidence < ollamaConfig.getRulesSkipModelConfidence()) {
+            return null;
+        }
+        modelSkipped.incrementAndGet();
+        ruleData.setSourceFilename(sourceFilename);
+        ruleData.setProcessingNotes("Extracted by pattern rules without the model");
+        logger.info("Extracted invoice data for file {} by rules (confidence {}), skipping the model. Invoice number: {}",
+                   sourceFilename, confidence, ruleData.getInvoiceNumber());
+        return ruleData;
+    }
+
+    private InvoiceData mergeRules(RuleBasedInvoiceExtractor.Result rules, InvoiceData modelData) {
+        return rules.mergeInto(modelData, ollamaConfig.getRulesMinFieldConfidence());
+    }
+
+    private static void requireText(String ocrText) throws InvoiceExtractionException {
+        if (ocrText == null || ocrText.trim().isEmpty()) {
+            logger.warn("Empty OCR text provided for invoice extraction");
+            throw new InvoiceExtractionException("Cannot extract invoice data from empty text");
+        }
+    }
+
+    /**
+     * Condenses OCR text to the lines worth sending to the model and records the tokens saved.
+     */
+    private OcrTextCondenser.Result condense(String ocrText, String sourceFilename) {
+        OcrTextCondenser.Result prompt = textCondenser.condense(ocrText);
+        condensedDocuments.incrementAndGet();
+        originalPromptTokens.addAndGet(prompt.getOriginalTokens());
+        sentPromptTokens.addAndGet(prompt.getCondensedTokens());
+        logger.debug("Condensed OCR text of file {} from ~{} to ~{} tokens ({} of {} lines kept)",
+                    sourceFilename, prompt.getOriginalTokens(), prompt.getCondensedTokens(),
+                    prompt.getKeptLines(), prompt.getOriginalLines());
+        return prompt;
+    }
+
+    private void releaseRequestSlot(CircuitBreaker.Permit permit, long startNanos, boolean serverFailure) {
+        concurrencyLimiter.release(System.nanoTime() - startNanos, serverFailure);
+        if (serverFailure) {
+            circuitBreaker.recordFailure(permit);
+        } else {
+            // Parse and validation failures still mean the server answered
+            circuitBreaker.recordSuccess(permit);
+        }
+    }
+
+    /**
+     * Returns a slot for a call that was abandoned by the caller, without counting it for or against the server.
+     */
+    private void cancelRequestSlot(CircuitBreaker.Permit permit) {
+        concurrencyLimiter.cancel();
+        circuitBreaker.recordIgnored(permit);
+    }
+
+    /**
+     * Takes a slot for one extraction. Fails immediately while the circuit is open or the queue
+     * of waiting extractions is full, rather than letting the caller wait for the model timeout.
+     *
+     * @return The circuit breaker permit the outcome is reported with
+     */
+    private CircuitBreaker.Permit acquireRequestSlot(String sourceFilename) throws InvoiceExtractionException {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            throw new InvoiceExtractionException("Ollama server is unavailable after repeated failures; retry in "
+                    + circuitBreaker.getRetryAfterSeconds() + "s (file " + sourceFilename + ")");
+        }
+        long timeoutSeconds = ollamaConfig.getSlotTimeoutSeconds();
+        try {
+            if (!concurrencyLimiter.acquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                circuitBreaker.recordIgnored(permit);
+                throw new InvoiceExtractionException("Ollama server is overloaded: no request slot became free within "
+                        + timeoutSeconds + "s for file " + sourceFilename);
+            }
+        } catch (InterruptedException e) {
+            circuitBreaker.recordIgnored(permit);
+            Thread.currentThread().interrupt();
+            throw new InvoiceExtractionException("Interrupted while waiting for an Ollama request slot", e);
         }
+        return permit;
     }
 
     /**
@@ -124,23 +527,69 @@ public class OllamaService {
      * @return InvoiceExtractionResult with data and confidence information
      */
     public InvoiceExtractionResult processInvoice(String ocrText, String sourceFilename) {
+        OcrTextCondenser.Result prompt = null;
+        RuleBasedInvoiceExtractor.Result rules = null;
         try {
-            InvoiceData invoiceData = extractInvoiceData(ocrText, sourceFilename);
+            requireText(ocrText);
+            rules = applyRules(ocrText, sourceFilename);
+            InvoiceData invoiceData = completeFromRules(rules, sourceFilename);
+            if (invoiceData == null) {
+                prompt = condense(ocrText, sourceFilename);
+                invoiceData = mergeRules(rules, extractInvoiceData(prompt, sourceFilename));
+            }
             
             // Calculate confidence score based on extracted fields
             double confidence = calculateConfidenceScore(invoiceData);
             
-            return new InvoiceExtractionResult(invoiceData, true, confidence, null);
+            return new InvoiceExtractionResult(invoiceData, true, confidence, null, prompt);
             
         } catch (InvoiceExtractionException e) {
             logger.error("Invoice processing failed for file {}: {}", sourceFilename, e.getMessage());
             
-            // Return a result with error information
-            InvoiceData emptyData = new InvoiceData();
+            // Return a result with error information, keeping what the rules found
+            InvoiceData emptyData = rules != null
+                    ? rules.toInvoiceData(ollamaConfig.getRulesMinFieldConfidence())
+                    : new InvoiceData();
             emptyData.setSourceFilename(sourceFilename);
             emptyData.setProcessingNotes("Extraction failed: " + e.getMessage());
             
-            return new InvoiceExtractionResult(emptyData, false, 0.0, e.getMessage());
+            return new InvoiceExtractionResult(emptyData, false, 0.0, e.getMessage(), prompt);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #processInvoice(String, String)}; fields are passed to the listener
+     * as the model generates them.
+     * 
+     * @param ocrText The OCR-extracted text
+     * @param sourceFilename The source file name
+     * @param fieldListener Receives each field name and JSON value as it completes
+     * @return InvoiceExtractionResult with data and confidence information
+     */
+    public InvoiceExtractionResult processInvoiceStreaming(String ocrText, String sourceFilename,
+                                                           BiConsumer<String, JsonNode> fieldListener) {
+        OcrTextCondenser.Result prompt = null;
+        RuleBasedInvoiceExtractor.Result rules = null;
+        try {
+            requireText(ocrText);
+            rules = applyRules(ocrText, sourceFilename);
+            InvoiceData invoiceData = completeFromRules(rules, sourceFilename);
+            if (invoiceData != null) {
+                emitFields(invoiceData, fieldListener);
+            } else {
+                emitFields(rules.toInvoiceData(ollamaConfig.getRulesMinFieldConfidence()), fieldListener);
+                prompt = condense(ocrText, sourceFilename);
+                invoiceData = mergeRules(rules, extractInvoiceDataStreaming(prompt, sourceFilename, fieldListener));
+            }
+            return new InvoiceExtractionResult(invoiceData, true, calculateConfidenceScore(invoiceData), null, prompt);
+        } catch (InvoiceExtractionException e) {
+            logger.error("Streaming invoice processing failed for file {}: {}", sourceFilename, e.getMessage());
+            InvoiceData emptyData = rules != null
+                    ? rules.toInvoiceData(ollamaConfig.getRulesMinFieldConfidence())
+                    : new InvoiceData();
+            emptyData.setSourceFilename(sourceFilename);
+            emptyData.setProcessingNotes("Extraction failed: " + e.getMessage());
+            return new InvoiceExtractionResult(emptyData, false, 0.0, e.getMessage(), prompt);
         }
     }
 
@@ -148,7 +597,7 @@ public class OllamaService {
      * Calculates a confidence score for the extracted invoice data based on
      * the number and quality of extracted fields.
      */
-    private double calculateConfidenceScore(InvoiceData invoiceData) {
+    public double calculateConfidenceScore(InvoiceData invoiceData) {
         int totalFields = 11; // Total number of key fields
         int extractedFields = 0;
         
@@ -169,8 +618,20 @@ public class OllamaService {
 
     /**
      * Checks if an exception indicates a connectivity issue with the Ollama server.
+     * The cause chain is checked for network exception types first; message matching covers
+     * clients that wrap them in generic runtime exceptions.
      */
     private boolean isConnectivityIssue(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof ConnectException
+                    || t instanceof NoRouteToHostException
+                    || t instanceof UnknownHostException
+                    || t instanceof HttpTimeoutException
+                    || t instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+
         String errorMessage = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
         Throwable cause = e.getCause();
         String causeMessage = cause != null && cause.getMessage() != null ? cause.getMessage().toLowerCase() : "";
@@ -184,7 +645,9 @@ public class OllamaService {
                causeMessage.contains("connection refused") ||
                causeMessage.contains("failed to connect") ||
                causeMessage.contains("timeout");
-    }    /**
+    }
+
+    /**
      * Gets the configured Ollama API base URL.
      */
     public String getOllamaApiBaseUrl() {
@@ -192,19 +655,50 @@ public class OllamaService {
     }
 
     /**
-     * Simple health check to verify Ollama connectivity.
-     * 
-     * @return true if service is accessible, false otherwise
+     * Returns hit/miss statistics of the extraction result cache.
      */
-    public boolean isOllamaHealthy() {
-        try {
-            // Simple test with minimal text
-            InvoiceData testResult = invoiceExtractionAssistant.extractInvoiceData("Test connection");
-            return true; // If we get here, the service is responding
-        } catch (Exception e) {
-            logger.warn("Ollama health check failed: {}", e.getMessage());
-            return false;
-        }
+    public Map<String, Object> getExtractionCacheStats() {
+        Map<String, Object> stats = extractionCache.getStats();
+        stats.put("streamingPromptVersion", streamingPromptVersion);
+        return stats;
+    }
+
+    /**
+     * Returns usage of the Ollama request slots: the current adaptive limit, running and waiting
+     * extractions, rejections, and the state of the circuit breaker.
+     */
+    public Map<String, Object> getRequestSlotStats() {
+        Map<String, Object> stats = new HashMap<>(concurrencyLimiter.getStats());
+        stats.put("circuitBreaker", circuitBreaker.getStats());
+        return stats;
+    }
+
+    /**
+     * Returns how often the pattern rules ran and how often they made the model call unnecessary.
+     */
+    public Map<String, Object> getRuleExtractionStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long documents = ruleExtractions.get();
+        long skipped = modelSkipped.get();
+        stats.put("documents", documents);
+        stats.put("modelSkipped", skipped);
+        stats.put("modelSkippedRatio", documents > 0 ? (double) skipped / documents : 0.0);
+        return stats;
+    }
+
+    /**
+     * Returns estimated prompt tokens before and after OCR text condensation, over all documents.
+     */
+    public Map<String, Object> getPromptTokenStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long original = originalPromptTokens.get();
+        long sent = sentPromptTokens.get();
+        stats.put("documents", condensedDocuments.get());
+        stats.put("originalTokens", original);
+        stats.put("sentTokens", sent);
+        stats.put("savedTokens", original - sent);
+        stats.put("savedRatio", original > 0 ? (double) (original - sent) / original : 0.0);
+        return stats;
     }
 
     /**
@@ -215,18 +709,27 @@ public class OllamaService {
         private final boolean success;
         private final double confidence;
         private final String errorMessage;
+        private final OcrTextCondenser.Result prompt;
 
         public InvoiceExtractionResult(InvoiceData invoiceData, boolean success, double confidence, String errorMessage) {
+            this(invoiceData, success, confidence, errorMessage, null);
+        }
+
+        public InvoiceExtractionResult(InvoiceData invoiceData, boolean success, double confidence, String errorMessage,
+                                       OcrTextCondenser.Result prompt) {
             this.invoiceData = invoiceData;
             this.success = success;
             this.confidence = confidence;
             this.errorMessage = errorMessage;
+            this.prompt = prompt;
         }
 
         public InvoiceData getInvoiceData() { return invoiceData; }
         public boolean isSuccess() { return success; }
         public double getConfidence() { return confidence; }
         public String getErrorMessage() { return errorMessage; }
+        /** Token estimates of the condensed OCR text sent to the model; null if no prompt was built. */
+        public OcrTextCondenser.Result getPrompt() { return prompt; }
     }
 
     /**
@@ -0,0 +1,84 @@
+package com.marsk.docassist.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.marsk.docassist.model.OcrResult;
+
+/**
+ * Stacks the selected regions of a page into one image, separated by white gaps, so all
+ * regions are recognised in a single engine call; word boxes found on the montage are
+ * mapped back to page coordinates.
+ */
+class RegionMontage {
+
+    private final BufferedImage image;
+    private final List<Rectangle> regions;
+    private final int[] slotTops;
+
+    private RegionMontage(BufferedImage image, List<Rectangle> regions, int[] slotTops) {
+        this.image = image;
+        this.regions = regions;
+        this.slotTops = slotTops;
+    }
+
+    /**
+     * @param page The page the regions were selected on
+     * @param regions Regions in reading order, inside the page bounds
+     * @param gap White space between stacked regions, in pixels
+     */
+    static RegionMontage of(BufferedImage page, List<Rectangle> regions, int gap) {
+        int width = 0;
+        int height = 0;
+        int[] slotTops = new int[regions.size()];
+        for (int i = 0; i < regions.size(); i++) {
+            Rectangle region = regions.get(i);
+            slotTops[i] = height;
+            height += region.height + gap;
+            width = Math.max(width, region.width);
+        }
+
+        int type = page.getType() == BufferedImage.TYPE_BYTE_GRAY ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        BufferedImage montage = new BufferedImage(Math.max(1, width), Math.max(1, height), type);
+        Graphics2D g2d = montage.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, montage.getWidth(), montage.getHeight());
+        for (int i = 0; i < regions.size(); i++) {
+            Rectangle region = regions.get(i);
+            g2d.drawImage(page.getSubimage(region.x, region.y, region.width, region.height), 0, slotTops[i], null);
+        }
+        g2d.dispose();
+        return new RegionMontage(montage, List.copyOf(regions), slotTops);
+    }
+
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Moves words recognised on the montage to the coordinates of the page they came from.
+     */
+    List<OcrResult.Word> toPageCoordinates(List<OcrResult.Word> words) {
+        List<OcrResult.Word> mapped = new ArrayList<>(words.size());
+        for (OcrResult.Word word : words) {
+            int slot = slotOf(word.getY() + word.getHeight() / 2);
+            Rectangle region = regions.get(slot);
+            mapped.add(new OcrResult.Word(word.getText(), word.getConfidence(),
+                    word.getX() + region.x, word.getY() - slotTops[slot] + region.y,
+                    word.getWidth(), word.getHeight()));
+        }
+        return mapped;
+    }
+
+    private int slotOf(int y) {
+        int slot = 0;
+        while (slot + 1 < slotTops.length && slotTops[slot + 1] <= y) {
+            slot++;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,124 @@
+package com.marsk.docassist.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chooses the resolution a PDF page is recognised at.
+ * The page is first rendered at a low resolution and the height of its text lines is
+ * estimated from a horizontal projection of dark pixels; only pages whose text would be
+ * too small for Tesseract are rendered again at a higher resolution.
+ */
+public class RenderDpiSelector {
+
+    private static final int DARK_THRESHOLD = 128;
+    private static final int COLUMN_STEP = 2;
+    private static final int DPI_STEP = 50;
+    private static final int MIN_LINE_HEIGHT_PX = 3;
+    private static final int MIN_LINES = 3;
+
+    private final int initialDpi;
+    private final int maxDpi;
+    private final int minTextHeightPx;
+
+    public RenderDpiSelector(int initialDpi, int maxDpi, int minTextHeightPx) {
+        this.initialDpi = initialDpi;
+        this.maxDpi = Math.max(initialDpi, maxDpi);
+        this.minTextHeightPx = minTextHeightPx;
+    }
+
+    public int getInitialDpi() {
+        return initialDpi;
+    }
+
+    /**
+     * Returns the resolution the page should be recognised at.
+     *
+     * @param rendered The page rendered at {@code renderedDpi}
+     * @param renderedDpi The resolution of {@code rendered}
+     * @return {@code renderedDpi} if its text is large enough or no text lines were found, otherwise
+     *         a higher resolution rounded up to a multiple of 50 and capped at the maximum
+     */
+    public int selectDpi(BufferedImage rendered, int renderedDpi) {
+        double textHeight = estimateTextHeight(rendered);
+        if (textHeight <= 0) {
+            // No measurable text lines (blank page, separator, photo): a higher resolution would
+            // only make rendering and recognition of a page without text more expensive
+            return renderedDpi;
+        }
+        if (textHeight >= minTextHeightPx) {
+            return renderedDpi;
+        }
+
+        double requiredDpi = renderedDpi * minTextHeightPx / textHeight;
+        int roundedDpi = (int) Math.ceil(requiredDpi / DPI_STEP) * DPI_STEP;
+        return Math.min(Math.max(roundedDpi, renderedDpi), maxDpi);
+    }
+
+    /**
+     * Estimates the typical text line height in pixels as the median height of the bands of
+     * rows containing dark pixels. Bands taller than a tenth of the page, such as logos and
+     * photos, are ignored.
+     *
+     * @return The median line height, or -1 if fewer than three text lines were found
+     */
+    double estimateTextHeight(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int minInkPixels = Math.max(2, width / COLUMN_STEP / 500);
+        int maxLineHeight = Math.max(MIN_LINE_HEIGHT_PX, height / 10);
+
+        Raster raster = image.getRaster();
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                || image.getType() == BufferedImage.TYPE_BYTE_BINARY;
+        int[] row = new int[width];
+
+        List<Integer> lineHeights = new ArrayList<>();
+        int runStart = -1;
+        for (int y = 0; y <= height; y++) {
+            boolean ink = y < height && countDarkPixels(image, raster, gray, y, row) >= minInkPixels;
+            if (ink && runStart < 0) {
+                runStart = y;
+            } else if (!ink && runStart >= 0) {
+                int runHeight = y - runStart;
+                if (runHeight >= MIN_LINE_HEIGHT_PX && runHeight <= maxLineHeight) {
+                    lineHeights.add(runHeight);
+                }
+                runStart = -1;
+            }
+        }
+
+        if (lineHeights.size() < MIN_LINES) {
+            return -1;
+        }
+        Collections.sort(lineHeights);
+        return lineHeights.get(lineHeights.size() / 2);
+    }
+
+    private int countDarkPixels(BufferedImage image, Raster raster, boolean gray, int y, int[] row) {
+        int width = image.getWidth();
+        int dark = 0;
+        if (gray) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            // Binary rasters hold 0/1 samples, gray rasters 0..255
+            int threshold = image.getType() == BufferedImage.TYPE_BYTE_BINARY ? 1 : DARK_THRESHOLD;
+            for (int x = 0; x < width; x += COLUMN_STEP) {
+                if (row[x] < threshold) {
+                    dark++;
+                }
+            }
+        } else {
+            for (int x = 0; x < width; x += COLUMN_STEP) {
+                int rgb = image.getRGB(x, y);
+                int luminance = (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+                if (luminance < DARK_THRESHOLD) {
+                    dark++;
+                }
+            }
+        }
+        return dark;
+    }
+}
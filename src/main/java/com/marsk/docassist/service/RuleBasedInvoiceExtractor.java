@@ -0,0 +1,534 @@
+package com.marsk.docassist.service;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.marsk.docassist.model.InvoiceData;
+
+/**
+ * Extracts the invoice fields that follow fixed formats with compiled patterns, in microseconds
+ * and without the model: invoice number and date, VAT numbers, net, VAT and total amounts,
+ * currency, and vendor and client names where they carry a legal form or a label.
+ * Every field gets a confidence: values anchored on a label score higher than bare matches,
+ * Italian VAT numbers with a valid check digit and amounts where net plus VAT equals the total
+ * score highest. Instances are stateless and may be shared between threads.
+ */
+public class RuleBasedInvoiceExtractor {
+
+    /**
+     * The fields rules can fill, with their accessors on {@link InvoiceData}.
+     */
+    public enum Field {
+        INVOICE_NUMBER(InvoiceData::getInvoiceNumber, (d, v) -> d.setInvoiceNumber((String) v)),
+        INVOICE_DATE(InvoiceData::getInvoiceDate, (d, v) -> d.setInvoiceDate((LocalDate) v)),
+        VENDOR_NAME(InvoiceData::getVendorName, (d, v) -> d.setVendorName((String) v)),
+        VENDOR_VAT_NUMBER(InvoiceData::getVendorVatNumber, (d, v) -> d.setVendorVatNumber((String) v)),
+        CLIENT_NAME(InvoiceData::getClientName, (d, v) -> d.setClientName((String) v)),
+        CLIENT_VAT_NUMBER(InvoiceData::getClientVatNumber, (d, v) -> d.setClientVatNumber((String) v)),
+        NET_AMOUNT(InvoiceData::getNetAmount, (d, v) -> d.setNetAmount((BigDecimal) v)),
+        VAT_AMOUNT(InvoiceData::getVatAmount, (d, v) -> d.setVatAmount((BigDecimal) v)),
+        TOTAL_AMOUNT(InvoiceData::getTotalAmount, (d, v) -> d.setTotalAmount((BigDecimal) v)),
+        CURRENCY(InvoiceData::getCurrency, (d, v) -> d.setCurrency((String) v));
+
+        private final Function<InvoiceData, Object> getter;
+        private final BiConsumer<InvoiceData, Object> setter;
+
+        Field(Function<InvoiceData, Object> getter, BiConsumer<InvoiceData, Object> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        Object get(InvoiceData data) {
+            return getter.apply(data);
+        }
+
+        void set(InvoiceData data, Object value) {
+            setter.accept(data, value);
+        }
+    }
+
+    /**
+     * Field values found by the rules and the confidence of each, between 0 and 1.
+     */
+    public static class Result {
+        private final Map<Field, Object> values = new EnumMap<>(Field.class);
+        private final Map<Field, Double> confidence = new EnumMap<>(Field.class);
+        private final Set<Field> byPosition = EnumSet.noneOf(Field.class);
+
+        void put(Field field, Object value, double fieldConfidence) {
+            put(field, value, fieldConfidence, false);
+        }
+
+        /**
+         * @param positional True if only the value's place on the page assigns it to this field,
+         *                   not a label; such values give way to labelled ones whatever their confidence
+         */
+        void put(Field field, Object value, double fieldConfidence, boolean positional) {
+            if (value == null || (positional && values.containsKey(field) && !byPosition.contains(field))) {
+                return;
+            }
+            boolean replacesGuess = byPosition.contains(field) && !positional;
+            if (replacesGuess || fieldConfidence > confidence.getOrDefault(field, 0.0)) {
+                values.put(field, value);
+                confidence.put(field, fieldConfidence);
+                if (positional) {
+                    byPosition.add(field);
+                } else {
+                    byPosition.remove(field);
+                }
+            }
+        }
+
+        public Object getValue(Field field) {
+            return values.get(field);
+        }
+
+        public double getConfidence(Field field) {
+            return confidence.getOrDefault(field, 0.0);
+        }
+
+        /**
+         * Checks whether a field's value was assigned by its position on the page rather than by a label,
+         * such as a VAT number outside any party block being taken for the vendor's.
+         */
+        public boolean isPositional(Field field) {
+            return byPosition.contains(field);
+        }
+
+        public boolean hasPositionalFields() {
+            return !byPosition.isEmpty();
+        }
+
+        /**
+         * Returns the found fields with their confidence, keyed by {@link InvoiceData} property name.
+         */
+        public Map<String, Double> getFieldConfidence() {
+            Map<String, Double> byName = new LinkedHashMap<>();
+            confidence.forEach((field, value) -> byName.put(propertyName(field), value));
+            return byName;
+        }
+
+        /**
+         * Builds invoice data from the fields found with at least the given confidence.
+         */
+        public InvoiceData toInvoiceData(double minConfidence) {
+            InvoiceData data = new InvoiceData();
+            values.forEach((field, value) -> {
+                if (getConfidence(field) >= minConfidence) {
+                    field.set(data, value);
+                }
+            });
+            return data;
+        }
+
+        /**
+         * Combines rule and model results. Confident rule values fill the fields the model left
+         * empty, and validated amounts (net plus VAT equals the total) replace the model's.
+         * VAT numbers never replace the model's: the check digit proves a number is well-formed,
+         * not which party it belongs to, and a number the model assigned to the other party is not
+         * used to fill a gap either.
+         *
+         * @param modelData The model's extraction; it is copied, not modified
+         * @param minConfidence Confidence a rule value needs to be used at all
+         * @return The merged invoice data
+         */
+        public InvoiceData mergeInto(InvoiceData modelData, double minConfidence) {
+            InvoiceData merged = new InvoiceData(modelData);
+            values.forEach((field, value) -> {
+                double fieldConfidence = getConfidence(field);
+                if (fieldConfidence >= VALIDATED && VALIDATED_OVERRIDES.contains(field)) {
+                    field.set(merged, value);
+                } else if (fieldConfidence >= minConfidence && isEmpty(field.get(merged))
+                        && !heldByOtherParty(field, value, merged)) {
+                    field.set(merged, value);
+                }
+            });
+            return merged;
+        }
+
+        private static boolean heldByOtherParty(Field field, Object value, InvoiceData data) {
+            Field otherParty = field == Field.VENDOR_VAT_NUMBER ? Field.CLIENT_VAT_NUMBER
+                    : field == Field.CLIENT_VAT_NUMBER ? Field.VENDOR_VAT_NUMBER : null;
+            if (otherParty == null || otherParty.get(data) == null) {
+                return false;
+            }
+            return vatDigits(value.toString()).equals(vatDigits(otherParty.get(data).toString()));
+        }
+
+        private static String vatDigits(String vatNumber) {
+            return vatNumber.replaceAll("\\D", "");
+        }
+
+        private static boolean isEmpty(Object value) {
+            return value == null || (value instanceof String && ((String) value).isBlank());
+        }
+
+        private static String propertyName(Field field) {
+            String[] parts = field.name().toLowerCase(Locale.ROOT).split("_");
+            StringBuilder name = new StringBuilder(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                name.append(Character.toUpperCase(parts[i].charAt(0))).append(parts[i].substring(1));
+            }
+            return name.toString();
+        }
+    }
+
+    /** Confidence of values that passed a validation, not just a pattern. */
+    static final double VALIDATED = 0.95;
+    /** Fields whose validation is strong enough to replace the model's value: net + VAT = total. */
+    private static final Set<Field> VALIDATED_OVERRIDES =
+            EnumSet.of(Field.NET_AMOUNT, Field.VAT_AMOUNT, Field.TOTAL_AMOUNT);
+    private static final double LABELLED = 0.85;
+    private static final double UNLABELLED = 0.6;
+
+    // Lines after a client or vendor label that still belong to that party's block
+    private static final int PARTY_BLOCK_LINES = 4;
+    // The vendor's name is expected in the letterhead
+    private static final int LETTERHEAD_LINES = 8;
+
+    // Two decimals required; not part of a date, a longer number or a percentage
+    static final Pattern AMOUNT = Pattern.compile(
+            "(?<![\\d.,/-])\\d{1,3}(?:[.']?\\d{3})*[.,]\\d{2}(?![.,/-]?\\d)(?!\\s*%)");
+    private static final Pattern INVOICE_NUMBER = Pattern.compile(
+            "(?:fattura|invoice|documento|doc\\.)\\s*(?:number|n(?:r|o|um(?:ero)?)?(?![a-z])\\s*[.°º:#]?|#)\\s*[:.]?\\s*([A-Z0-9][A-Z0-9/\\-_.]*[A-Z0-9])",
+            Pattern.CASE_INSENSITIVE);
+    static final Pattern NUMERIC_DATE = Pattern.compile(
+            "\\b(\\d{1,2})[./-](\\d{1,2})[./-](\\d{4}|\\d{2})\\b|\\b(\\d{4})-(\\d{2})-(\\d{2})\\b");
+    static final Pattern TEXT_DATE = Pattern.compile(
+            "\\b(\\d{1,2})\\s+([a-z]+)\\s+(\\d{4})\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DATE_LABEL = Pattern.compile(
+            "\\b(?:data|date|del|dated)\\b", Pattern.CASE_INSENSITIVE);
+    static final Pattern VAT_NUMBER = Pattern.compile(
+            "(?:p\\.?\\s?iva|partita\\s+iva|vat(?:\\s+(?:no|number|reg(?:istration)?))?\\.?|c\\.?f\\.?\\s*/\\s*p\\.?\\s?iva)"
+            + "\\s*[:.]?\\s*(?:n\\.?\\s*)?([A-Z]{2})?\\s?(\\d{11})\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CLIENT_LABEL = Pattern.compile(
+            "\\b(?:cliente|spett(?:\\.le|abile)|destinatario|intestatario|bill\\s+to|sold\\s+to|customer)\\b\\s*[:.]?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern VENDOR_LABEL = Pattern.compile(
+            "(?<!codice\\s)\\b(?:cedente\\s*/\\s*prestatore|fornitore|cedente|prestatore|emittente|vendor|supplier|seller|sold\\s+by)\\b\\s*[:.]?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern LEGAL_FORM = Pattern.compile(
+            "^(.*?\\b(?:s\\.?r\\.?l\\.?s?|s\\.?p\\.?a\\.?|s\\.?a\\.?s\\.?|s\\.?n\\.?c\\.?|ltd\\.?|limited|gmbh|inc\\.?|llc))(?=$|[\\s,.-])",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern TOTAL_LABEL = Pattern.compile(
+            "\\b(?:totale(?:\\s+(?:fattura|documento|complessivo|da\\s+pagare))?|total(?:\\s+(?:amount|due|invoice))?|amount\\s+due|netto\\s+a\\s+pagare)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NET_LABEL = Pattern.compile(
+            "\\b(?:imponibile|subtotal|sub-total|net\\s+amount|total\\s+net|taxable\\s+amount)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern VAT_LABEL = Pattern.compile(
+            "\\b(?:iva|vat|imposta|tax)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NOT_TOTAL = Pattern.compile(
+            "\\b(?:imponibile|iva|vat|imposta|tax|subtotal|sub-total|net|netto\\s+merce|righe|pezzi|qty|quantit)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern CURRENCY_CODE = Pattern.compile("\\b(EUR|USD|GBP|CHF)\\b");
+    private static final Map<String, Integer> MONTHS = new LinkedHashMap<>();
+    static {
+        String[] italian = {"gennaio", "febbraio", "marzo", "aprile", "maggio", "giugno",
+                "luglio", "agosto", "settembre", "ottobre", "novembre", "dicembre"};
+        String[] english = {"january", "february", "march", "april", "may", "june",
+                "july", "august", "september", "october", "november", "december"};
+        for (int i = 0; i < 12; i++) {
+            MONTHS.put(italian[i], i + 1);
+            MONTHS.put(english[i], i + 1);
+        }
+    }
+
+    /**
+     * Runs all rules on a document's OCR text.
+     *
+     * @param ocrText The OCR text of a whole document
+     * @return The fields found with their confidence; empty for blank text
+     */
+    public Result extract(String ocrText) {
+        Result result = new Result();
+        if (ocrText == null || ocrText.isBlank()) {
+            return result;
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : ocrText.split("\\R")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                lines.add(trimmed);
+            }
+        }
+
+        int clientLine = findLabelLine(lines, CLIENT_LABEL);
+        int vendorLine = findLabelLine(lines, VENDOR_LABEL);
+        extractInvoiceNumber(lines, result);
+        extractDate(lines, result);
+        extractVatNumbers(lines, clientLine, vendorLine, result);
+        extractParties(lines, clientLine, vendorLine, result);
+        extractAmounts(lines, result);
+        extractCurrency(ocrText, result);
+        return result;
+    }
+
+    private static int findLabelLine(List<String> lines, Pattern label) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (label.matcher(lines.get(i)).find()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a line belongs to the block opened by a party label; the other party's label ends it.
+     */
+    private static boolean inPartyBlock(int line, int labelLine, int otherLabelLine) {
+        return labelLine >= 0 && line >= labelLine && line <= labelLine + PARTY_BLOCK_LINES
+                && !(otherLabelLine > labelLine && line >= otherLabelLine);
+    }
+
+    private static void extractInvoiceNumber(List<String> lines, Result result) {
+        for (String line : lines) {
+            Matcher matcher = INVOICE_NUMBER.matcher(line);
+            while (matcher.find()) {
+                String number = matcher.group(1);
+                // Labels followed by a date or a word are not numbers
+                if (number.chars().anyMatch(Character::isDigit) && !NUMERIC_DATE.matcher(number).matches()) {
+                    result.put(Field.INVOICE_NUMBER, number, LABELLED);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void extractDate(List<String> lines, Result result) {
+        for (String line : lines) {
+            LocalDate date = findDate(line);
+            if (date == null) {
+                continue;
+            }
+            boolean labelled = DATE_LABEL.matcher(line).find() || INVOICE_NUMBER.matcher(line).find();
+            result.put(Field.INVOICE_DATE, date, labelled ? LABELLED : UNLABELLED);
+            if (labelled) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the first valid date on a line: day/month/year (Italian order), ISO, or with a month name.
+     */
+    static LocalDate findDate(String line) {
+        Matcher numeric = NUMERIC_DATE.matcher(line);
+        while (numeric.find()) {
+            LocalDate date = numeric.group(4) != null
+                    ? toDate(numeric.group(4), numeric.group(5), numeric.group(6))
+                    : toDate(expandYear(numeric.group(3)), numeric.group(2), numeric.group(1));
+            if (date != null) {
+                return date;
+            }
+        }
+        Matcher text = TEXT_DATE.matcher(line);
+        while (text.find()) {
+            Integer month = MONTHS.get(text.group(2).toLowerCase(Locale.ROOT));
+            if (month != null) {
+                LocalDate date = toDate(text.group(3), String.valueOf(month), text.group(1));
+                if (date != null) {
+                    return date;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String expandYear(String year) {
+        return year.length() == 2 ? "20" + year : year;
+    }
+
+    private static LocalDate toDate(String year, String month, String day) {
+        try {
+            LocalDate date = LocalDate.of(Integer.parseInt(year), Integer.parseInt(month), Integer.parseInt(day));
+            return date.getYear() >= 1990 && date.getYear() <= 2100 ? date : null;
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Assigns VAT numbers in a client block to the client and those in a vendor block to the vendor.
+     * Any other number is taken for the vendor's by position only, as letterheads usually carry it;
+     * such a guess is marked positional so the model is not skipped on the strength of it.
+     */
+    private static void extractVatNumbers(List<String> lines, int clientLine, int vendorLine, Result result) {
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = VAT_NUMBER.matcher(lines.get(i));
+            while (matcher.find()) {
+                String country = matcher.group(1) != null ? matcher.group(1).toUpperCase(Locale.ROOT) : "";
+                String digits = matcher.group(2);
+                boolean italian = country.isEmpty() || country.equals("IT");
+                double confidence = italian && isValidPartitaIva(digits) ? VALIDATED : LABELLED;
+                String vatNumber = country + digits;
+                boolean client = inPartyBlock(i, clientLine, vendorLine);
+                boolean positional = !client && !inPartyBlock(i, vendorLine, clientLine);
+                Field field = client ? Field.CLIENT_VAT_NUMBER : Field.VENDOR_VAT_NUMBER;
+                Field otherParty = client ? Field.VENDOR_VAT_NUMBER : Field.CLIENT_VAT_NUMBER;
+                // Letterheads repeat on every page, possibly next to the client block
+                boolean taken = result.getValue(field) != null && (positional || !result.isPositional(field));
+                if (!taken && !vatNumber.equals(result.getValue(otherParty))) {
+                    result.put(field, vatNumber, confidence, positional);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the check digit of an Italian VAT number (partita IVA).
+     */
+    static boolean isValidPartitaIva(String digits) {
+        if (digits.length() != 11 || digits.chars().allMatch(c -> c == '0')) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            int digit = digits.charAt(i) - '0';
+            if (i % 2 == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return (10 - sum % 10) % 10 == digits.charAt(10) - '0';
+    }
+
+    private static void extractParties(List<String> lines, int clientLine, int vendorLine, Result result) {
+        // Vendor: the first letterhead line with a legal form, outside the client block
+        for (int i = 0; i < Math.min(lines.size(), LETTERHEAD_LINES); i++) {
+            if (inPartyBlock(i, clientLine, vendorLine)) {
+                continue;
+            }
+            String line = lines.get(i);
+            Matcher label = VENDOR_LABEL.matcher(line);
+            if (label.find()) {
+                line = line.substring(label.end()).trim();
+            }
+            Matcher matcher = LEGAL_FORM.matcher(line);
+            if (matcher.find()) {
+                result.put(Field.VENDOR_NAME, matcher.group(1).trim(), LABELLED);
+                break;
+            }
+        }
+
+        // Client: the text after the client label, or the next line if the label stands alone
+        if (clientLine >= 0) {
+            String line = lines.get(clientLine);
+            Matcher label = CLIENT_LABEL.matcher(line);
+            label.find();
+            String name = cutAtVatLabel(line.substring(label.end()));
+            if (name.isEmpty() && clientLine + 1 < lines.size()) {
+                name = cutAtVatLabel(lines.get(clientLine + 1));
+            }
+            if (name.chars().filter(Character::isLetter).count() >= 2) {
+                Matcher legalForm = LEGAL_FORM.matcher(name);
+                if (legalForm.find()) {
+                    result.put(Field.CLIENT_NAME, legalForm.group(1).trim(), LABELLED);
+                } else {
+                    result.put(Field.CLIENT_NAME, name, UNLABELLED);
+                }
+            }
+        }
+    }
+
+    private static String cutAtVatLabel(String text) {
+        Matcher vat = VAT_NUMBER.matcher(text);
+        String name = vat.find() ? text.substring(0, vat.start()) : text;
+        return name.replaceAll("[\\s,;:-]+$", "").trim();
+    }
+
+    private static void extractAmounts(List<String> lines, Result result) {
+        BigDecimal total = null;
+        BigDecimal net = null;
+        BigDecimal vat = null;
+        // Summary blocks are at the end, so the last labelled amount wins
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            BigDecimal amount = lastAmount(line);
+            if (amount == null && i + 1 < lines.size()) {
+                // Label on its own line, amount below it
+                String next = lines.get(i + 1);
+                if (!TOTAL_LABEL.matcher(next).find() && !NET_LABEL.matcher(next).find()) {
+                    amount = lastAmount(next);
+                }
+            }
+            if (amount == null) {
+                continue;
+            }
+            if (NET_LABEL.matcher(line).find()) {
+                net = amount;
+            } else if (TOTAL_LABEL.matcher(line).find() && !NOT_TOTAL.matcher(line).find()) {
+                total = amount;
+            } else if (VAT_LABEL.matcher(line).find() && !VAT_NUMBER.matcher(line).find()) {
+                vat = amount;
+            }
+        }
+
+        boolean consistent = total != null && net != null && vat != null
+                && net.add(vat).subtract(total).abs().compareTo(new BigDecimal("0.01")) <= 0;
+        double confidence = consistent ? VALIDATED : LABELLED;
+        result.put(Field.TOTAL_AMOUNT, total, confidence);
+        result.put(Field.NET_AMOUNT, net, confidence);
+        result.put(Field.VAT_AMOUNT, vat, confidence);
+    }
+
+    private static BigDecimal lastAmount(String line) {
+        BigDecimal last = null;
+        Matcher matcher = AMOUNT.matcher(line);
+        while (matcher.find()) {
+            BigDecimal amount = parseAmount(matcher.group());
+            if (amount != null) {
+                last = amount;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Parses an amount written with Italian (1.234,56) or English (1,234.56) separators.
+     */
+    static BigDecimal parseAmount(String text) {
+        String digits = text.replace(" ", "").replace("'", "");
+        int decimalSeparator = Math.max(digits.lastIndexOf(','), digits.lastIndexOf('.'));
+        if (decimalSeparator < 0 || digits.length() - decimalSeparator - 1 != 2) {
+            return null;
+        }
+        String integerPart = digits.substring(0, decimalSeparator).replace(".", "").replace(",", "");
+        try {
+            return new BigDecimal(integerPart + "." + digits.substring(decimalSeparator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void extractCurrency(String text, Result result) {
+        Matcher code = CURRENCY_CODE.matcher(text.toUpperCase(Locale.ROOT));
+        if (code.find()) {
+            result.put(Field.CURRENCY, code.group(1), LABELLED);
+        } else if (text.contains("€")) {
+            result.put(Field.CURRENCY, "EUR", LABELLED);
+        } else if (text.contains("£")) {
+            result.put(Field.CURRENCY, "GBP", LABELLED);
+        } else if (text.contains("$")) {
+            result.put(Field.CURRENCY, "USD", UNLABELLED);
+        }
+    }
+}
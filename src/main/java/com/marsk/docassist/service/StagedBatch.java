@@ -0,0 +1,101 @@
+package com.marsk.docassist.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * A batch of uploads copied into a private temporary directory, together with
+ * the progress of every file. Closing the batch deletes the staged copies.
+ */
+public class StagedBatch implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedBatch.class);
+
+    private final Path directory;
+    private final List<Path> stagedFiles;
+    private final List<OcrProgressInfo> files;
+
+    private StagedBatch(Path directory, List<Path> stagedFiles, List<OcrProgressInfo> files) {
+        this.directory = directory;
+        this.stagedFiles = Collections.unmodifiableList(stagedFiles);
+        this.files = Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Copies the uploads to disk so they can be processed after the request has returned
+     * or by several worker threads. Empty uploads are marked as failed straight away.
+     *
+     * @param uploads The uploaded documents
+     * @return The staged batch
+     * @throws IOException If the uploads cannot be written to disk
+     */
+    public static StagedBatch stage(MultipartFile[] uploads) throws IOException {
+        Path directory = Files.createTempDirectory("batch_job_");
+        List<Path> stagedFiles = new ArrayList<>();
+        List<OcrProgressInfo> files = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < uploads.length; i++) {
+                MultipartFile upload = uploads[i];
+                String filename = upload.getOriginalFilename() != null ? upload.getOriginalFilename() : "file_" + i;
+                OcrProgressInfo fileProgress = new OcrProgressInfo(i, filename);
+                files.add(fileProgress);
+
+                if (upload.isEmpty()) {
+                    fileProgress.fail("empty file");
+                    stagedFiles.add(null);
+                    continue;
+                }
+
+                Path stagedFile = directory.resolve(i + "_" + filename.replaceAll("[^A-Za-z0-9._-]", "_"));
+                upload.transferTo(stagedFile);
+                stagedFiles.add(stagedFile);
+            }
+        } catch (IOException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+
+        return new StagedBatch(directory, stagedFiles, files);
+    }
+
+    /**
+     * Returns the staged copy of a file, or null if the upload was empty.
+     */
+    public Path getStagedFile(OcrProgressInfo file) {
+        return stagedFiles.get(file.getIndex());
+    }
+
+    public List<OcrProgressInfo> getFiles() {
+        return files;
+    }
+
+    @Override
+    public void close() {
+        deleteDirectory(directory);
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Could not delete staged batch file {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not clean up batch staging directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.marsk.docassist.service;
+
+/**
+ * Incremental parser for a JSON object that arrives in fragments, such as a model response
+ * streamed token by token. Every top-level field is reported as soon as its value is complete,
+ * and the parser notes when the closing brace of the object has arrived so the caller can stop
+ * reading. Text before the opening brace and after the closing brace is ignored.
+ * The parser only tracks structure; values are handed over as raw JSON text.
+ */
+public class StreamingJsonObjectParser {
+
+    /**
+     * Receives the top-level fields of the object in the order they complete.
+     */
+    public interface FieldListener {
+        /**
+         * @param name The field name as written in the JSON text
+         * @param rawValue The complete JSON text of the value
+         */
+        void onField(String name, String rawValue);
+    }
+
+    private enum State {
+        BEFORE_OBJECT,
+        KEY_OR_END,
+        KEY,
+        COLON,
+        VALUE_START,
+        STRING_VALUE,
+        NESTED_VALUE,
+        SCALAR_VALUE,
+        COMMA_OR_END,
+        COMPLETE
+    }
+
+    private final FieldListener listener;
+    private final StringBuilder json = new StringBuilder();
+    private final StringBuilder key = new StringBuilder();
+    private State state = State.BEFORE_OBJECT;
+    private int valueStart;
+    private int nesting;
+    private boolean inNestedString;
+    private boolean escaped;
+
+    public StreamingJsonObjectParser(FieldListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Feeds the next fragment of text.
+     *
+     * @return true once the top-level object is complete
+     */
+    public boolean feed(CharSequence fragment) {
+        for (int i = 0; i < fragment.length() && state != State.COMPLETE; i++) {
+            accept(fragment.charAt(i));
+        }
+        return isComplete();
+    }
+
+    public boolean isComplete() {
+        return state == State.COMPLETE;
+    }
+
+    /**
+     * Returns the text of the object received so far, from its opening brace.
+     */
+    public String getJson() {
+        return json.toString();
+    }
+
+    private void accept(char c) {
+        if (state == State.BEFORE_OBJECT) {
+            if (c == '{') {
+                json.append(c);
+                state = State.KEY_OR_END;
+            }
+            return;
+        }
+        json.append(c);
+
+        switch (state) {
+            case KEY_OR_END:
+                if (c == '"') {
+                    key.setLength(0);
+                    state = State.KEY;
+                } else if (c == '}') {
+                    state = State.COMPLETE;
+                }
+                break;
+            case KEY:
+                if (escaped) {
+                    escaped = false;
+                    key.append(c);
+                } else if (c == '\\') {
+                    escaped = true;
+                    key.append(c);
+                } else if (c == '"') {
+                    state = State.COLON;
+                } else {
+                    key.append(c);
+                }
+                break;
+            case COLON:
+                if (c == ':') {
+                    state = State.VALUE_START;
+                }
+                break;
+            case VALUE_START:
+                if (Character.isWhitespace(c)) {
+                    break;
+                }
+                valueStart = json.length() - 1;
+                if (c == '"') {
+                    state = State.STRING_VALUE;
+                } else if (c == '{' || c == '[') {
+                    nesting = 1;
+                    inNestedString = false;
+                    state = State.NESTED_VALUE;
+                } else {
+                    state = State.SCALAR_VALUE;
+                }
+                break;
+            case STRING_VALUE:
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    emit(json.length());
+                    state = State.COMMA_OR_END;
+                }
+                break;
+            case NESTED_VALUE:
+                if (inNestedString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inNestedString = false;
+                    }
+                } else if (c == '"') {
+                    inNestedString = true;
+                } else if (c == '{' || c == '[') {
+                    nesting++;
+                } else if ((c == '}' || c == ']') && --nesting == 0) {
+                    emit(json.length());
+                    state = State.COMMA_OR_END;
+                }
+                break;
+            case SCALAR_VALUE:
+                if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                    emit(json.length() - 1);
+                    state = c == ',' ? State.KEY_OR_END : c == '}' ? State.COMPLETE : State.COMMA_OR_END;
+                }
+                break;
+            case COMMA_OR_END:
+                if (c == ',') {
+                    state = State.KEY_OR_END;
+                } else if (c == '}') {
+                    state = State.COMPLETE;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void emit(int valueEnd) {
+        listener.onField(key.toString(), json.substring(valueStart, valueEnd));
+    }
+}
@@ -0,0 +1,197 @@
+package com.marsk.docassist.service;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.marsk.docassist.config.OcrConfig;
+
+import net.sourceforge.tess4j.ITesseract;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+/**
+ * Bounded pool of pre-configured Tesseract engines.
+ * Engines are keyed by language and {@link OcrProfile} and are configured once
+ * when created, so a borrowed engine is never reconfigured by another request.
+ * The number of engines recognising at the same time is capped by the pool size,
+ * which defaults to the number of available cores.
+ */
+@Component
+public class TesseractEnginePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractEnginePool.class);
+
+    private static final String PAGE_CHAR_WHITELIST =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789.,;:!?()-+*/_'\"@#$%&=[]{}|<>àèìòùÀÈÌÒÙáéíóúÁÉÍÓÚ";
+    private static final String ITALIAN_BLOCK_CHAR_WHITELIST =
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyzàèéìòù";
+
+    private final String dataPath;
+    private final int poolSize;
+    private final long borrowTimeoutSeconds;
+    private final Semaphore permits;
+    private final Map<String, BlockingQueue<ITesseract>> idleEngines = new ConcurrentHashMap<>();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong enginesCreated = new AtomicLong();
+
+    public TesseractEnginePool(OcrConfig ocrConfig) {
+        this.poolSize = ocrConfig.getPoolSize();
+        this.borrowTimeoutSeconds = ocrConfig.getBorrowTimeoutSeconds();
+        this.permits = new Semaphore(poolSize, true);
+        this.dataPath = resolveDataPath(ocrConfig.getTessDataPath());
+        logger.info("Initialized Tesseract engine pool with {} concurrent engines", poolSize);
+    }
+
+    /**
+     * Borrows an engine configured for the given language and profile.
+     * Blocks until one of the pool permits becomes available.
+     *
+     * @param language The Tesseract language code (e.g. "eng", "ita")
+     * @param profile The page segmentation profile
+     * @return A lease that must be closed to return the engine to the pool
+     * @throws TesseractException If no engine becomes available within the borrow timeout
+     */
+    public Lease borrow(String language, OcrProfile profile) throws TesseractException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutSeconds, TimeUnit.SECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new TesseractException("Timed out after " + borrowTimeoutSeconds
+                        + "s waiting for a Tesseract engine");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException("Interrupted while waiting for a Tesseract engine", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (waited > TimeUnit.MILLISECONDS.toNanos(100)) {
+            logger.debug("Waited {} ms for a Tesseract engine ({}/{})",
+                    TimeUnit.NANOSECONDS.toMillis(waited), language, profile);
+        }
+
+        String key = keyOf(language, profile);
+        ITesseract engine = idleEngines.computeIfAbsent(key, k -> new LinkedBlockingQueue<>()).poll();
+        if (engine == null) {
+            try {
+                engine = createEngine(language, profile);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return new Lease(key, engine);
+    }
+
+    /**
+     * Returns pool usage statistics, including the time callers spent waiting for an engine.
+     */
+    public Map<String, Object> getStats() {
+        long borrows = borrowCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("poolSize", poolSize);
+        stats.put("availableEngines", permits.availablePermits());
+        stats.put("queuedBorrowers", permits.getQueueLength());
+        stats.put("borrowCount", borrows);
+        stats.put("borrowTimeouts", borrowTimeouts.get());
+        stats.put("enginesCreated", enginesCreated.get());
+        stats.put("averageWaitMs", borrows > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / borrows) : 0);
+        stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        Map<String, Integer> idle = new HashMap<>();
+        idleEngines.forEach((key, queue) -> idle.put(key, queue.size()));
+        stats.put("idleEngines", idle);
+        return stats;
+    }
+
+    private ITesseract createEngine(String language, OcrProfile profile) {
+        ITesseract engine = new Tesseract();
+        if (dataPath != null) {
+            engine.setDatapath(dataPath);
+        }
+        engine.setLanguage(language);
+        engine.setPageSegMode(profile.getPageSegMode());
+        engine.setOcrEngineMode(1); // Neural net based LSTM engine only
+
+        if (profile == OcrProfile.PAGE_AUTO || profile == OcrProfile.PAGE_FAST) {
+            // Rendered PDF pages: default render resolution (callers set the actual one per page) and keep punctuation
+            engine.setVariable("user_defined_dpi", "400");
+            engine.setVariable("tessedit_char_whitelist", PAGE_CHAR_WHITELIST);
+        } else if ("ita".equals(language)) {
+            engine.setVariable("tessedit_char_whitelist", ITALIAN_BLOCK_CHAR_WHITELIST);
+        }
+
+        enginesCreated.incrementAndGet();
+        logger.info("Created Tesseract engine for language {} with {} (PSM {})",
+                language, profile, profile.getPageSegMode());
+        return engine;
+    }
+
+    private void giveBack(String key, ITesseract engine) {
+        try {
+            idleEngines.computeIfAbsent(key, k -> new LinkedBlockingQueue<>()).offer(engine);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static String keyOf(String language, OcrProfile profile) {
+        return language + "/" + profile.name();
+    }
+
+    private static String resolveDataPath(String configuredPath) {
+        File tessDataDir = new File(configuredPath);
+        if (!tessDataDir.isAbsolute()) {
+            tessDataDir = new File(System.getProperty("user.dir"), configuredPath);
+        }
+        if (tessDataDir.exists() && tessDataDir.isDirectory()) {
+            logger.info("Using tessdata directory: {}", tessDataDir.getAbsolutePath());
+            return tessDataDir.getAbsolutePath();
+        }
+        logger.warn("Tessdata directory not found at: {}. Using system default.", tessDataDir.getAbsolutePath());
+        return null;
+    }
+
+    /**
+     * An engine on loan from the pool. Closing the lease returns the engine.
+     */
+    public final class Lease implements AutoCloseable {
+        private final String key;
+        private final ITesseract engine;
+        private boolean returned;
+
+        private Lease(String key, ITesseract engine) {
+            this.key = key;
+            this.engine = engine;
+        }
+
+        public ITesseract engine() {
+            return engine;
+        }
+
+        @Override
+        public void close() {
+            if (!returned) {
+                returned = true;
+                giveBack(key, engine);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.marsk.docassist.service;
+
+/**
+ * Decides whether the embedded text layer of a PDF page can be used instead of OCR.
+ * A usable text layer is dense enough to hold real content and made of plausible
+ * characters, so pages whose fonts lack a Unicode mapping (which extract as
+ * replacement characters or symbol soup) are still sent to Tesseract.
+ */
+public class TextLayerEvaluator {
+
+    private static final String PLAUSIBLE_PUNCTUATION = ".,;:-_/\\()[]%€$£'\"+*&@#=!?°<>|";
+    private static final int MIN_WORDS = 5;
+
+    private final int minCharacters;
+    private final double minPlausibleRatio;
+
+    public TextLayerEvaluator(int minCharacters, double minPlausibleRatio) {
+        this.minCharacters = minCharacters;
+        this.minPlausibleRatio = minPlausibleRatio;
+    }
+
+    /**
+     * Checks whether the extracted text layer of a page is good enough to skip OCR.
+     *
+     * @param text The text extracted from the page's text layer
+     * @return true if the text is dense and plausible
+     */
+    public boolean isUsable(String text) {
+        if (text == null) {
+            return false;
+        }
+
+        int visibleChars = 0;
+        int plausibleChars = 0;
+        int words = 0;
+        int currentWordLength = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (currentWordLength >= 2) {
+                    words++;
+                }
+                currentWordLength = 0;
+                continue;
+            }
+
+            visibleChars++;
+            if (Character.isLetterOrDigit(c)) {
+                plausibleChars++;
+                if (Character.isLetter(c)) {
+                    currentWordLength++;
+                }
+            } else if (PLAUSIBLE_PUNCTUATION.indexOf(c) >= 0) {
+                plausibleChars++;
+            }
+        }
+        if (currentWordLength >= 2) {
+            words++;
+        }
+
+        if (visibleChars < minCharacters || words < MIN_WORDS) {
+            return false;
+        }
+        return (double) plausibleChars / visibleChars >= minPlausibleRatio;
+    }
+}
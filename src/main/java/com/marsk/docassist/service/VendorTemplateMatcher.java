@@ -0,0 +1,420 @@
+package com.marsk.docassist.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.model.TemplateFieldAnchor;
+import com.marsk.docassist.model.VendorTemplate;
+import com.marsk.docassist.service.RuleBasedInvoiceExtractor.Field;
+
+/**
+ * Learns and applies vendor layout templates on OCR text.
+ * Learning locates every extracted value in the text and records the label in front of it, on the
+ * same line or the line above; applying finds those labels in a new document of the same vendor and
+ * reads the values behind them. Labels are compared after normalisation (lower case, single spaces,
+ * numbers as {@code #}), so varying numbers in a label such as a VAT rate still match.
+ * A template only applies to documents of its vendor, and only if every anchor yields a value
+ * and the amounts add up.
+ */
+public class VendorTemplateMatcher {
+
+    private enum ValueType { ID, DATE, AMOUNT, VAT, TEXT }
+
+    private static final Map<Field, ValueType> ANCHORED_FIELDS = new EnumMap<>(Field.class);
+    static {
+        ANCHORED_FIELDS.put(Field.INVOICE_NUMBER, ValueType.ID);
+        ANCHORED_FIELDS.put(Field.INVOICE_DATE, ValueType.DATE);
+        ANCHORED_FIELDS.put(Field.CLIENT_NAME, ValueType.TEXT);
+        ANCHORED_FIELDS.put(Field.CLIENT_VAT_NUMBER, ValueType.VAT);
+        ANCHORED_FIELDS.put(Field.NET_AMOUNT, ValueType.AMOUNT);
+        ANCHORED_FIELDS.put(Field.VAT_AMOUNT, ValueType.AMOUNT);
+        ANCHORED_FIELDS.put(Field.TOTAL_AMOUNT, ValueType.AMOUNT);
+    }
+
+    // Non-empty lines of the letterhead that make up the layout fingerprint
+    private static final int FINGERPRINT_LINES = 3;
+    private static final int MAX_ANCHOR_LENGTH = 40;
+    private static final int MIN_ANCHOR_LETTERS = 3;
+    private static final Pattern PAGE_MARKER = Pattern.compile("^-{2,}\\s*page\\s+\\d+\\s*-{2,}$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ID_TOKEN = Pattern.compile("[A-Z0-9][A-Z0-9/\\-_.]*[A-Z0-9]", Pattern.CASE_INSENSITIVE);
+    private static final Pattern VAT_TOKEN = Pattern.compile("\\b([A-Z]{2})?\\s?(\\d{11})\\b");
+    private static final String NUMBER_SEPARATORS = ".,'/-";
+    private static final Pattern TEXT_END = Pattern.compile("\\s{3,}");
+
+    /**
+     * Text with numbers, including their separators, collapsed to {@code #}, whitespace to single spaces, and letters lower-cased,
+     * with the position in the original text of every character.
+     */
+    private static final class NormalisedText {
+        private final String text;
+        private final int[] rawIndex;
+        private final String raw;
+
+        private NormalisedText(String raw) {
+            StringBuilder normalised = new StringBuilder();
+            int[] index = new int[raw.length()];
+            boolean lastSpace = true;
+            boolean lastDigit = false;
+            for (int i = 0; i < raw.length(); i++) {
+                char c = raw.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    if (!lastSpace) {
+                        index[normalised.length()] = i;
+                        normalised.append(' ');
+                    }
+                    lastSpace = true;
+                    lastDigit = false;
+                } else if (Character.isDigit(c) || (lastDigit && isNumberSeparator(raw, i))) {
+                    if (!lastDigit) {
+                        index[normalised.length()] = i;
+                        normalised.append('#');
+                    }
+                    lastDigit = true;
+                    lastSpace = false;
+                } else {
+                    index[normalised.length()] = i;
+                    normalised.append(Character.toLowerCase(c));
+                    lastSpace = false;
+                    lastDigit = false;
+                }
+            }
+            this.text = normalised.toString().trim();
+            this.rawIndex = index;
+            this.raw = raw;
+        }
+
+        /**
+         * Returns the original text following the normalised range that ends before {@code end}.
+         */
+        private String rawAfter(int end) {
+            int position = rawIndex[end - 1] + 1;
+            if (text.charAt(end - 1) == '#') {
+                while (position < raw.length()
+                        && (Character.isDigit(raw.charAt(position)) || isNumberSeparator(raw, position))) {
+                    position++;
+                }
+            }
+            return raw.substring(position);
+        }
+
+        /**
+         * Separator between two digits, as in amounts, dates and document numbers.
+         */
+        private static boolean isNumberSeparator(String raw, int i) {
+            return NUMBER_SEPARATORS.indexOf(raw.charAt(i)) >= 0 && i > 0 && i + 1 < raw.length()
+                    && Character.isDigit(raw.charAt(i - 1)) && Character.isDigit(raw.charAt(i + 1));
+        }
+    }
+
+    /**
+     * Fingerprint of a document's layout: the hash of its first lines after normalisation, which
+     * for invoices is the vendor's letterhead.
+     */
+    public static String fingerprint(String ocrText) {
+        StringBuilder letterhead = new StringBuilder();
+        int lines = 0;
+        for (String line : lines(ocrText)) {
+            if (lines++ == FINGERPRINT_LINES) {
+                break;
+            }
+            letterhead.append(new NormalisedText(line).text).append('\n');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(letterhead.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Digits of a VAT number, the part that identifies a vendor regardless of how the prefix is written.
+     */
+    public static String vatKey(String vatNumber) {
+        if (vatNumber == null) {
+            return null;
+        }
+        String digits = vatNumber.replaceAll("\\D", "");
+        return digits.isEmpty() ? null : digits;
+    }
+
+    /**
+     * Locates the extracted values in the OCR text and records the label in front of each.
+     *
+     * @param ocrText The OCR text the values were extracted from
+     * @param data The extracted invoice data
+     * @return Anchors of the fields that could be located; fields without a usable label are left out
+     */
+    public List<TemplateFieldAnchor> learn(String ocrText, InvoiceData data) {
+        List<String> lines = lines(ocrText);
+        List<TemplateFieldAnchor> anchors = new ArrayList<>();
+        for (Map.Entry<Field, ValueType> entry : ANCHORED_FIELDS.entrySet()) {
+            Object value = entry.getKey().get(data);
+            if (value == null || (value instanceof String && ((String) value).isBlank())) {
+                continue;
+            }
+            // Summary amounts are at the end, other fields near the top
+            boolean fromEnd = entry.getValue() == ValueType.AMOUNT;
+            for (int n = 0; n < lines.size(); n++) {
+                int i = fromEnd ? lines.size() - 1 - n : n;
+                int start = valueStart(lines.get(i), entry.getValue(), value);
+                if (start < 0) {
+                    continue;
+                }
+                TemplateFieldAnchor anchor = anchorFor(lines, i, start, entry.getKey());
+                if (anchor != null) {
+                    anchors.add(anchor);
+                    break;
+                }
+            }
+        }
+        return anchors;
+    }
+
+    private static TemplateFieldAnchor anchorFor(List<String> lines, int line, int valueStart, Field field) {
+        String label = trimAnchor(new NormalisedText(lines.get(line).substring(0, valueStart)).text);
+        if (countLetters(label) >= MIN_ANCHOR_LETTERS) {
+            return new TemplateFieldAnchor(field.name(), label, 0);
+        }
+        if (label.isEmpty() && line > 0) {
+            String previous = trimAnchor(new NormalisedText(lines.get(line - 1)).text);
+            if (countLetters(previous) >= MIN_ANCHOR_LETTERS) {
+                return new TemplateFieldAnchor(field.name(), previous, 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the end of long labels, cut at a word boundary.
+     */
+    private static String trimAnchor(String label) {
+        String trimmed = label.trim();
+        if (trimmed.length() <= MAX_ANCHOR_LENGTH) {
+            return trimmed;
+        }
+        String tail = trimmed.substring(trimmed.length() - MAX_ANCHOR_LENGTH);
+        int space = tail.indexOf(' ');
+        return space >= 0 ? tail.substring(space + 1) : tail;
+    }
+
+    private static int valueStart(String line, ValueType type, Object value) {
+        switch (type) {
+            case AMOUNT: {
+                Matcher matcher = RuleBasedInvoiceExtractor.AMOUNT.matcher(line);
+                while (matcher.find()) {
+                    BigDecimal amount = RuleBasedInvoiceExtractor.parseAmount(matcher.group());
+                    if (amount != null && amount.compareTo((BigDecimal) value) == 0) {
+                        return matcher.start();
+                    }
+                }
+                return -1;
+            }
+            case DATE: {
+                for (Pattern pattern : List.of(RuleBasedInvoiceExtractor.NUMERIC_DATE, RuleBasedInvoiceExtractor.TEXT_DATE)) {
+                    Matcher matcher = pattern.matcher(line);
+                    while (matcher.find()) {
+                        if (value.equals(RuleBasedInvoiceExtractor.findDate(matcher.group()))) {
+                            return matcher.start();
+                        }
+                    }
+                }
+                return -1;
+            }
+            case VAT: {
+                String digits = vatKey((String) value);
+                int index = digits != null ? line.indexOf(digits) : -1;
+                // Include a country prefix written in front of the digits
+                if (index >= 2 && Character.isLetter(line.charAt(index - 1))) {
+                    return index - 2;
+                }
+                if (index >= 3 && line.charAt(index - 1) == ' ' && Character.isLetter(line.charAt(index - 2))
+                        && Character.isLetter(line.charAt(index - 3))) {
+                    return index - 3;
+                }
+                return index;
+            }
+            default:
+                return line.toLowerCase(Locale.ROOT).indexOf(((String) value).trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Extracts a document with a template.
+     *
+     * @param ocrText The OCR text of the document
+     * @param template The template of the document's vendor
+     * @return The extracted invoice data, or null if the document does not fit the template
+     */
+    public InvoiceData apply(String ocrText, VendorTemplate template) {
+        return apply(ocrText, template, null);
+    }
+
+    /**
+     * Extracts a document with a template, after checking that the document comes from the
+     * template's vendor: the vendor's VAT number must occur in the text and not be the client's,
+     * and the letterhead fingerprint or the vendor's name must match. Labels such as "totale" are
+     * shared by most vendors, so fitting anchors alone do not identify the vendor.
+     *
+     * @param ocrText The OCR text of the document
+     * @param template The template of the document's vendor
+     * @param clientVatNumber The client's VAT number if already known, such as from the pattern rules; may be null
+     * @return The extracted invoice data, or null if the document does not fit the template
+     */
+    public InvoiceData apply(String ocrText, VendorTemplate template, String clientVatNumber) {
+        if (template.getAnchors().isEmpty() || !isVendorDocument(ocrText, template, clientVatNumber)) {
+            return null;
+        }
+        List<String> lines = lines(ocrText);
+        InvoiceData data = new InvoiceData();
+        for (TemplateFieldAnchor anchor : template.getAnchors()) {
+            Field field;
+            try {
+                field = Field.valueOf(anchor.getFieldName());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            ValueType type = ANCHORED_FIELDS.get(field);
+            Object value = type != null ? find(lines, anchor, type) : null;
+            if (value == null) {
+                return null;
+            }
+            field.set(data, value);
+        }
+
+        BigDecimal net = data.getNetAmount();
+        BigDecimal vat = data.getVatAmount();
+        BigDecimal total = data.getTotalAmount();
+        if (net != null && vat != null && total != null
+                && net.add(vat).subtract(total).abs().compareTo(new BigDecimal("0.01")) > 0) {
+            return null;
+        }
+        String vendorKey = vatKey(template.getVendorVatNumber());
+        if (vendorKey != null && vendorKey.equals(vatKey(data.getClientVatNumber()))) {
+            return null;
+        }
+
+        data.setVendorName(template.getVendorName());
+        data.setVendorVatNumber(template.getVendorVatNumber());
+        data.setCurrency(template.getCurrency());
+        return data;
+    }
+
+    private static boolean isVendorDocument(String ocrText, VendorTemplate template, String clientVatNumber) {
+        if (ocrText == null) {
+            return false;
+        }
+        String vendorKey = vatKey(template.getVendorVatNumber());
+        if (vendorKey != null) {
+            if (!Pattern.compile("(?<!\\d)" + vendorKey + "(?!\\d)").matcher(ocrText).find()
+                    || vendorKey.equals(vatKey(clientVatNumber))) {
+                return false;
+            }
+        }
+        if (fingerprint(ocrText).equals(template.getLayoutFingerprint())) {
+            return true;
+        }
+        String vendorName = comparable(template.getVendorName());
+        return vendorName.length() >= MIN_ANCHOR_LETTERS
+                && (" " + comparable(ocrText) + " ").contains(" " + vendorName + " ");
+    }
+
+    /**
+     * Lower case letters and digits with single spaces between words, for name comparison.
+     */
+    private static String comparable(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private static Object find(List<String> lines, TemplateFieldAnchor anchor, ValueType type) {
+        String label = anchor.getAnchorText();
+        boolean fromEnd = type == ValueType.AMOUNT;
+        for (int n = 0; n < lines.size(); n++) {
+            int i = fromEnd ? lines.size() - 1 - n : n;
+            NormalisedText line = new NormalisedText(lines.get(i));
+            Object value = null;
+            if (anchor.getLineOffset() == 0) {
+                int index = line.text.indexOf(label);
+                if (index >= 0) {
+                    value = parse(line.rawAfter(index + label.length()), type);
+                }
+            } else if (line.text.endsWith(label) && i + anchor.getLineOffset() < lines.size()) {
+                value = parse(lines.get(i + anchor.getLineOffset()), type);
+            }
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static Object parse(String text, ValueType type) {
+        switch (type) {
+            case ID: {
+                Matcher matcher = ID_TOKEN.matcher(text);
+                while (matcher.find()) {
+                    if (matcher.group().chars().anyMatch(Character::isDigit)) {
+                        return matcher.group();
+                    }
+                }
+                return null;
+            }
+            case DATE:
+                return RuleBasedInvoiceExtractor.findDate(text);
+            case AMOUNT: {
+                Matcher matcher = RuleBasedInvoiceExtractor.AMOUNT.matcher(text);
+                return matcher.find() ? RuleBasedInvoiceExtractor.parseAmount(matcher.group()) : null;
+            }
+            case VAT: {
+                Matcher matcher = VAT_TOKEN.matcher(text.toUpperCase(Locale.ROOT));
+                return matcher.find() ? Objects.toString(matcher.group(1), "") + matcher.group(2) : null;
+            }
+            default: {
+                String value = text.replaceFirst("^[\\s:.,;-]+", "");
+                Matcher end = TEXT_END.matcher(value);
+                if (end.find()) {
+                    value = value.substring(0, end.start());
+                }
+                Matcher vatLabel = RuleBasedInvoiceExtractor.VAT_NUMBER.matcher(value);
+                if (vatLabel.find()) {
+                    value = value.substring(0, vatLabel.start());
+                }
+                value = value.trim();
+                return countLetters(value) >= 2 ? value : null;
+            }
+        }
+    }
+
+    private static List<String> lines(String ocrText) {
+        List<String> lines = new ArrayList<>();
+        if (ocrText == null) {
+            return lines;
+        }
+        for (String line : ocrText.split("\\R")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !PAGE_MARKER.matcher(trimmed).matches()) {
+                lines.add(trimmed);
+            }
+        }
+        return lines;
+    }
+
+    private static int countLetters(String text) {
+        return (int) text.chars().filter(Character::isLetter).count();
+    }
+}
@@ -0,0 +1,264 @@
+package com.marsk.docassist.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marsk.docassist.config.VendorTemplateConfig;
+import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.model.TemplateFieldAnchor;
+import com.marsk.docassist.model.VendorTemplate;
+import com.marsk.docassist.repository.VendorTemplateRepository;
+import com.marsk.docassist.service.RuleBasedInvoiceExtractor.Field;
+
+/**
+ * Extracts invoices of known vendors with a learned layout template before falling back to
+ * {@link OllamaService}. The vendor is recognised by the VAT number the pattern rules find, or by
+ * the fingerprint of the letterhead. Invoices the template does not fit go to the model, and a
+ * confident model result teaches (or re-teaches) the vendor's template.
+ */
+@Service
+public class VendorTemplateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VendorTemplateService.class);
+
+    private final VendorTemplateRepository templateRepository;
+    private final OllamaService ollamaService;
+    private final VendorTemplateConfig config;
+    private final VendorTemplateMatcher matcher = new VendorTemplateMatcher();
+    private final RuleBasedInvoiceExtractor ruleExtractor = new RuleBasedInvoiceExtractor();
+    private final ObjectMapper objectMapper;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong unknownVendors = new AtomicLong();
+    private final AtomicLong learned = new AtomicLong();
+
+    public VendorTemplateService(VendorTemplateRepository templateRepository, OllamaService ollamaService,
+                                 VendorTemplateConfig config) {
+        this.templateRepository = templateRepository;
+        this.ollamaService = ollamaService;
+        this.config = config;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.findAndRegisterModules(); // For LocalDate support
+    }
+
+    /**
+     * Template lookup of one document: the vendor's template if one exists, and the data it
+     * extracted if it fits.
+     */
+    private record Lookup(VendorTemplate template, InvoiceData data) {
+        boolean isHit() {
+            return data != null;
+        }
+    }
+
+    /**
+     * Extracts invoice data with the vendor's template, or with {@link OllamaService#processInvoice}
+     * when there is none or it does not fit.
+     *
+     * @param ocrText The OCR-extracted text
+     * @param sourceFilename The source file name
+     * @return InvoiceExtractionResult with data and confidence information
+     */
+    public OllamaService.InvoiceExtractionResult processInvoice(String ocrText, String sourceFilename) {
+        if (!config.isEnabled() || ocrText == null || ocrText.trim().isEmpty()) {
+            return ollamaService.processInvoice(ocrText, sourceFilename);
+        }
+        Lookup lookup = lookup(ocrText, sourceFilename);
+        if (lookup.isHit()) {
+            return templateResult(lookup.data());
+        }
+        OllamaService.InvoiceExtractionResult result = ollamaService.processInvoice(ocrText, sourceFilename);
+        learn(ocrText, result, lookup.template());
+        return result;
+    }
+
+    /**
+     * Streaming variant of {@link #processInvoice(String, String)}; a template extraction passes
+     * all its fields to the listener at once.
+     *
+     * @param ocrText The OCR-extracted text
+     * @param sourceFilename The source file name
+     * @param fieldListener Receives each field name and JSON value as it completes
+     * @return InvoiceExtractionResult with data and confidence information
+     */
+    public OllamaService.InvoiceExtractionResult processInvoiceStreaming(String ocrText, String sourceFilename,
+                                                                         BiConsumer<String, JsonNode> fieldListener) {
+        if (!config.isEnabled() || ocrText == null || ocrText.trim().isEmpty()) {
+            return ollamaService.processInvoiceStreaming(ocrText, sourceFilename, fieldListener);
+        }
+        Lookup lookup = lookup(ocrText, sourceFilename);
+        if (lookup.isHit()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = objectMapper.valueToTree(lookup.data()).fields();
+            fields.forEachRemaining(field -> {
+                if (!field.getValue().isNull()) {
+                    fieldListener.accept(field.getKey(), field.getValue());
+                }
+            });
+            return templateResult(lookup.data());
+        }
+        OllamaService.InvoiceExtractionResult result =
+                ollamaService.processInvoiceStreaming(ocrText, sourceFilename, fieldListener);
+        learn(ocrText, result, lookup.template());
+        return result;
+    }
+
+    /**
+     * Finds the vendor's template and applies it. Template storage problems are logged and
+     * treated as an unknown vendor, so extraction still goes to the model.
+     */
+    private Lookup lookup(String ocrText, String sourceFilename) {
+        try {
+            Optional<VendorTemplate> found = Optional.empty();
+            RuleBasedInvoiceExtractor.Result rules = ruleExtractor.extract(ocrText);
+            String vatKey = vatKeyOf(rules.getValue(Field.VENDOR_VAT_NUMBER));
+            if (vatKey != null) {
+                found = templateRepository.findFirstByVendorVatKeyOrderByUpdatedAtDesc(vatKey);
+            }
+            if (found.isEmpty()) {
+                found = templateRepository.findFirstByLayoutFingerprintOrderByUpdatedAtDesc(
+                        VendorTemplateMatcher.fingerprint(ocrText));
+            }
+            if (found.isEmpty()) {
+                unknownVendors.incrementAndGet();
+                return new Lookup(null, null);
+            }
+
+            VendorTemplate template = found.get();
+            Object clientVat = rules.getValue(Field.CLIENT_VAT_NUMBER);
+            InvoiceData data = matcher.apply(ocrText, template, clientVat != null ? clientVat.toString() : null);
+            if (data == null) {
+                misses.incrementAndGet();
+                templateRepository.incrementMisses(template.getId());
+                logger.info("Template of vendor {} does not fit file {}, extracting with the model",
+                           template.getVendorName(), sourceFilename);
+                return new Lookup(template, null);
+            }
+
+            hits.incrementAndGet();
+            templateRepository.incrementHits(template.getId());
+            data.setSourceFilename(sourceFilename);
+            data.setProcessingNotes("Extracted with the learned template of vendor " + template.getVendorName());
+            logger.info("Extracted invoice data for file {} with the template of vendor {}. Invoice number: {}",
+                       sourceFilename, template.getVendorName(), data.getInvoiceNumber());
+            return new Lookup(template, data);
+        } catch (RuntimeException e) {
+            logger.warn("Vendor template lookup failed for file {}, extracting with the model: {}",
+                       sourceFilename, e.getMessage());
+            return new Lookup(null, null);
+        }
+    }
+
+    private static String vatKeyOf(Object vatNumber) {
+        return vatNumber != null ? VendorTemplateMatcher.vatKey(vatNumber.toString()) : null;
+    }
+
+    private OllamaService.InvoiceExtractionResult templateResult(InvoiceData data) {
+        return new OllamaService.InvoiceExtractionResult(data, true, ollamaService.calculateConfidenceScore(data), null);
+    }
+
+    /**
+     * Learns the vendor's template from a confident extraction, replacing the vendor's template
+     * that did not fit. The template is only stored if the vendor's VAT number is distinct from
+     * the client's, if it locates enough fields, including the total, and if it reads the same
+     * values back from the document it was learned from, vendor checks included.
+     */
+    private void learn(String ocrText, OllamaService.InvoiceExtractionResult result, VendorTemplate existing) {
+        InvoiceData data = result.getInvoiceData();
+        if (!result.isSuccess() || data == null || result.getConfidence() < config.getLearnMinConfidence()
+                || data.getTotalAmount() == null) {
+            return;
+        }
+        try {
+            List<TemplateFieldAnchor> anchors = matcher.learn(ocrText, data);
+            boolean hasTotal = anchors.stream().anyMatch(a -> Field.TOTAL_AMOUNT.name().equals(a.getFieldName()));
+            if (anchors.size() < config.getMinAnchors() || !hasTotal) {
+                logger.debug("Not enough fields located to learn a template from file {} ({} anchors)",
+                            data.getSourceFilename(), anchors.size());
+                return;
+            }
+
+            String vatKey = VendorTemplateMatcher.vatKey(data.getVendorVatNumber());
+            if (vatKey != null && vatKey.equals(VendorTemplateMatcher.vatKey(data.getClientVatNumber()))) {
+                logger.debug("Vendor and client VAT numbers of file {} are the same, not learning a template",
+                            data.getSourceFilename());
+                return;
+            }
+            VendorTemplate template = existing != null && Objects.equals(existing.getVendorVatKey(), vatKey)
+                    ? existing : new VendorTemplate();
+            template.setVendorVatKey(vatKey);
+            template.setLayoutFingerprint(VendorTemplateMatcher.fingerprint(ocrText));
+            template.setVendorName(data.getVendorName());
+            template.setVendorVatNumber(data.getVendorVatNumber());
+            template.setCurrency(data.getCurrency());
+            template.setAnchors(new ArrayList<>(anchors));
+
+            if (!reproduces(data, matcher.apply(ocrText, template, data.getClientVatNumber()), anchors)) {
+                logger.debug("Template learned from file {} does not read its own values back, not storing it",
+                            data.getSourceFilename());
+                return;
+            }
+            templateRepository.save(template);
+            learned.incrementAndGet();
+            logger.info("Learned template of vendor {} from file {}: {}",
+                       template.getVendorName(), data.getSourceFilename(), anchors);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to learn vendor template from file {}: {}", data.getSourceFilename(), e.getMessage());
+        }
+    }
+
+    private static boolean reproduces(InvoiceData expected, InvoiceData actual, List<TemplateFieldAnchor> anchors) {
+        if (actual == null) {
+            return false;
+        }
+        for (TemplateFieldAnchor anchor : anchors) {
+            Field field = Field.valueOf(anchor.getFieldName());
+            Object want = field.get(expected);
+            Object got = field.get(actual);
+            boolean same = want instanceof BigDecimal && got instanceof BigDecimal
+                    ? ((BigDecimal) want).compareTo((BigDecimal) got) == 0
+                    : Objects.equals(want, got);
+            if (!same) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns how often templates were used, did not fit, and were learned.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("unknownVendors", unknownVendors.get());
+        stats.put("learned", learned.get());
+        long lookups = hits.get() + misses.get() + unknownVendors.get();
+        stats.put("hitRate", lookups > 0 ? (double) hits.get() / lookups : 0.0);
+        stats.put("templates", countTemplates());
+        return stats;
+    }
+
+    private long countTemplates() {
+        try {
+            return templateRepository.count();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -1,86 +1,393 @@
 package com.marsk.docassist.util;
 
-import org.bytedeco.javacpp.Loader;
-import org.bytedeco.javacv.Java2DFrameUtils;
+import org.bytedeco.javacpp.FloatPointer;
 import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point2f;
+import org.bytedeco.opencv.opencv_core.Scalar;
 import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.global.opencv_imgproc;
-import org.bytedeco.javacv.Frame;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.bytedeco.opencv.global.opencv_imgproc.*;
 
+/**
+ * Configurable OCR preprocessing chain running on OpenCV {@link Mat}s.
+ * The image is converted to a Mat once, passed through the configured stages and converted
+ * back once at the end; the time spent in every stage is reported so chains can be compared.
+ * Instances are immutable and may be shared between threads.
+ */
 public class ImagePreprocessor {
 
     /**
-     * Preprocesses image for better OCR results
+     * Preprocessing steps, applied in the order they are configured.
+     */
+    public enum Stage {
+        /** Converts colour input to a single 8-bit channel. */
+        GRAYSCALE,
+        /** 3x3 median blur against speckle noise from scans. */
+        DENOISE,
+        /** Adaptive Gaussian threshold to black text on white. */
+        BINARIZE,
+        /** Rotates the page so its text lines are horizontal. */
+        DESKEW,
+        /** Light sharpen of text edges. */
+        SHARPEN,
+        /** Scales the page up by the configured factor; rarely worth its cost on rendered pages. */
+        UPSCALE;
+
+        /**
+         * Parses a comma-separated stage list; blank or "none" means no preprocessing.
+         *
+         * @throws IllegalArgumentException if a name is not a known stage
+         */
+        public static List<Stage> parse(String stages) {
+            if (stages == null || stages.isBlank() || stages.trim().equalsIgnoreCase("none")) {
+                return Collections.emptyList();
+            }
+            List<Stage> parsed = new ArrayList<>();
+            for (String name : stages.split(",")) {
+                if (!name.isBlank()) {
+                    parsed.add(Stage.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * Preprocessed image and the milliseconds spent in each stage, in execution order.
+     * The {@code convert} entry covers the conversions between {@link BufferedImage} and {@link Mat}.
+     */
+    public static class Result {
+        private final BufferedImage image;
+        private final Map<String, Long> stageMs;
+
+        Result(BufferedImage image, Map<String, Long> stageMs) {
+            this.image = image;
+            this.stageMs = Collections.unmodifiableMap(stageMs);
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public Map<String, Long> getStageMs() {
+            return stageMs;
+        }
+    }
+
+    static final String CONVERT = "convert";
+
+    // Neighbourhood and offset of the adaptive threshold, sized for text rendered at 200-400 DPI
+    private static final int THRESHOLD_BLOCK_SIZE = 31;
+    private static final double THRESHOLD_OFFSET = 15;
+    // Skew is measured on a reduced copy; the angle does not need full resolution
+    private static final int DESKEW_SAMPLE_WIDTH = 1000;
+    private static final double MIN_SKEW_DEGREES = 0.1;
+    private static final double SKEW_COARSE_STEP = 0.5;
+    private static final double SKEW_FINE_STEP = 0.05;
+    private static final float[] SHARPEN_KERNEL = {
+         0.0f, -0.2f,  0.0f,
+        -0.2f,  1.8f, -0.2f,
+         0.0f, -0.2f,  0.0f
+    };
+
+    private final List<Stage> stages;
+    private final double upscaleFactor;
+    private final double maxSkewDegrees;
+
+    public ImagePreprocessor(List<Stage> stages, double upscaleFactor, double maxSkewDegrees) {
+        this.stages = List.copyOf(stages);
+        this.upscaleFactor = upscaleFactor;
+        this.maxSkewDegrees = maxSkewDegrees;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Runs the configured stages on an image.
+     *
      * @param image Input image to process
-     * @return Processed BufferedImage
+     * @return The processed image with per-stage timings; the input image itself if no stages are configured
      */
-    public static BufferedImage preprocessForOcr(BufferedImage image) {
-        // Convert BufferedImage to OpenCV Mat
-        Mat mat = BufferedImageToMat(image);
-        
-        // Apply preprocessing pipeline
-        mat = binarize(mat);
-        mat = removeNoise(mat);
-        mat = deskew(mat);
-        mat = resize(mat);
-        
-        // Convert back to BufferedImage
-        return matToBufferedImage(mat);
+    public Result process(BufferedImage image) {
+        Map<String, Long> stageMs = new LinkedHashMap<>();
+        if (stages.isEmpty()) {
+            return new Result(image, stageMs);
+        }
+
+        long start = System.nanoTime();
+        Mat mat = toMat(image);
+        long convertNanos = System.nanoTime() - start;
+
+        try {
+            for (Stage stage : stages) {
+                long stageStart = System.nanoTime();
+                Mat next = apply(stage, mat);
+                if (next != mat) {
+                    mat.close();
+                    mat = next;
+                }
+                stageMs.merge(stage.name().toLowerCase(Locale.ROOT), elapsedMs(stageStart), Long::sum);
+            }
+
+            long convertStart = System.nanoTime();
+            BufferedImage processed = toBufferedImage(mat);
+            convertNanos += System.nanoTime() - convertStart;
+            stageMs.put(CONVERT, TimeUnit.NANOSECONDS.toMillis(convertNanos));
+            return new Result(processed, stageMs);
+        } finally {
+            mat.close();
+        }
     }
 
-    private static Mat binarize(Mat mat) {
+    private Mat apply(Stage stage, Mat mat) {
+        switch (stage) {
+            case GRAYSCALE:
+                return grayscale(mat);
+            case DENOISE:
+                return removeNoise(mat);
+            case BINARIZE:
+                return binarize(mat);
+            case DESKEW:
+                return deskew(mat);
+            case SHARPEN:
+                return sharpen(mat);
+            case UPSCALE:
+                return resize(mat);
+            default:
+                throw new IllegalStateException("Unhandled preprocessing stage: " + stage);
+        }
+    }
+
+    private static Mat grayscale(Mat mat) {
+        if (mat.channels() == 1) {
+            return mat;
+        }
         Mat gray = new Mat();
-        Mat binary = new Mat();
-        
-        // Convert to grayscale if needed
-        if (mat.channels() > 1) {
-            opencv_imgproc.cvtColor(mat, gray, COLOR_BGR2GRAY);
-        } else {
-            gray = mat.clone();
-        }
-        
-        // Apply Gaussian blur for noise reduction
-        opencv_imgproc.GaussianBlur(gray, gray, new Size(3, 3), 0);
-        
-        // Apply adaptive thresholding with optimized parameters
-        opencv_imgproc.adaptiveThreshold(gray, binary, 255,
-            ADAPTIVE_THRESH_GAUSSIAN_C,
-            THRESH_BINARY, 11, 2);
-            
-        return binary;
+        opencv_imgproc.cvtColor(mat, gray, COLOR_BGR2GRAY);
+        return gray;
     }
 
     private static Mat removeNoise(Mat mat) {
         Mat denoised = new Mat();
         // Median blur is more effective for salt-and-pepper noise in documents
-        opencv_imgproc.medianBlur(mat, denoised, 5);
+        opencv_imgproc.medianBlur(mat, denoised, 3);
         return denoised;
     }
 
-    private static Mat deskew(Mat mat) {
-        // TODO: Implement deskewing logic
-        return mat;
+    private static Mat binarize(Mat mat) {
+        Mat gray = grayscale(mat);
+        Mat binary = new Mat();
+        opencv_imgproc.adaptiveThreshold(gray, binary, 255,
+            ADAPTIVE_THRESH_GAUSSIAN_C,
+            THRESH_BINARY, THRESHOLD_BLOCK_SIZE, THRESHOLD_OFFSET);
+        if (gray != mat) {
+            gray.close();
+        }
+        return binary;
+    }
+
+    /**
+     * Estimates the skew of the text lines and rotates the page back. Angles below 0.1 degrees
+     * are not worth the rotation; angles at or beyond the configured maximum are left alone,
+     * as they are usually tables or graphics rather than skewed text.
+     */
+    private Mat deskew(Mat mat) {
+        double angle = estimateSkew(mat);
+        if (Math.abs(angle) < MIN_SKEW_DEGREES) {
+            return mat;
+        }
+
+        Point2f center = new Point2f(mat.cols() / 2f, mat.rows() / 2f);
+        Mat rotation = opencv_imgproc.getRotationMatrix2D(center, angle, 1.0);
+        Mat deskewed = new Mat();
+        opencv_imgproc.warpAffine(mat, deskewed, rotation, mat.size(),
+            INTER_LINEAR, opencv_core.BORDER_CONSTANT, Scalar.all(255));
+        rotation.close();
+        return deskewed;
+    }
+
+    private double estimateSkew(Mat mat) {
+        Mat gray = grayscale(mat);
+        Mat sample = gray;
+        if (gray.cols() > DESKEW_SAMPLE_WIDTH) {
+            double scale = (double) DESKEW_SAMPLE_WIDTH / gray.cols();
+            sample = new Mat();
+            opencv_imgproc.resize(gray, sample, new Size(0, 0), scale, scale, INTER_AREA);
+        }
+
+        // Otsu separates ink (black) from paper (white) whatever the contrast of the scan
+        Mat ink = new Mat();
+        opencv_imgproc.threshold(sample, ink, 0, 255, THRESH_BINARY | THRESH_OTSU);
+        double angle = estimateSkew(toBufferedImage(ink), maxSkewDegrees);
+
+        ink.close();
+        if (sample != gray) {
+            sample.close();
+        }
+        if (gray != mat) {
+            gray.close();
+        }
+        return angle;
     }
 
-    private static Mat resize(Mat mat) {
+    /**
+     * Finds the angle at which the rows of dark pixels line up best: the ink is projected onto
+     * the vertical axis at each candidate angle, and text lines give the most peaked profile when
+     * the projection follows them. Unlike a bounding box around all ink, a logo, stamp or margin
+     * note does not tilt the result, since it adds the same mass to every profile.
+     *
+     * @param image 8-bit gray page, dark pixels being ink
+     * @param maxDegrees Largest angle searched
+     * @return Clockwise angle of the text lines in degrees (the counter-clockwise rotation that levels
+     *         them), or 0 if the page has no ink or its best angle is at the edge of the search
+     */
+    static double estimateSkew(BufferedImage image, double maxDegrees) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int count = 0;
+        for (byte pixel : pixels) {
+            if ((pixel & 0xFF) < 128) {
+                count++;
+            }
+        }
+        if (count == 0 || maxDegrees < MIN_SKEW_DEGREES) {
+            return 0;
+        }
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((pixels[y * width + x] & 0xFF) < 128) {
+                    xs[i] = x;
+                    ys[i] = y;
+                    i++;
+                }
+            }
+        }
+
+        // Coarse pass over the whole range, then a fine pass around the best coarse angle;
+        // 0 is scored first so that pages without a clear direction stay as they are
+        double best = 0;
+        double bestScore = profileScore(xs, ys, width, height, 0);
+        for (double angle = SKEW_COARSE_STEP; angle <= maxDegrees; angle += SKEW_COARSE_STEP) {
+            for (double candidate : new double[] {angle, -angle}) {
+                double score = profileScore(xs, ys, width, height, candidate);
+                if (score > bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+        }
+        double coarse = best;
+        for (double angle = coarse - SKEW_COARSE_STEP; angle <= coarse + SKEW_COARSE_STEP; angle += SKEW_FINE_STEP) {
+            double score = profileScore(xs, ys, width, height, angle);
+            if (score > bestScore) {
+                best = angle;
+                bestScore = score;
+            }
+        }
+        return Math.abs(best) > maxDegrees - SKEW_COARSE_STEP ? 0 : best;
+    }
+
+    /**
+     * Sum of squared row counts of the ink projected at an angle; higher means sharper rows.
+     */
+    private static double profileScore(int[] xs, int[] ys, int width, int height, double degrees) {
+        double radians = Math.toRadians(degrees);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        int offset = (int) Math.ceil(width * Math.abs(sin)) + 1;
+        int[] rows = new int[height + 2 * offset + 1];
+        for (int i = 0; i < xs.length; i++) {
+            rows[(int) Math.round(ys[i] * cos - xs[i] * sin) + offset]++;
+        }
+        double score = 0;
+        for (int row : rows) {
+            score += (double) row * row;
+        }
+        return score;
+    }
+
+    private static Mat sharpen(Mat mat) {
+        try (FloatPointer weights = new FloatPointer(SHARPEN_KERNEL);
+             Mat kernel = new Mat(3, 3, opencv_core.CV_32F, weights)) {
+            Mat sharpened = new Mat();
+            opencv_imgproc.filter2D(mat, sharpened, -1, kernel);
+            return sharpened;
+        }
+    }
+
+    private Mat resize(Mat mat) {
+        if (upscaleFactor <= 1.0) {
+            return mat;
+        }
         Mat resized = new Mat();
-        opencv_imgproc.resize(mat, resized, new Size(0, 0), 2.0, 2.0, INTER_CUBIC);
+        opencv_imgproc.resize(mat, resized, new Size(0, 0), upscaleFactor, upscaleFactor, INTER_CUBIC);
         return resized;
     }
 
-    // Helper methods for BufferedImage ↔ Mat conversion
-    private static Mat BufferedImageToMat(BufferedImage image) {
-        return Java2DFrameUtils.toMat(image);
+    /**
+     * Copies the pixels of an 8-bit gray or BGR image into a Mat. Other image types, and images
+     * with transparency, are first drawn onto a white gray or BGR canvas.
+     */
+    static Mat toMat(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // Binary images use an indexed (RGB) colour model but only hold black and white
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_BINARY
+                || image.getColorModel().getNumColorComponents() == 1;
+        int channels = gray ? 1 : 3;
+
+        BufferedImage source = image;
+        boolean direct = (image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                || image.getType() == BufferedImage.TYPE_3BYTE_BGR)
+                && image.getRaster().getDataBuffer().getSize() == width * height * channels;
+        if (!direct) {
+            source = new BufferedImage(width, height, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g2d = source.createGraphics();
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, width, height);
+            g2d.drawImage(image, 0, 0, null);
+            g2d.dispose();
+        }
+
+        byte[] pixels = ((DataBufferByte) source.getRaster().getDataBuffer()).getData();
+        Mat mat = new Mat(height, width, gray ? opencv_core.CV_8UC1 : opencv_core.CV_8UC3);
+        mat.data().put(pixels);
+        return mat;
+    }
+
+    static BufferedImage toBufferedImage(Mat mat) {
+        Mat continuous = mat.isContinuous() ? mat : mat.clone();
+        BufferedImage image = new BufferedImage(continuous.cols(), continuous.rows(),
+            continuous.channels() == 1 ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        continuous.data().get(pixels);
+        if (continuous != mat) {
+            continuous.close();
+        }
+        return image;
     }
 
-    private static BufferedImage matToBufferedImage(Mat mat) {
-        Frame frame = new Frame(mat.cols(), mat.rows(),
-            Frame.DEPTH_UBYTE, mat.channels());
-        frame.image[0] = mat.createBuffer();
-        return Java2DFrameUtils.toBufferedImage(frame);
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
-}
\ No newline at end of file
+}
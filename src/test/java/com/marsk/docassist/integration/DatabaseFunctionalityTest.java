@@ -156,6 +156,39 @@ public class DatabaseFunctionalityTest {
                 .isAfter(documentsOrderedByDate.get(2).getCreatedAt()));
     }
 
+    @Test
+    @DisplayName("Test finding the latest document by content hash, language and OCR profile")
+    void testFindDocumentByContentHash() throws InterruptedException {
+        // Given - The same upload OCR'd twice in English and once in Italian
+        String hash = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        OcrTextDocument older = createTestDocument("invoice.pdf", "Older text", "eng");
+        older.setContentHash(hash);
+        older.setOcrProfile("pdf:PAGE_AUTO");
+        ocrTextDocumentRepository.save(older);
+        Thread.sleep(10);
+
+        OcrTextDocument newer = createTestDocument("invoice-copy.pdf", "Newer text", "eng");
+        newer.setContentHash(hash);
+        newer.setOcrProfile("pdf:PAGE_AUTO");
+        ocrTextDocumentRepository.save(newer);
+
+        OcrTextDocument italian = createTestDocument("invoice.pdf", "Testo italiano", "ita");
+        italian.setContentHash(hash);
+        italian.setOcrProfile("pdf:PAGE_AUTO");
+        ocrTextDocumentRepository.save(italian);
+
+        // When
+        Optional<OcrTextDocument> english = ocrTextDocumentRepository
+                .findFirstByContentHashAndLanguageUsedAndOcrProfileOrderByCreatedAtDesc(hash, "eng", "pdf:PAGE_AUTO");
+        Optional<OcrTextDocument> otherProfile = ocrTextDocumentRepository
+                .findFirstByContentHashAndLanguageUsedAndOcrProfileOrderByCreatedAtDesc(hash, "eng", "image:SINGLE_BLOCK");
+
+        // Then
+        assertTrue(english.isPresent());
+        assertEquals("Newer text", english.get().getExtractedText());
+        assertTrue(otherProfile.isEmpty());
+    }
+
     @Test
     @DisplayName("Test database persistence across multiple operations")
     void testDatabasePersistenceAcrossOperations() {
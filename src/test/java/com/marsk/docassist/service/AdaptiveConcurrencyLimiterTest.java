@@ -0,0 +1,96 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the AIMD concurrency limit in front of the model server.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = TimeUnit.SECONDS.toNanos(10);
+    private static final long FAST = TimeUnit.SECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(30);
+
+    @Test
+    @DisplayName("Fast calls raise the limit gradually up to the maximum")
+    void testAdditiveIncrease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 10, THRESHOLD, 0.5);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+            limiter.release(FAST, false);
+        }
+        assertEquals(3, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+            limiter.release(FAST, false);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Slow or failed calls cut the limit, but not below the minimum")
+    void testMultiplicativeDecrease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 8, 10, THRESHOLD, 0.5);
+
+        assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+        limiter.release(SLOW, false);
+        assertEquals(4, limiter.getLimit());
+
+        assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+        limiter.release(FAST, true);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+            limiter.release(SLOW, true);
+        }
+        assertEquals(1, limiter.getLimit());
+        assertEquals(7L, limiter.getStats().get("overloads"));
+    }
+
+    @Test
+    @DisplayName("Callers beyond the limit time out, and are rejected once the queue is full")
+    void testQueueAndRejection() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0, THRESHOLD, 0.5);
+        assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+        assertFalse(limiter.acquire(1, TimeUnit.SECONDS));
+        assertEquals(1L, limiter.getStats().get("rejected"));
+
+        AdaptiveConcurrencyLimiter queued = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, THRESHOLD, 0.5);
+        assertTrue(queued.acquire(0, TimeUnit.SECONDS));
+        assertFalse(queued.acquire(20, TimeUnit.MILLISECONDS));
+        assertEquals(1L, queued.getStats().get("timeouts"));
+    }
+
+    @Test
+    @DisplayName("A released slot is handed to a waiting caller")
+    void testWaiterGetsReleasedSlot() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, THRESHOLD, 0.5);
+        assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+
+        boolean[] acquired = new boolean[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                acquired[0] = limiter.acquire(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        while (!Integer.valueOf(1).equals(limiter.getStats().get("waiting"))) {
+            Thread.sleep(5);
+        }
+        limiter.cancel();
+        waiter.join(5000);
+
+        assertTrue(acquired[0]);
+        assertEquals(1, limiter.getStats().get("inFlight"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for confining batch job output files to the output directory.
+ */
+public class BatchJobServiceTest {
+
+    private static final Path OUTPUT = Paths.get("output").toAbsolutePath().normalize();
+
+    @Test
+    @DisplayName("Requested output paths are kept relative to the output directory")
+    void testOutputPathsInsideDirectory() {
+        assertEquals("batch_1.xlsx", BatchJobService.excelFileName(OUTPUT, null, "batch_1.xlsx"));
+        assertEquals("batch_1.xlsx", BatchJobService.excelFileName(OUTPUT, "  ", "batch_1.xlsx"));
+        assertEquals("march.xlsx", BatchJobService.excelFileName(OUTPUT, "march.xlsx", "batch_1.xlsx"));
+        assertEquals(Paths.get("2024", "march.xlsx").toString(),
+                BatchJobService.excelFileName(OUTPUT, "2024/./old/../march.xlsx", "batch_1.xlsx"));
+    }
+
+    @Test
+    @DisplayName("Output paths that leave the output directory are rejected")
+    void testOutputPathsOutsideDirectoryAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchJobService.excelFileName(OUTPUT, "../march.xlsx", "batch_1.xlsx"));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchJobService.excelFileName(OUTPUT, "2024/../../../etc/passwd", "batch_1.xlsx"));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchJobService.excelFileName(OUTPUT, OUTPUT.getRoot().resolve("tmp/march.xlsx").toString(),
+                        "batch_1.xlsx"));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchJobService.excelFileName(OUTPUT, ".", "batch_1.xlsx"));
+        // A sibling directory sharing the name as a prefix is still outside
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchJobService.excelFileName(OUTPUT, "../output-other/march.xlsx", "batch_1.xlsx"));
+    }
+}
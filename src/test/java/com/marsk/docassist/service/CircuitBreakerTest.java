@@ -0,0 +1,91 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the circuit breaker in front of the model server.
+ */
+public class CircuitBreakerTest {
+
+    private long now;
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 30, TimeUnit.SECONDS, () -> now);
+
+    @Test
+    @DisplayName("Consecutive failures open the circuit; a success in between resets the count")
+    void testOpensAfterConsecutiveFailures() {
+        fail(2);
+        breaker.recordSuccess(breaker.tryAcquire());
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertEquals(30, breaker.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("After the open interval a single trial call decides whether the circuit closes")
+    void testHalfOpenTrial() {
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(30);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        assertTrue(trial.isTrial());
+        assertNull(breaker.tryAcquire());
+        breaker.recordFailure(trial);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now += TimeUnit.SECONDS.toNanos(30);
+        breaker.recordSuccess(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.tryAcquire().isTrial());
+    }
+
+    @Test
+    @DisplayName("A trial call that was never sent frees the trial for the next caller")
+    void testIgnoredTrial() {
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(31);
+
+        breaker.recordIgnored(breaker.tryAcquire());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Only the trial call itself ends the trial")
+    void testOtherCallsDoNotEndTheTrial() {
+        // Let through before the circuit opened, reported while it is half-open
+        CircuitBreaker.Permit late = breaker.tryAcquire();
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(31);
+
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        assertTrue(trial.isTrial());
+        breaker.recordIgnored(late);
+        assertNull(breaker.tryAcquire());
+
+        // A trial from an earlier open interval does not end the current one either
+        breaker.recordFailure(trial);
+        now += TimeUnit.SECONDS.toNanos(31);
+        CircuitBreaker.Permit next = breaker.tryAcquire();
+        breaker.recordIgnored(trial);
+        assertNull(breaker.tryAcquire());
+        breaker.recordIgnored(next);
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            CircuitBreaker.Permit permit = breaker.tryAcquire();
+            assertNotNull(permit);
+            breaker.recordFailure(permit);
+        }
+    }
+}
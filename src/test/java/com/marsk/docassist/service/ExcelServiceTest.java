@@ -0,0 +1,132 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.config.ExcelConfig;
+import com.marsk.docassist.model.InvoiceData;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the enhanced Excel export.
+ */
+public class ExcelServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Cell styles are shared across rows instead of created per row")
+    void testStyleCountIndependentOfRowCount() throws Exception {
+        ExcelService excelService = new ExcelService();
+        File smallExport = tempDir.resolve("small.xlsx").toFile();
+        File largeExport = tempDir.resolve("large.xlsx").toFile();
+
+        excelService.createEnhancedExcelFile(invoices(4), smallExport.getPath());
+        excelService.createEnhancedExcelFile(invoices(400), largeExport.getPath());
+
+        try (Workbook small = WorkbookFactory.create(smallExport);
+             Workbook large = WorkbookFactory.create(largeExport)) {
+            assertEquals(small.getNumCellStyles(), large.getNumCellStyles());
+            assertEquals(401, large.getSheet("Invoice Data").getLastRowNum());
+        }
+    }
+
+    @Test
+    @DisplayName("Appending keeps earlier rows and moves totals and summary forward")
+    void testAppendKeepsExistingRows() throws Exception {
+        ExcelService excelService = new ExcelService();
+        File ledger = tempDir.resolve("ledger.xlsx").toFile();
+
+        excelService.appendToExcelFile(invoices(3), ledger.getPath());
+        excelService.appendToExcelFile(invoices(2).get(1), ledger.getPath());
+        excelService.appendToExcelFile(invoices(2), ledger.getPath());
+
+        try (Workbook workbook = WorkbookFactory.create(ledger)) {
+            Sheet data = workbook.getSheet("Invoice Data");
+            assertEquals(7, data.getLastRowNum());
+            assertEquals("INV-1", data.getRow(4).getCell(1).getStringCellValue());
+            assertEquals("TOTALS:", data.getRow(7).getCell(6).getStringCellValue());
+            assertEquals("SUM(J2:J7)", data.getRow(7).getCell(9).getCellFormula());
+
+            Sheet summary = workbook.getSheet("Summary");
+            assertEquals(6, summary.getRow(2).getCell(1).getNumericCellValue());
+            assertEquals(732.0, summary.getRow(5).getCell(1).getNumericCellValue(), 0.001);
+        }
+    }
+
+    @Test
+    @DisplayName("Large exports are streamed with the same totals and widths, and leave no temporary files")
+    void testStreamingExport() throws Exception {
+        ExcelService streamingService = new ExcelService(new ExcelConfig() {
+            @Override
+            public int getStreamingRowThreshold() {
+                return 10;
+            }
+
+            @Override
+            public int getStreamingWindowSize() {
+                return 5;
+            }
+        });
+        File streamed = tempDir.resolve("streamed.xlsx").toFile();
+        File inMemory = tempDir.resolve("in_memory.xlsx").toFile();
+        File poiTempDir = tempDir.resolve("poifiles").toFile();
+
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(poiTempDir));
+        try {
+            streamingService.createEnhancedExcelFile(invoices(25), streamed.getPath());
+        } finally {
+            TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+        }
+        new ExcelService().createEnhancedExcelFile(invoices(25), inMemory.getPath());
+
+        // The streaming workbook flushed rows to temporary files and disposed of them
+        assertTrue(poiTempDir.isDirectory());
+        assertArrayEquals(new String[0], poiTempDir.list());
+
+        try (Workbook streamedWorkbook = WorkbookFactory.create(streamed);
+             Workbook inMemoryWorkbook = WorkbookFactory.create(inMemory)) {
+            Sheet data = streamedWorkbook.getSheet("Invoice Data");
+            Sheet expected = inMemoryWorkbook.getSheet("Invoice Data");
+            assertEquals(26, data.getLastRowNum());
+            assertEquals("INV-24", data.getRow(25).getCell(1).getStringCellValue());
+            assertEquals("TOTALS:", data.getRow(26).getCell(6).getStringCellValue());
+            assertEquals("SUM(J2:J26)", data.getRow(26).getCell(9).getCellFormula());
+            for (int column = 0; column < expected.getRow(0).getLastCellNum(); column++) {
+                assertEquals(expected.getColumnWidth(column), data.getColumnWidth(column), "width of column " + column);
+            }
+            assertEquals(25, streamedWorkbook.getSheet("Summary").getRow(2).getCell(1).getNumericCellValue());
+        }
+    }
+
+    private List<InvoiceData> invoices(int count) {
+        List<InvoiceData> invoices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            InvoiceData invoice = new InvoiceData();
+            invoice.setSourceFilename("invoice_" + i + ".pdf");
+            invoice.setInvoiceNumber("INV-" + i);
+            invoice.setInvoiceDate(LocalDate.of(2025, 1, 1).plusDays(i));
+            invoice.setVendorName("Vendor " + (i % 3));
+            invoice.setNetAmount(new BigDecimal("100.00"));
+            invoice.setVatAmount(new BigDecimal("22.00"));
+            invoice.setTotalAmount(new BigDecimal("122.00"));
+            invoice.setCurrency("EUR");
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
+}
@@ -0,0 +1,82 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.InvoiceData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the LLM extraction result cache.
+ */
+public class InvoiceExtractionCacheTest {
+
+    @Test
+    @DisplayName("Text that only differs in whitespace hits the cache")
+    void testWhitespaceVariantsShareAnEntry() {
+        InvoiceExtractionCache cache = new InvoiceExtractionCache(true, "llama3.2", 10, Duration.ofMinutes(5));
+        cache.put("FATTURA N. 12\nTotale  100,00", invoice("12"));
+
+        InvoiceData cached = cache.get("  FATTURA N. 12 \r\n\tTotale 100,00\n");
+
+        assertNotNull(cached);
+        assertEquals("12", cached.getInvoiceNumber());
+    }
+
+    @Test
+    @DisplayName("A different model name never reuses entries")
+    void testModelNameIsPartOfTheKey() {
+        InvoiceExtractionCache llama = new InvoiceExtractionCache(true, "llama3.2", 10, Duration.ofMinutes(5));
+        InvoiceExtractionCache mistral = new InvoiceExtractionCache(true, "mistral", 10, Duration.ofMinutes(5));
+        llama.put("FATTURA N. 12", invoice("12"));
+
+        assertNotNull(llama.get("FATTURA N. 12"));
+        assertNull(mistral.get("FATTURA N. 12"));
+    }
+
+    @Test
+    @DisplayName("The key changes with the model name and the prompt version, not with whitespace")
+    void testKeyDerivation() {
+        String version = InvoiceExtractionCache.PROMPT_VERSION;
+        String key = InvoiceExtractionCache.key("FATTURA N. 12", "llama3.2", version);
+
+        assertEquals(12, version.length());
+        assertEquals(key, InvoiceExtractionCache.key(" FATTURA\tN. 12\n", "llama3.2", version));
+        assertNotEquals(key, InvoiceExtractionCache.key("FATTURA N. 13", "llama3.2", version));
+        assertNotEquals(key, InvoiceExtractionCache.key("FATTURA N. 12", "mistral", version));
+        assertNotEquals(key, InvoiceExtractionCache.key("FATTURA N. 12", "llama3.2", "000000000000"));
+    }
+
+    @Test
+    @DisplayName("Results of differently built requests are kept apart by their prompt version")
+    void testPromptVersionsAreSeparate() {
+        InvoiceExtractionCache cache = new InvoiceExtractionCache(true, "llama3.2", 10, Duration.ofMinutes(5));
+        String streaming = InvoiceExtractionCache.versionOf("{\"stream\":true,\"format\":\"json\"}");
+        cache.put("FATTURA N. 12", invoice("12"));
+
+        assertNull(cache.get("FATTURA N. 12", streaming));
+        cache.put("FATTURA N. 12", streaming, invoice("12-S"));
+        assertEquals("12-S", cache.get("FATTURA N. 12", streaming).getInvoiceNumber());
+        assertEquals("12", cache.get("FATTURA N. 12").getInvoiceNumber());
+        assertNotEquals(streaming, InvoiceExtractionCache.versionOf("{\"stream\":true}"));
+    }
+
+    @Test
+    @DisplayName("Cached results are copies that callers may modify")
+    void testCachedResultsAreCopies() {
+        InvoiceExtractionCache cache = new InvoiceExtractionCache(true, "llama3.2", 10, Duration.ofMinutes(5));
+        cache.put("FATTURA N. 12", invoice("12"));
+
+        cache.get("FATTURA N. 12").setSourceFilename("first.pdf");
+
+        assertNull(cache.get("FATTURA N. 12").getSourceFilename());
+    }
+
+    private InvoiceData invoice(String number) {
+        InvoiceData data = new InvoiceData();
+        data.setInvoiceNumber(number);
+        return data;
+    }
+}
@@ -0,0 +1,193 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.marsk.docassist.config.BatchJobConfig;
+import com.marsk.docassist.config.OcrConfig;
+import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.model.OcrResult;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for running staged batches through the OCR and extraction stages.
+ */
+public class InvoicePipelineServiceTest {
+
+    private final OcrService ocrService = mock(OcrService.class);
+    private final VendorTemplateService vendorTemplateService = mock(VendorTemplateService.class);
+    private final ExecutorService ocrExecutor = Executors.newFixedThreadPool(2);
+    private final ExecutorService singleOcrThread = Executors.newSingleThreadExecutor();
+    private final ExecutorService llmExecutor = Executors.newFixedThreadPool(2);
+    private StagedBatch batch;
+
+    @AfterEach
+    void tearDown() {
+        ocrExecutor.shutdownNow();
+        singleOcrThread.shutdownNow();
+        llmExecutor.shutdownNow();
+        if (batch != null) {
+            batch.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Invoices come back in upload order with no more files in flight than allowed")
+    void testUploadOrderAndMaxInFlight() throws Exception {
+        // 2 OCR workers + 1 queued + 1 LLM worker
+        InvoicePipelineService pipeline = pipeline(ocrExecutor, 2, 1, 1);
+        batch = stage(10);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        when(ocrService.performOcrWithDetails(any(Path.class), anyString(), anyString())).thenAnswer(invocation -> {
+            String filename = invocation.getArgument(1);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            // Earlier uploads take longer, so they finish out of order
+            Thread.sleep((10 - indexOf(filename)) * 5L);
+            return new OcrResult("invoice text of " + filename, List.of(), 0);
+        });
+        when(vendorTemplateService.processInvoice(anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            InvoiceData data = new InvoiceData();
+            data.setInvoiceNumber(invocation.getArgument(1));
+            inFlight.decrementAndGet();
+            return new OllamaService.InvoiceExtractionResult(data, true, 1.0, null);
+        });
+
+        List<InvoiceData> callbacks = new CopyOnWriteArrayList<>();
+        List<InvoiceData> invoices = pipeline.extractInvoices(batch, "ita", callbacks::add);
+
+        assertEquals(10, invoices.size());
+        for (int i = 0; i < invoices.size(); i++) {
+            assertEquals("invoice_" + i + ".pdf", invoices.get(i).getInvoiceNumber());
+            assertEquals(OcrProgressInfo.Stage.EXCEL, batch.getFiles().get(i).getStage());
+        }
+        assertEquals(10, callbacks.size());
+        assertTrue(maxInFlight.get() <= 4, "at most 4 files in flight but saw " + maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("An error in a worker releases the caller and skips the remaining files")
+    void testWorkerErrorStopsTheRun() throws Exception {
+        // One OCR thread, so no other file is recognised alongside the failing one
+        InvoicePipelineService pipeline = pipeline(singleOcrThread, 1, 1, 1);
+        batch = stage(6);
+
+        when(ocrService.performOcrWithDetails(any(Path.class), anyString(), anyString())).thenAnswer(invocation -> {
+            String filename = invocation.getArgument(1);
+            if (indexOf(filename) == 0) {
+                // Not an Exception, so it escapes the per-file error handling
+                throw new Error("worker crashed");
+            }
+            return new OcrResult("invoice text of " + filename, List.of(), 0);
+        });
+        when(vendorTemplateService.processInvoice(anyString(), anyString()))
+                .thenReturn(new OllamaService.InvoiceExtractionResult(new InvoiceData(), true, 1.0, null));
+
+        IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> pipeline.extractInvoices(batch, "ita", null)));
+
+        assertTrue(e.getMessage().contains("worker crashed"));
+        for (OcrProgressInfo file : batch.getFiles()) {
+            assertEquals(OcrProgressInfo.Stage.FAILED, file.getStage());
+        }
+        for (OcrProgressInfo file : batch.getFiles().subList(1, 6)) {
+            assertTrue(file.getError().startsWith("pipeline stopped"), file.getError());
+        }
+    }
+
+    @Test
+    @DisplayName("Interrupting the caller cancels the queued and running tasks")
+    void testInterruptCancelsQueuedTasks() throws Exception {
+        InvoicePipelineService pipeline = pipeline(singleOcrThread, 1, 1, 1);
+        batch = stage(6);
+        AtomicInteger ocrCalls = new AtomicInteger();
+        AtomicBoolean ocrInterrupted = new AtomicBoolean();
+        CountDownLatch ocrStarted = new CountDownLatch(1);
+
+        when(ocrService.performOcrWithDetails(any(Path.class), anyString(), anyString())).thenAnswer(invocation -> {
+            ocrCalls.incrementAndGet();
+            ocrStarted.countDown();
+            try {
+                // Blocks until the run is cancelled
+                new CountDownLatch(1).await();
+                return null;
+            } catch (InterruptedException e) {
+                ocrInterrupted.set(true);
+                throw e;
+            }
+        });
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                pipeline.extractInvoices(batch, "ita", null);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        caller.start();
+        assertTrue(ocrStarted.await(5, TimeUnit.SECONDS));
+        // Wait until the caller blocks with the first file running and the next ones queued
+        while (caller.getState() != Thread.State.WAITING) {
+            Thread.sleep(5);
+        }
+        caller.interrupt();
+        caller.join(5000);
+
+        assertFalse(caller.isAlive());
+        assertInstanceOf(InterruptedException.class, thrown.get());
+        singleOcrThread.shutdown();
+        assertTrue(singleOcrThread.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(ocrInterrupted.get());
+        // The queued files were cancelled before they reached OCR
+        assertEquals(1, ocrCalls.get());
+    }
+
+    private InvoicePipelineService pipeline(ExecutorService ocrThreads, int ocrWorkers, int queueCapacity,
+                                            int llmWorkers) {
+        return new InvoicePipelineService(ocrService, vendorTemplateService, mock(OcrConfig.class),
+                batchJobConfig(ocrWorkers, queueCapacity, llmWorkers), ocrThreads, llmExecutor);
+    }
+
+    private static BatchJobConfig batchJobConfig(int ocrWorkers, int queueCapacity, int llmWorkers) {
+        BatchJobConfig config = mock(BatchJobConfig.class);
+        when(config.getPipelineOcrWorkers()).thenReturn(ocrWorkers);
+        when(config.getPipelineQueueCapacity()).thenReturn(queueCapacity);
+        when(config.getPipelineLlmWorkers()).thenReturn(llmWorkers);
+        return config;
+    }
+
+    private static StagedBatch stage(int files) throws Exception {
+        MultipartFile[] uploads = new MultipartFile[files];
+        for (int i = 0; i < files; i++) {
+            uploads[i] = new MockMultipartFile("files", "invoice_" + i + ".pdf", "application/pdf", new byte[] {1});
+        }
+        return StagedBatch.stage(uploads);
+    }
+
+    private static int indexOf(String filename) {
+        return Integer.parseInt(filename.substring("invoice_".length(), filename.indexOf('.')));
+    }
+}
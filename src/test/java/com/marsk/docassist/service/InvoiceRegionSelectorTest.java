@@ -0,0 +1,47 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the region-of-interest selection used by the PDF OCR path.
+ */
+public class InvoiceRegionSelectorTest {
+
+    private static final int WIDTH = 1700;
+    private static final int HEIGHT = 2200;
+
+    private final InvoiceRegionSelector selector = new InvoiceRegionSelector(0.35, 0.6);
+
+    @Test
+    @DisplayName("Header blocks and right-aligned totals are kept, line items and footer are skipped")
+    void testSelectsHeaderAndTotals() {
+        Rectangle vendor = new Rectangle(100, 100, 600, 200);
+        Rectangle customer = new Rectangle(1000, 300, 550, 200);
+        Rectangle lineItems = new Rectangle(100, 900, 1500, 600);
+        Rectangle totals = new Rectangle(1100, 1550, 450, 180);
+        Rectangle terms = new Rectangle(100, 1950, 1500, 120);
+
+        List<Rectangle> regions = selector.select(List.of(vendor, customer, lineItems, totals, terms), WIDTH, HEIGHT);
+
+        assertEquals(3, regions.size());
+        assertTrue(regions.get(0).contains(vendor));
+        assertTrue(regions.get(1).contains(customer));
+        assertTrue(regions.get(2).contains(totals));
+        regions.forEach(region -> assertTrue(new Rectangle(0, 0, WIDTH, HEIGHT).contains(region)));
+    }
+
+    @Test
+    @DisplayName("Pages without a usable selection are recognised as a whole")
+    void testFallsBackToFullPage() {
+        assertTrue(selector.select(List.of(), WIDTH, HEIGHT).isEmpty());
+        assertTrue(selector.select(List.of(new Rectangle(100, 900, 1500, 600)), WIDTH, HEIGHT).isEmpty());
+        // A header that fills most of the page saves nothing
+        assertTrue(selector.select(List.of(new Rectangle(50, 50, 1600, 2000)), WIDTH, HEIGHT).isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.OcrResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the confidence gates of the OCR escalation ladder.
+ */
+public class OcrEscalationPolicyTest {
+
+    private final OcrEscalationPolicy policy = new OcrEscalationPolicy(75f, 0.5);
+
+    @Test
+    @DisplayName("Only fast-pass pages with low confidence or without words are escalated")
+    void testPageEscalation() {
+        assertFalse(policy.needsPageEscalation(page(OcrResult.OcrPass.FAST, 92f)));
+        assertTrue(policy.needsPageEscalation(page(OcrResult.OcrPass.FAST, 48f)));
+        assertTrue(policy.needsPageEscalation(page(OcrResult.OcrPass.FAST)));
+        assertFalse(policy.needsPageEscalation(page(OcrResult.OcrPass.STANDARD)));
+        assertFalse(policy.needsPageEscalation(page(OcrResult.OcrPass.STANDARD, 48f)));
+        assertFalse(policy.needsPageEscalation(page(null)));
+    }
+
+    @Test
+    @DisplayName("Incomplete extractions are retried only while fast-pass pages remain")
+    void testDocumentEscalation() {
+        OcrResult fast = new OcrResult("text", List.of(page(OcrResult.OcrPass.FAST, 90f), page(null)), 10);
+        OcrResult standard = new OcrResult("text", List.of(page(OcrResult.OcrPass.STANDARD, 60f)), 10);
+
+        assertTrue(policy.needsDocumentEscalation(fast, 0.27));
+        assertFalse(policy.needsDocumentEscalation(fast, 0.82));
+        assertFalse(policy.needsDocumentEscalation(standard, 0.27));
+    }
+
+    @Test
+    @DisplayName("Documents without any text are retried only while fast-pass pages remain")
+    void testEmptyTextEscalation() {
+        assertTrue(policy.needsEmptyTextEscalation(new OcrResult(" \n", List.of(page(OcrResult.OcrPass.FAST)), 10)));
+        assertFalse(policy.needsEmptyTextEscalation(new OcrResult("", List.of(page(OcrResult.OcrPass.STANDARD)), 10)));
+        assertFalse(policy.needsEmptyTextEscalation(
+                new OcrResult("text", List.of(page(OcrResult.OcrPass.FAST, 90f)), 10)));
+    }
+
+    private OcrResult.PageResult page(OcrResult.OcrPass pass, float... wordConfidences) {
+        OcrResult.PageResult page = new OcrResult.PageResult(1, "text");
+        page.setPass(pass);
+        List<OcrResult.Word> words = new ArrayList<>();
+        for (float confidence : wordConfidences) {
+            words.add(new OcrResult.Word("word", confidence, 0, 0, 10, 10));
+        }
+        page.setWords(words);
+        return page;
+    }
+}
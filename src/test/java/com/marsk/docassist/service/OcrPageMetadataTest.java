@@ -0,0 +1,77 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.OcrResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the page metadata stored with OCR results in the database tier of the OCR cache.
+ */
+public class OcrPageMetadataTest {
+
+    @Test
+    @DisplayName("Pages restored from the metadata keep pass, DPI, confidence and timings")
+    void testRoundTrip() {
+        OcrResult.PageResult fast = new OcrResult.PageResult(1, "Fattura 12");
+        fast.setPass(OcrResult.OcrPass.FAST);
+        fast.setDpi(200);
+        fast.setRenderMs(40);
+        fast.setPreprocessStageMs(Map.of("grayscale", 3L));
+        fast.setRecognitionMs(250);
+        fast.setWords(List.of(new OcrResult.Word("Fattura", 90f, 0, 0, 10, 10),
+                new OcrResult.Word("12", 80f, 12, 0, 5, 10)));
+        OcrResult.PageResult textLayer = new OcrResult.PageResult(2, "Totale");
+        textLayer.setExtractionMethod(OcrResult.ExtractionMethod.TEXT_LAYER);
+
+        List<OcrResult.PageResult> pages = OcrPageMetadata.read(OcrPageMetadata.write(List.of(fast, textLayer)));
+
+        assertEquals(2, pages.size());
+        OcrResult.PageResult restored = pages.get(0);
+        assertEquals(1, restored.getPageNumber());
+        assertEquals(OcrResult.OcrPass.FAST, restored.getPass());
+        assertEquals(200, restored.getDpi());
+        assertEquals(85.0, restored.getConfidence(), 0.01);
+        assertEquals(40, restored.getRenderMs());
+        assertEquals(250, restored.getRecognitionMs());
+        assertEquals(3L, (long) restored.getPreprocessStageMs().get("grayscale"));
+        assertEquals(OcrResult.ExtractionMethod.TEXT_LAYER, pages.get(1).getExtractionMethod());
+        assertNull(pages.get(1).getPass());
+        assertEquals(-1.0, pages.get(1).getConfidence(), 0.01);
+        assertTrue(new OcrResult("Fattura 12\nTotale", pages, 0).isFastPassUsed());
+    }
+
+    @Test
+    @DisplayName("Missing or unreadable metadata is not restored")
+    void testMissingMetadata() {
+        assertNull(OcrPageMetadata.read(null));
+        assertNull(OcrPageMetadata.read("not json"));
+    }
+
+    @Test
+    @DisplayName("Metadata written by another version is treated as missing")
+    void testStaleMetadata() {
+        assertNull(OcrPageMetadata.read("[{\"page\":1,\"pass\":\"ACCURATE\"}]"));
+        assertNull(OcrPageMetadata.read("[{\"page\":1,\"extractionMethod\":\"VISION\"}]"));
+        assertNull(OcrPageMetadata.read("[{\"page\":1,\"pass\":2}]"));
+        assertNull(OcrPageMetadata.read("[null]"));
+    }
+
+    @Test
+    @DisplayName("Copied pages can be updated without changing the original")
+    void testPageCopy() {
+        OcrResult.PageResult page = new OcrResult.PageResult(1, "text");
+        page.setPass(OcrResult.OcrPass.FAST);
+        OcrResult.PageResult copy = new OcrResult.PageResult(page);
+        copy.setEscalated(true);
+        copy.setRenderMs(100);
+
+        assertFalse(page.isEscalated());
+        assertEquals(0, page.getRenderMs());
+        assertEquals(OcrResult.OcrPass.FAST, copy.getPass());
+    }
+}
@@ -0,0 +1,66 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.OcrResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for rebuilding page text from word-level OCR results.
+ */
+public class OcrTextAssemblerTest {
+
+    @Test
+    @DisplayName("Words in reading order are joined into lines and blocks")
+    void testAssemblesLinesAndBlocks() {
+        List<OcrResult.Word> words = List.of(
+                word("FATTURA", 100, 100), word("N.", 320, 102), word("118", 400, 100),
+                word("del", 100, 140), word("12/03/2025", 180, 140),
+                // Paragraph further down the same column
+                word("Rossi", 100, 300), word("S.r.l.", 260, 300),
+                // Next column starts back at the top
+                word("Spett.le", 900, 100), word("Bianchi", 900, 140));
+
+        assertEquals("FATTURA N. 118\ndel 12/03/2025\n\nRossi S.r.l.\n\nSpett.le\nBianchi",
+                OcrTextAssembler.assemble(words));
+    }
+
+    @Test
+    @DisplayName("Tesseract words are converted with confidence and box, empty words are dropped")
+    void testConvertsTesseractWords() {
+        List<OcrResult.Word> words = OcrTextAssembler.fromTesseract(List.of(
+                new net.sourceforge.tess4j.Word("Totale ", 91.5f, new Rectangle(10, 20, 120, 30)),
+                new net.sourceforge.tess4j.Word(" ", 0f, new Rectangle(140, 20, 5, 30))));
+
+        assertEquals(1, words.size());
+        assertEquals("Totale", words.get(0).getText());
+        assertEquals(91.5f, words.get(0).getConfidence());
+        assertEquals(120, words.get(0).getWidth());
+    }
+
+    @Test
+    @DisplayName("Words recognised on a region montage are mapped back to page coordinates")
+    void testMontageMapsWordsToPage() {
+        BufferedImage page = new BufferedImage(1000, 1400, BufferedImage.TYPE_BYTE_GRAY);
+        RegionMontage montage = RegionMontage.of(page,
+                List.of(new Rectangle(50, 60, 400, 200), new Rectangle(600, 1000, 300, 100)), 20);
+
+        assertEquals(400, montage.getImage().getWidth());
+        assertEquals(340, montage.getImage().getHeight());
+
+        List<OcrResult.Word> mapped = montage.toPageCoordinates(List.of(word("Imponibile", 10, 10), word("1.220,00", 30, 230)));
+        assertEquals(60, mapped.get(0).getX());
+        assertEquals(70, mapped.get(0).getY());
+        assertEquals(630, mapped.get(1).getX());
+        assertEquals(1010, mapped.get(1).getY());
+    }
+
+    private OcrResult.Word word(String text, int x, int y) {
+        return new OcrResult.Word(text, 90f, x, y, text.length() * 20, 30);
+    }
+}
@@ -0,0 +1,94 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the condensation of OCR text before the extraction prompt.
+ */
+public class OcrTextCondenserTest {
+
+    private static final String TWO_PAGE_INVOICE = String.join("\n",
+            "--- Page 1 ---",
+            "ACME Forniture S.r.l.",
+            "Via Roma 1, 20100 Milano   P.IVA IT01234567890",
+            "",
+            "FATTURA N. 2024/117      Data 12/03/2024",
+            "Cliente: Rossi SpA  P.IVA 09876543210",
+            "______________________________",
+            "Pagina 1 di 2",
+            "--- Page 2 ---",
+            "ACME Forniture S.r.l.",
+            "Via Roma 1, 20100 Milano   P.IVA IT01234567890",
+            "Imponibile      1.000,00",
+            "IVA 22%           220,00",
+            "Totale EUR      1.220,00",
+            "Pagina 2 di 2");
+
+    @Test
+    @DisplayName("Page markers, counters, rules and repeated headers are removed")
+    void testRemovesNoiseAndRepeatedLines() {
+        OcrTextCondenser.Result result = new OcrTextCondenser(true, 1000).condense(TWO_PAGE_INVOICE);
+
+        assertEquals(List.of(
+                "ACME Forniture S.r.l.",
+                "Via Roma 1, 20100 Milano P.IVA IT01234567890",
+                "FATTURA N. 2024/117 Data 12/03/2024",
+                "Cliente: Rossi SpA P.IVA 09876543210",
+                "Imponibile 1.000,00",
+                "IVA 22% 220,00",
+                "Totale EUR 1.220,00"), result.getText().lines().toList());
+        assertEquals(15, result.getOriginalLines());
+        assertEquals(7, result.getKeptLines());
+        assertTrue(result.getSavedTokens() > 0);
+    }
+
+    @Test
+    @DisplayName("Over the budget, field lines are kept in order and boilerplate is dropped")
+    void testRanksLinesWithinBudget() {
+        StringBuilder text = new StringBuilder(TWO_PAGE_INVOICE);
+        for (int i = 0; i < 30; i++) {
+            text.append("\nArticolo di magazzino numero ").append(i).append(" consegnato al reparto spedizioni");
+        }
+        text.append("\nInformativa privacy ai sensi del Regolamento UE 2016/679 (GDPR), art. 13");
+
+        OcrTextCondenser.Result result = new OcrTextCondenser(true, 80).condense(text.toString());
+        List<String> lines = result.getText().lines().toList();
+
+        assertTrue(result.getCondensedTokens() <= 80);
+        assertTrue(lines.contains("FATTURA N. 2024/117 Data 12/03/2024"));
+        assertTrue(lines.contains("Totale EUR 1.220,00"));
+        assertTrue(lines.indexOf("Imponibile 1.000,00") < lines.indexOf("Totale EUR 1.220,00"));
+        assertTrue(lines.stream().noneMatch(line -> line.contains("privacy")));
+    }
+
+    @Test
+    @DisplayName("Keywords only count as whole words, not inside other words")
+    void testKeywordsMatchWholeWords() {
+        StringBuilder text = new StringBuilder(TWO_PAGE_INVOICE);
+        for (int i = 0; i < 20; i++) {
+            // Holds "net", "due", "eur" and "n." only inside other words
+            text.append("\nAssistenza internet e procedure di reso in Europa, un. sportello per la sede ").append(i);
+        }
+
+        OcrTextCondenser.Result result = new OcrTextCondenser(true, 80).condense(text.toString());
+        List<String> lines = result.getText().lines().toList();
+
+        assertTrue(lines.contains("Imponibile 1.000,00"));
+        assertTrue(lines.contains("Totale EUR 1.220,00"));
+        assertTrue(lines.stream().noneMatch(line -> line.contains("internet")));
+    }
+
+    @Test
+    @DisplayName("Disabled condensation passes the text through unchanged")
+    void testDisabled() {
+        OcrTextCondenser.Result result = new OcrTextCondenser(false, 10).condense(TWO_PAGE_INVOICE);
+
+        assertEquals(TWO_PAGE_INVOICE, result.getText());
+        assertEquals(0, result.getSavedTokens());
+    }
+}
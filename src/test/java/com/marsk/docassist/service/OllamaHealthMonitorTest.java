@@ -0,0 +1,35 @@
+package com.marsk.docassist.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the model lookup of the Ollama health probe.
+ */
+public class OllamaHealthMonitorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Model names without a tag match their latest variant")
+    void testMatchesLatestTag() throws Exception {
+        JsonNode tags = objectMapper.readTree(
+                "{\"models\":[{\"name\":\"llama3.2:latest\",\"model\":\"llama3.2:latest\"},{\"name\":\"mistral:7b\"}]}");
+
+        assertTrue(OllamaHealthMonitor.hasModel(tags, "llama3.2"));
+        assertTrue(OllamaHealthMonitor.hasModel(tags, "Llama3.2:latest"));
+        assertTrue(OllamaHealthMonitor.hasModel(tags, "mistral:7b"));
+        assertFalse(OllamaHealthMonitor.hasModel(tags, "mistral"));
+    }
+
+    @Test
+    @DisplayName("Missing models and empty responses are reported as unavailable")
+    void testMissingModel() throws Exception {
+        assertFalse(OllamaHealthMonitor.hasModel(objectMapper.readTree("{\"models\":[]}"), "llama3.2"));
+        assertFalse(OllamaHealthMonitor.hasModel(objectMapper.readTree("{}"), "llama3.2"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the adaptive render resolution used by the PDF OCR path.
+ */
+public class RenderDpiSelectorTest {
+
+    private final RenderDpiSelector selector = new RenderDpiSelector(200, 400, 30);
+
+    @Test
+    @DisplayName("Line height is measured from bands of dark rows")
+    void testEstimatesLineHeight() {
+        BufferedImage page = pageWithLines(BufferedImage.TYPE_BYTE_GRAY, 24, 10);
+
+        assertEquals(24, selector.estimateTextHeight(page), 0.5);
+    }
+
+    @Test
+    @DisplayName("Pages with large text keep the initial resolution")
+    void testLargeTextKeepsInitialDpi() {
+        BufferedImage page = pageWithLines(BufferedImage.TYPE_BYTE_GRAY, 36, 8);
+
+        assertEquals(200, selector.selectDpi(page, 200));
+    }
+
+    @Test
+    @DisplayName("Small text is re-rendered at a proportionally higher, capped resolution")
+    void testSmallTextRaisesDpi() {
+        assertEquals(250, selector.selectDpi(pageWithLines(BufferedImage.TYPE_INT_RGB, 24, 10), 200));
+        assertEquals(400, selector.selectDpi(pageWithLines(BufferedImage.TYPE_BYTE_GRAY, 8, 20), 200));
+    }
+
+    @Test
+    @DisplayName("Pages without measurable text lines keep the initial resolution")
+    void testBlankPageKeepsInitialDpi() {
+        BufferedImage page = pageWithLines(BufferedImage.TYPE_BYTE_GRAY, 24, 0);
+
+        assertEquals(-1, selector.estimateTextHeight(page));
+        assertEquals(200, selector.selectDpi(page, 200));
+    }
+
+    private BufferedImage pageWithLines(int imageType, int lineHeight, int lineCount) {
+        BufferedImage page = new BufferedImage(1600, 2200, imageType);
+        Graphics2D g = page.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, page.getWidth(), page.getHeight());
+        g.setColor(Color.BLACK);
+        int y = 100;
+        for (int i = 0; i < lineCount; i++) {
+            g.fillRect(100, y, 1200, lineHeight);
+            y += lineHeight * 2;
+        }
+        g.dispose();
+        return page;
+    }
+}
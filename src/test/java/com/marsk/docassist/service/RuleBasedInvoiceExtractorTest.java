@@ -0,0 +1,173 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.service.RuleBasedInvoiceExtractor.Field;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the pattern-based extraction that runs before the model.
+ */
+public class RuleBasedInvoiceExtractorTest {
+
+    private static final String ITALIAN_INVOICE = String.join("\n",
+            "--- Page 1 ---",
+            "ACME Forniture S.r.l.",
+            "Via Roma 1, 20100 Milano   P.IVA IT01234567897",
+            "FATTURA N. 2024/117      Data 12/03/2024",
+            "Spett.le Rossi SpA",
+            "P.IVA 09876543217",
+            "Descrizione            Qta   Prezzo",
+            "Sedie da ufficio        10   100,00",
+            "--- Page 2 ---",
+            "ACME Forniture S.r.l.",
+            "Via Roma 1, 20100 Milano   P.IVA IT01234567897",
+            "Imponibile      1.000,00",
+            "IVA 22%           220,00",
+            "Totale documento EUR      1.220,00");
+
+    private final RuleBasedInvoiceExtractor extractor = new RuleBasedInvoiceExtractor();
+
+    @Test
+    @DisplayName("Labelled fields of an Italian invoice are extracted and validated")
+    void testExtractsItalianInvoice() {
+        RuleBasedInvoiceExtractor.Result result = extractor.extract(ITALIAN_INVOICE);
+        InvoiceData data = result.toInvoiceData(0.8);
+
+        assertEquals("2024/117", data.getInvoiceNumber());
+        assertEquals(LocalDate.of(2024, 3, 12), data.getInvoiceDate());
+        assertEquals("ACME Forniture S.r.l.", data.getVendorName());
+        assertEquals("IT01234567897", data.getVendorVatNumber());
+        assertEquals("Rossi SpA", data.getClientName());
+        assertEquals("09876543217", data.getClientVatNumber());
+        assertEquals(new BigDecimal("1000.00"), data.getNetAmount());
+        assertEquals(new BigDecimal("220.00"), data.getVatAmount());
+        assertEquals(new BigDecimal("1220.00"), data.getTotalAmount());
+        assertEquals("EUR", data.getCurrency());
+
+        // Check digits and consistent amounts are validated
+        assertEquals(RuleBasedInvoiceExtractor.VALIDATED, result.getConfidence(Field.VENDOR_VAT_NUMBER));
+        assertEquals(RuleBasedInvoiceExtractor.VALIDATED, result.getConfidence(Field.TOTAL_AMOUNT));
+        assertEquals(10, result.getFieldConfidence().size());
+        // Only the client's number is labelled; the letterhead number is the vendor's by position
+        assertTrue(result.isPositional(Field.VENDOR_VAT_NUMBER));
+        assertFalse(result.isPositional(Field.CLIENT_VAT_NUMBER));
+    }
+
+    @Test
+    @DisplayName("With the client block first, an unlabelled VAT number is only a positional guess")
+    void testClientBlockFirst() {
+        String clientFirst = String.join("\n",
+                "Spett.le Rossi SpA",
+                "Via Verdi 3",
+                "20100 Milano",
+                "Italia",
+                "Codice destinatario ABC1234",
+                "P.IVA 09876543217",
+                "FATTURA N. 2024/117      Data 12/03/2024",
+                "ACME Forniture S.r.l.",
+                "Imponibile 100,00",
+                "IVA 22,00",
+                "Totale 122,00");
+
+        // The client's number is below its block and is taken for the vendor's, but only by position
+        RuleBasedInvoiceExtractor.Result guessed = extractor.extract(clientFirst);
+        assertEquals("09876543217", guessed.getValue(Field.VENDOR_VAT_NUMBER));
+        assertTrue(guessed.isPositional(Field.VENDOR_VAT_NUMBER));
+        assertTrue(guessed.hasPositionalFields());
+
+        // A number under a vendor label replaces the guess, even with a lower confidence
+        RuleBasedInvoiceExtractor.Result labelled = extractor.extract(clientFirst
+                .replace("ACME Forniture S.r.l.", "Fornitore: ACME Forniture S.r.l.\nP.IVA IT12345678901"));
+        assertEquals("IT12345678901", labelled.getValue(Field.VENDOR_VAT_NUMBER));
+        assertFalse(labelled.isPositional(Field.VENDOR_VAT_NUMBER));
+        assertFalse(labelled.hasPositionalFields());
+        assertEquals("ACME Forniture S.r.l.", labelled.getValue(Field.VENDOR_NAME));
+    }
+
+    @Test
+    @DisplayName("Inconsistent amounts and invalid check digits are kept at label confidence")
+    void testUnvalidatedValues() {
+        RuleBasedInvoiceExtractor.Result result = extractor.extract(String.join("\n",
+                "Invoice number: INV-0042",
+                "Date: 5 March 2024",
+                "VAT No. IT12345678901",
+                "Subtotal 100.00",
+                "VAT 20.00",
+                "Total due $ 125.00"));
+
+        assertEquals("INV-0042", result.getValue(Field.INVOICE_NUMBER));
+        assertEquals(LocalDate.of(2024, 3, 5), result.getValue(Field.INVOICE_DATE));
+        assertEquals(new BigDecimal("125.00"), result.getValue(Field.TOTAL_AMOUNT));
+        assertTrue(result.getConfidence(Field.TOTAL_AMOUNT) < RuleBasedInvoiceExtractor.VALIDATED);
+        assertTrue(result.getConfidence(Field.VENDOR_VAT_NUMBER) < RuleBasedInvoiceExtractor.VALIDATED);
+        assertNull(result.getValue(Field.CLIENT_VAT_NUMBER));
+    }
+
+    @Test
+    @DisplayName("Rule values fill gaps in the model result, validated ones replace its values")
+    void testMergeIntoModelResult() {
+        RuleBasedInvoiceExtractor.Result result = extractor.extract(ITALIAN_INVOICE);
+        InvoiceData model = new InvoiceData();
+        model.setVendorName("ACME Forniture");
+        model.setTotalAmount(new BigDecimal("1200.00"));
+        model.setDescription("Sedie da ufficio");
+
+        InvoiceData merged = result.mergeInto(model, 0.8);
+
+        assertEquals("ACME Forniture", merged.getVendorName());
+        assertEquals(new BigDecimal("1220.00"), merged.getTotalAmount());
+        assertEquals("2024/117", merged.getInvoiceNumber());
+        assertEquals("Sedie da ufficio", merged.getDescription());
+        assertNull(model.getInvoiceNumber());
+    }
+
+    @Test
+    @DisplayName("Validated VAT numbers do not replace the model's or fill a gap with the other party's number")
+    void testMergeKeepsModelVatNumbers() {
+        // The client's VAT number is too far below its label and is taken for the vendor's
+        RuleBasedInvoiceExtractor.Result result = extractor.extract(String.join("\n",
+                "ACME Forniture S.r.l.",
+                "Spett.le Rossi SpA",
+                "Via Verdi 3",
+                "20100 Milano",
+                "Italia",
+                "Codice destinatario ABC1234",
+                "P.IVA 09876543217",
+                "Imponibile 100,00",
+                "IVA 22,00",
+                "Totale 122,00"));
+        assertEquals("09876543217", result.getValue(Field.VENDOR_VAT_NUMBER));
+        assertEquals(RuleBasedInvoiceExtractor.VALIDATED, result.getConfidence(Field.VENDOR_VAT_NUMBER));
+
+        InvoiceData model = new InvoiceData();
+        model.setVendorVatNumber("IT01234567897");
+        model.setClientVatNumber("09876543217");
+        InvoiceData merged = result.mergeInto(model, 0.8);
+        assertEquals("IT01234567897", merged.getVendorVatNumber());
+        assertEquals("09876543217", merged.getClientVatNumber());
+        assertEquals(new BigDecimal("122.00"), merged.getTotalAmount());
+
+        InvoiceData clientOnly = new InvoiceData();
+        clientOnly.setClientVatNumber("IT09876543217");
+        assertNull(result.mergeInto(clientOnly, 0.8).getVendorVatNumber());
+    }
+
+    @Test
+    @DisplayName("Amounts are parsed with Italian and English separators, not from dates or percentages")
+    void testParseAmount() {
+        assertEquals(new BigDecimal("1234.56"), RuleBasedInvoiceExtractor.parseAmount("1.234,56"));
+        assertEquals(new BigDecimal("1234.56"), RuleBasedInvoiceExtractor.parseAmount("1,234.56"));
+        assertEquals(new BigDecimal("99.90"), RuleBasedInvoiceExtractor.parseAmount("99,90"));
+        assertTrue(RuleBasedInvoiceExtractor.isValidPartitaIva("01234567897"));
+        assertFalse(RuleBasedInvoiceExtractor.isValidPartitaIva("01234567890"));
+
+        RuleBasedInvoiceExtractor.Result result = extractor.extract("Totale 12.03.2024 aliquota 22,00%");
+        assertNull(result.getValue(Field.TOTAL_AMOUNT));
+    }
+}
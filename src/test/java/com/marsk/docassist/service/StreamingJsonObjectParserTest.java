@@ -0,0 +1,56 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the incremental parsing of streamed extraction responses.
+ */
+public class StreamingJsonObjectParserTest {
+
+    private final List<String> fields = new ArrayList<>();
+    private final StreamingJsonObjectParser parser =
+            new StreamingJsonObjectParser((name, value) -> fields.add(name + "=" + value));
+
+    @Test
+    @DisplayName("Fields are reported as soon as their value is complete")
+    void testReportsFieldsAsTheyComplete() {
+        assertFalse(parser.feed("{\"invoiceNumber\": \"FT-"));
+        assertTrue(fields.isEmpty());
+
+        assertFalse(parser.feed("12\", \"netAmount\": 100."));
+        assertEquals(List.of("invoiceNumber=\"FT-12\""), fields);
+
+        assertFalse(parser.feed("50,\n  \"currency\": null"));
+        assertEquals(List.of("invoiceNumber=\"FT-12\"", "netAmount=100.50"), fields);
+
+        assertTrue(parser.feed("}"));
+        assertEquals("currency=null", fields.get(2));
+        assertEquals("{\"invoiceNumber\": \"FT-12\", \"netAmount\": 100.50,\n  \"currency\": null}", parser.getJson());
+    }
+
+    @Test
+    @DisplayName("Escaped quotes and braces inside strings do not end values or the object")
+    void testStringsWithStructuralCharacters() {
+        parser.feed("{\"vendorName\":\"ACME \\\"Srl\\\" {ufficio}\",\"processingNotes\":\"ok\"}");
+
+        assertTrue(parser.isComplete());
+        assertEquals(List.of("vendorName=\"ACME \\\"Srl\\\" {ufficio}\"", "processingNotes=\"ok\""), fields);
+    }
+
+    @Test
+    @DisplayName("Nested values are reported whole, and text around the object is ignored")
+    void testNestedValuesAndSurroundingText() {
+        assertTrue(parser.feed("Here is the JSON: {\"lines\": [{\"a\": \"]\"}, 2], \"paid\": true} trailing"));
+
+        assertEquals(List.of("lines=[{\"a\": \"]\"}, 2]", "paid=true"), fields);
+        assertFalse(parser.getJson().contains("trailing"));
+        parser.feed("{\"more\": 1}");
+        assertEquals(2, fields.size());
+    }
+}
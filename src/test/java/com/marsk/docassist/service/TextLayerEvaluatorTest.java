@@ -0,0 +1,43 @@
+package com.marsk.docassist.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the text-layer decision used by the hybrid PDF extraction.
+ */
+public class TextLayerEvaluatorTest {
+
+    private final TextLayerEvaluator evaluator = new TextLayerEvaluator(50, 0.9);
+
+    @Test
+    @DisplayName("Dense born-digital invoice text is usable")
+    void testDenseTextLayerIsUsable() {
+        String text = "FATTURA N. 2025/118 del 12/03/2025\n"
+                + "Fornitore: Rossi S.r.l. - P.IVA 01234567890\n"
+                + "Imponibile 1.000,00 € IVA 22% 220,00 € Totale 1.220,00 €\n";
+
+        assertTrue(evaluator.isUsable(text));
+    }
+
+    @Test
+    @DisplayName("Empty or sparse text layers fall back to OCR")
+    void testSparseTextLayerIsNotUsable() {
+        assertFalse(evaluator.isUsable(null));
+        assertFalse(evaluator.isUsable(""));
+        assertFalse(evaluator.isUsable("   \n\n  "));
+        assertFalse(evaluator.isUsable("Page 1 of 2"));
+    }
+
+    @Test
+    @DisplayName("Text layers without a Unicode mapping fall back to OCR")
+    void testGarbledTextLayerIsNotUsable() {
+        String garbled = "��� ���� ab □□□□ cd □□□ ef "
+                + "����� gh □□□□□□ ij ������� "
+                + "□□□□□□□□";
+
+        assertFalse(evaluator.isUsable(garbled));
+    }
+}
@@ -0,0 +1,127 @@
+package com.marsk.docassist.service;
+
+import com.marsk.docassist.model.InvoiceData;
+import com.marsk.docassist.model.VendorTemplate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for learning and applying vendor layout templates.
+ */
+public class VendorTemplateMatcherTest {
+
+    private final VendorTemplateMatcher matcher = new VendorTemplateMatcher();
+
+    private static String invoice(String number, String date, String client, String net, String vat, String total) {
+        return invoice("ACME Forniture S.r.l.", "Via Roma 1, 20100 Milano   P.IVA IT01234567897",
+                number, date, client, net, vat, total);
+    }
+
+    private static String invoice(String vendor, String address, String number, String date, String client,
+                                  String net, String vat, String total) {
+        return String.join("\n",
+                vendor,
+                address,
+                "Documento " + number + "   emesso il " + date,
+                "Destinatario merce:",
+                client,
+                "Sedie da ufficio        10   100,00",
+                "Riepilogo:  merce " + net + "  imposta 22% " + vat,
+                "Da pagare",
+                "EUR " + total);
+    }
+
+    private static InvoiceData learned() {
+        InvoiceData data = new InvoiceData();
+        data.setInvoiceNumber("2024/117");
+        data.setInvoiceDate(LocalDate.of(2024, 3, 12));
+        data.setVendorName("ACME Forniture S.r.l.");
+        data.setVendorVatNumber("IT01234567897");
+        data.setClientName("Rossi SpA");
+        data.setNetAmount(new BigDecimal("1000.00"));
+        data.setVatAmount(new BigDecimal("220.00"));
+        data.setTotalAmount(new BigDecimal("1220.00"));
+        data.setCurrency("EUR");
+        return data;
+    }
+
+    private VendorTemplate template() {
+        String ocrText = invoice("2024/117", "12/03/2024", "Rossi SpA", "1.000,00", "220,00", "1.220,00");
+        VendorTemplate template = new VendorTemplate();
+        template.setVendorName("ACME Forniture S.r.l.");
+        template.setVendorVatNumber("IT01234567897");
+        template.setCurrency("EUR");
+        template.setLayoutFingerprint(VendorTemplateMatcher.fingerprint(ocrText));
+        template.setAnchors(matcher.learn(ocrText, learned()));
+        return template;
+    }
+
+    @Test
+    @DisplayName("A learned template reads the fields of the vendor's next invoice")
+    void testAppliesLearnedTemplate() {
+        VendorTemplate template = template();
+        assertEquals(6, template.getAnchors().size());
+
+        InvoiceData data = matcher.apply(
+                invoice("2024/204", "5/6/2024", "Bianchi Srl", "500,00", "110,00", "610,00"), template);
+
+        assertEquals("2024/204", data.getInvoiceNumber());
+        assertEquals(LocalDate.of(2024, 6, 5), data.getInvoiceDate());
+        assertEquals("Bianchi Srl", data.getClientName());
+        assertEquals(new BigDecimal("500.00"), data.getNetAmount());
+        assertEquals(new BigDecimal("110.00"), data.getVatAmount());
+        assertEquals(new BigDecimal("610.00"), data.getTotalAmount());
+        assertEquals("ACME Forniture S.r.l.", data.getVendorName());
+        assertEquals("IT01234567897", data.getVendorVatNumber());
+        assertEquals("EUR", data.getCurrency());
+    }
+
+    @Test
+    @DisplayName("Documents that do not fit the template are left to the model")
+    void testRejectsMismatchedDocuments() {
+        VendorTemplate template = template();
+
+        assertNull(matcher.apply("Fattura n. 12 del 01/02/2024\nCliente: Verdi Srl\nTotale 100,00", template));
+        // Amounts that do not add up
+        assertNull(matcher.apply(
+                invoice("2024/204", "5/6/2024", "Bianchi Srl", "500,00", "110,00", "600,00"), template));
+        assertNull(matcher.apply(invoice("2024/204", "5/6/2024", "Bianchi Srl", "500,00", "110,00", "610,00"),
+                new VendorTemplate()));
+    }
+
+    @Test
+    @DisplayName("Another vendor's invoice with the same labels does not fit the template")
+    void testRejectsOtherVendors() {
+        VendorTemplate template = template();
+        String other = invoice("Beta Ufficio S.p.A.", "Corso Italia 5, 10100 Torino   P.IVA IT09876543217",
+                "2024/204", "5/6/2024", "Bianchi Srl", "500,00", "110,00", "610,00");
+        assertNull(matcher.apply(other, template));
+
+        // A template learned under the client's VAT number, which is on every invoice the client receives
+        template.setVendorVatNumber("IT09876543217");
+        assertNull(matcher.apply(other + "\nCliente P.IVA IT09876543217", template));
+        assertNull(matcher.apply(invoice("2024/204", "5/6/2024", "Bianchi Srl", "500,00", "110,00", "610,00")
+                + "\nP.IVA 09876543217", template, "IT09876543217"));
+    }
+
+    @Test
+    @DisplayName("The layout fingerprint ignores changing numbers but not a different letterhead")
+    void testFingerprint() {
+        String first = invoice("2024/117", "12/03/2024", "Rossi SpA", "1.000,00", "220,00", "1.220,00");
+        String second = invoice("2024/204", "5/6/2024", "Bianchi Srl", "500,00", "110,00", "610,00");
+
+        assertEquals(64, VendorTemplateMatcher.fingerprint(first).length());
+        assertEquals(VendorTemplateMatcher.fingerprint(first),
+                VendorTemplateMatcher.fingerprint(first.replace("2024/117", "2025/9").replace("  ", " ")));
+        assertEquals(VendorTemplateMatcher.fingerprint(first), VendorTemplateMatcher.fingerprint(second));
+        assertFalse(VendorTemplateMatcher.fingerprint(first)
+                .equals(VendorTemplateMatcher.fingerprint(first.replace("ACME", "Beta"))));
+        assertEquals("01234567897", VendorTemplateMatcher.vatKey("IT 01234567897"));
+        assertNull(VendorTemplateMatcher.vatKey("n/a"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.marsk.docassist.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the OpenCV preprocessing chain.
+ */
+public class ImagePreprocessorTest {
+
+    @Test
+    @DisplayName("Stage lists are parsed in order and 'none' disables preprocessing")
+    void testParseStages() {
+        assertEquals(List.of(ImagePreprocessor.Stage.GRAYSCALE, ImagePreprocessor.Stage.DESKEW),
+                ImagePreprocessor.Stage.parse(" grayscale, Deskew "));
+        assertTrue(ImagePreprocessor.Stage.parse("none").isEmpty());
+        assertTrue(ImagePreprocessor.Stage.parse("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ImagePreprocessor.Stage.parse("grayscale,blur"));
+    }
+
+    @Test
+    @DisplayName("An empty chain returns the input image untouched")
+    void testEmptyChainReturnsInput() {
+        BufferedImage page = page(BufferedImage.TYPE_INT_RGB);
+
+        ImagePreprocessor.Result result = new ImagePreprocessor(List.of(), 2.0, 10).process(page);
+
+        assertSame(page, result.getImage());
+        assertTrue(result.getStageMs().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Colour pages come out as single-channel images with a timing per stage")
+    void testChainProducesGrayImageAndTimings() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(
+                ImagePreprocessor.Stage.parse("grayscale,denoise,binarize"), 2.0, 10);
+
+        ImagePreprocessor.Result result = preprocessor.process(page(BufferedImage.TYPE_INT_ARGB));
+
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getImage().getType());
+        assertEquals(800, result.getImage().getWidth());
+        assertEquals(List.of("grayscale", "denoise", "binarize", ImagePreprocessor.CONVERT),
+                List.copyOf(result.getStageMs().keySet()));
+        // Thin strokes stay dark, background stays white
+        assertEquals(0, result.getImage().getRaster().getSample(150, 101, 0));
+        assertEquals(255, result.getImage().getRaster().getSample(20, 20, 0));
+    }
+
+    @Test
+    @DisplayName("The skew of text lines is measured in both directions")
+    void testEstimatesSkewOfTextLines() {
+        assertEquals(3.0, ImagePreprocessor.estimateSkew(textPage(3, false), 10), 0.15);
+        assertEquals(-3.0, ImagePreprocessor.estimateSkew(textPage(-3, false), 10), 0.15);
+        assertEquals(0.0, ImagePreprocessor.estimateSkew(textPage(0, false), 10), 0.0);
+
+        BufferedImage blank = new BufferedImage(200, 100, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = blank.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, blank.getWidth(), blank.getHeight());
+        g.dispose();
+        assertEquals(0.0, ImagePreprocessor.estimateSkew(blank, 10), 0.0);
+    }
+
+    @Test
+    @DisplayName("An upright page with a tilted logo in the corner is not rotated")
+    void testLogoDoesNotTiltUprightPage() {
+        BufferedImage page = textPage(0, true);
+
+        assertEquals(0.0, ImagePreprocessor.estimateSkew(page, 10), 0.0);
+        ImagePreprocessor.Result result = new ImagePreprocessor(
+                ImagePreprocessor.Stage.parse("deskew"), 1.0, 10).process(page);
+        assertEquals(0, result.getImage().getRaster().getSample(103, 102, 0));
+    }
+
+    @Test
+    @DisplayName("Pages rotated by a few degrees come back level")
+    void testDeskewLevelsRotatedPages() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(
+                ImagePreprocessor.Stage.parse("grayscale,deskew"), 1.0, 10);
+
+        for (double degrees : new double[] {3, -3}) {
+            BufferedImage level = preprocessor.process(textPage(degrees, true)).getImage();
+            assertEquals(0.0, ImagePreprocessor.estimateSkew(level, 10), 0.2, "rotated by " + degrees);
+        }
+    }
+
+    /**
+     * Gray page of word-sized blocks in lines, rotated clockwise by the given angle,
+     * optionally with a logo turned by 30 degrees in the top right corner.
+     */
+    private BufferedImage textPage(double degrees, boolean logo) {
+        BufferedImage page = new BufferedImage(800, 1000, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = page.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, page.getWidth(), page.getHeight());
+        g.setColor(Color.BLACK);
+        if (logo) {
+            AffineTransform upright = g.getTransform();
+            g.rotate(Math.toRadians(30), 680, 110);
+            g.fillRect(620, 50, 120, 120);
+            g.setTransform(upright);
+        }
+        g.rotate(Math.toRadians(degrees), page.getWidth() / 2.0, page.getHeight() / 2.0);
+        for (int line = 0; line < 20; line++) {
+            int x = 100;
+            for (int word = 0; x < 640; word++) {
+                int wordWidth = 30 + (line * 7 + word * 13) % 50;
+                g.fillRect(x, 100 + line * 40, wordWidth, 12);
+                x += wordWidth + 15;
+            }
+        }
+        g.dispose();
+        return page;
+    }
+
+    private BufferedImage page(int imageType) {
+        BufferedImage page = new BufferedImage(800, 600, imageType);
+        Graphics2D g = page.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, page.getWidth(), page.getHeight());
+        g.setColor(Color.BLACK);
+        for (int y = 100; y < 500; y += 60) {
+            g.fillRect(100, y, 600, 4);
+        }
+        g.dispose();
+        return page;
+    }
+}